@@ -0,0 +1,73 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.payload.BorderCountResponseDto;
+import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.snapshot.BorderGraph;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.CollectionUtils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+
+/**
+ * The Class BorderBenchmark
+ * Cost of finding the Asian country with the most non-asian borders.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BorderBenchmark {
+    private static final String ASIA = "Asia";
+
+    /**
+     * The original per request border map and count map over the bound Asian DTOs.
+     */
+    @Benchmark
+    public String countNonAsianBordersWithMaps(CountryFixture fixture) {
+        Map<String, List<String>> asianCountryBordersMap = Arrays.stream(fixture.countryResponseDtos).filter(Objects::nonNull)
+                .filter(country -> ASIA.equals(country.getRegion()))
+                .filter(country -> !CollectionUtils.isEmpty(country.getBorders()))
+                .collect(Collectors.toMap(CountryResponseDto::getCca3, CountryResponseDto::getBorders));
+
+        Map<String, Integer> asianCountryNonAsianBordersCountMap = new HashMap<>();
+        asianCountryBordersMap.forEach((cca3, borders) -> Optional.ofNullable(borders).ifPresent(borderList -> borderList.forEach(border -> {
+            if (!asianCountryBordersMap.containsKey(border)) {
+                asianCountryNonAsianBordersCountMap.put(cca3, asianCountryNonAsianBordersCountMap.getOrDefault(cca3, 0) + 1);
+            }
+        })));
+
+        return asianCountryNonAsianBordersCountMap.entrySet().stream().max(Map.Entry.comparingByValue()).map(Map.Entry::getKey).orElse(null);
+    }
+
+    /**
+     * The CSR border graph with its per region rankings, built once per snapshot.
+     */
+    @Benchmark
+    public BorderGraph buildBorderGraph(CountryFixture fixture) {
+        return new BorderGraph(fixture.countryRecords);
+    }
+
+    /**
+     * The per request lookup in the precomputed ranking.
+     */
+    @Benchmark
+    public List<BorderCountResponseDto> mostForeignBordersOfAsia(CountryFixture fixture) {
+        BorderGraph borderGraph = fixture.countrySnapshot.getBorderGraph();
+        return borderGraph.mostForeignBorders(borderGraph.regionIdOf(ASIA), 1);
+    }
+}
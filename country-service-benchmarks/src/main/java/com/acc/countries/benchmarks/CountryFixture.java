@@ -0,0 +1,86 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.snapshot.CountryRecord;
+import com.acc.countries.snapshot.CountryRecordParser;
+import com.acc.countries.snapshot.CountrySnapshot;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.List;
+
+
+/**
+ * The Class CountryFixture
+ * Benchmark state holding the checked-in {@code /v3.1/all} fixture in every form the service works on:
+ * the raw payload, the bound DTO array, the parsed records and a complete snapshot.
+ */
+@State(Scope.Benchmark)
+public class CountryFixture {
+    static final String FIXTURE = "/fixtures/v3.1-all.json";
+
+    byte[] payload;
+
+    ObjectMapper objectMapper;
+
+    CountryRecordParser countryRecordParser;
+
+    CountryResponseDto[] countryResponseDtos;
+
+    List<CountryRecord> countryRecords;
+
+    CountrySnapshot countrySnapshot;
+
+    private AnnotationConfigApplicationContext context;
+
+    /**
+     * Loads the fixture and builds the parser the same way the application does.
+     *
+     * @throws IOException if the fixture is missing
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        payload = readFixture();
+        // Configured like the application's ObjectMapper, unknown properties are ignored
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        context = new AnnotationConfigApplicationContext();
+        context.registerBean(ObjectMapper.class, () -> objectMapper);
+        context.register(CountryRecordParser.class);
+        context.refresh();
+        countryRecordParser = context.getBean(CountryRecordParser.class);
+
+        countryResponseDtos = objectMapper.readValue(payload, CountryResponseDto[].class);
+        countryRecords = countryRecordParser.parse(payload);
+        countrySnapshot = new CountrySnapshot(1L, Instant.EPOCH, countryRecords);
+    }
+
+    /**
+     * Closes the parser context.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    static byte[] readFixture() {
+        try (InputStream fixture = CountryFixture.class.getResourceAsStream(FIXTURE)) {
+            if (fixture == null) {
+                throw new IllegalStateException("Missing benchmark fixture " + FIXTURE);
+            }
+            return fixture.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
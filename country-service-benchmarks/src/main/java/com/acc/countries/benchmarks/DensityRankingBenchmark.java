@@ -0,0 +1,57 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.snapshot.DensityRanking;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+
+/**
+ * The Class DensityRankingBenchmark
+ * Cost of the {@code getByPopulationDensity} ordering, per request before the snapshot and per refresh since.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DensityRankingBenchmark {
+
+    /**
+     * The original per request sort of the bound DTOs by population.
+     */
+    @Benchmark
+    public List<CountryResponseDto> sortCountryResponseDtosByPopulation(CountryFixture fixture) {
+        return Arrays.stream(fixture.countryResponseDtos).filter(Objects::nonNull)
+                .sorted(Comparator.comparing(CountryResponseDto::getPopulation).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The ranking and its encoded JSON, built once per snapshot.
+     */
+    @Benchmark
+    public DensityRanking rankCountryRecordsByDensity(CountryFixture fixture) {
+        return DensityRanking.of(fixture.countryRecords);
+    }
+
+    /**
+     * One page of 20 countries sliced from the precomputed ranking, as served per request.
+     */
+    @Benchmark
+    public byte[] encodeFirstPage(CountryFixture fixture) {
+        return DensityRanking.toJsonArray(fixture.countrySnapshot.getDensityRanking().getRankedCountries().subList(0, 20));
+    }
+}
@@ -0,0 +1,52 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.snapshot.CountryRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The Class IngestBenchmark
+ * Cost of turning the upstream {@code /v3.1/all} payload into the service model.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestBenchmark {
+
+    /**
+     * Full Jackson binding of the payload into {@code CountryResponseDto[]}, as the upstream client did per request.
+     */
+    @Benchmark
+    public CountryResponseDto[] bindCountryResponseDtoArray(CountryFixture fixture) throws IOException {
+        return fixture.objectMapper.readValue(fixture.payload, CountryResponseDto[].class);
+    }
+
+    /**
+     * Streaming ingest into compact records, as the snapshot refresh does.
+     */
+    @Benchmark
+    public List<CountryRecord> parseCountryRecords(CountryFixture fixture) throws IOException {
+        return fixture.countryRecordParser.parse(fixture.payload);
+    }
+
+    /**
+     * Decoding one record back into the public DTO, the cost paid per country by the DTO based endpoints.
+     */
+    @Benchmark
+    public CountryResponseDto decodeOneRecord(CountryFixture fixture) {
+        return fixture.countryRecords.get(0).toDto(fixture.objectMapper);
+    }
+}
@@ -0,0 +1,83 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.snapshot.BorderGraph;
+import com.acc.countries.snapshot.LandRoutes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The Class LandRouteBenchmark
+ * Cost of a shortest land route, searched breadth-first per query or rebuilt from the snapshot hop matrix,
+ * and cost of building the matrix at snapshot load.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LandRouteBenchmark {
+    private static final String FROM = "PRT";
+
+    private static final String TO = "CHN";
+
+    /**
+     * Breadth-first search from the first country until the second one is reached.
+     */
+    @Benchmark
+    public int[] searchRoute(CountryFixture fixture) {
+        BorderGraph borderGraph = fixture.countrySnapshot.getBorderGraph();
+        int from = borderGraph.idOf(FROM);
+        int to = borderGraph.idOf(TO);
+        int[] previous = new int[borderGraph.size()];
+        Arrays.fill(previous, -1);
+        previous[from] = from;
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(from);
+        while (!queue.isEmpty() && previous[to] < 0) {
+            int node = queue.poll();
+            for (int position = borderGraph.neighboursStart(node); position < borderGraph.neighboursEnd(node); position++) {
+                int neighbour = borderGraph.neighbourAt(position);
+                if (previous[neighbour] < 0) {
+                    previous[neighbour] = node;
+                    queue.add(neighbour);
+                }
+            }
+        }
+        int length = 1;
+        for (int node = to; node != from; node = previous[node]) {
+            length++;
+        }
+        int[] route = new int[length];
+        for (int node = to, step = length - 1; step >= 0; node = previous[node], step--) {
+            route[step] = node;
+        }
+        return route;
+    }
+
+    /**
+     * The route rebuilt from the precomputed hop matrix.
+     */
+    @Benchmark
+    public int[] matrixRoute(CountryFixture fixture) {
+        BorderGraph borderGraph = fixture.countrySnapshot.getBorderGraph();
+        return fixture.countrySnapshot.getLandRoutes().route(borderGraph.idOf(FROM), borderGraph.idOf(TO));
+    }
+
+    /**
+     * Builds the hop matrix, components and landlocked depths, as done once per snapshot.
+     */
+    @Benchmark
+    public LandRoutes buildMatrix(CountryFixture fixture) {
+        return new LandRoutes(fixture.countrySnapshot.getBorderGraph());
+    }
+}
@@ -0,0 +1,59 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.snapshot.CountryRecord;
+import com.acc.countries.snapshot.SpatialIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+
+/**
+ * The Class NearestBenchmark
+ * Cost of a nearest countries query, scanning every country or walking the snapshot k-d tree.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestBenchmark {
+    private static final double LAT = 48.85;
+
+    private static final double LNG = 2.35;
+
+    /**
+     * Sorts every country with a position by great-circle distance and keeps the first 5.
+     */
+    @Benchmark
+    public List<CountryRecord> scanNearest(CountryFixture fixture) {
+        return fixture.countryRecords.stream().filter(country -> country.getLatlng().length == 2)
+                .sorted(Comparator.comparingDouble(country -> SpatialIndex.distanceKm(LAT, LNG, country.getLatlng()[0], country.getLatlng()[1])))
+                .limit(5)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * The 5 nearest countries from the k-d tree.
+     */
+    @Benchmark
+    public List<SpatialIndex.Neighbour> kdTreeNearest(CountryFixture fixture) {
+        return fixture.countrySnapshot.getCountryLocations().nearest(LAT, LNG, 5);
+    }
+
+    /**
+     * The countries within 1000 km from the k-d tree.
+     */
+    @Benchmark
+    public List<SpatialIndex.Neighbour> kdTreeWithinRadius(CountryFixture fixture) {
+        return fixture.countrySnapshot.getCountryLocations().withinRadius(LAT, LNG, 1000d);
+    }
+}
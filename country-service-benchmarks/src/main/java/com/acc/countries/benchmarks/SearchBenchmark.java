@@ -0,0 +1,50 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.snapshot.SearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * The Class SearchBenchmark
+ * Cost of an autocomplete query on the snapshot name index.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    /**
+     * A short, common prefix matching many countries.
+     */
+    @Benchmark
+    public List<SearchIndex.Hit> searchShortPrefix(CountryFixture fixture) {
+        return fixture.countrySnapshot.getSearchIndex().search("re", 10);
+    }
+
+    /**
+     * A two word query with accents.
+     */
+    @Benchmark
+    public List<SearchIndex.Hit> searchTwoWords(CountryFixture fixture) {
+        return fixture.countrySnapshot.getSearchIndex().search("Républic Ger", 10);
+    }
+
+    /**
+     * Building the index, once per snapshot.
+     */
+    @Benchmark
+    public SearchIndex buildIndex(CountryFixture fixture) {
+        return new SearchIndex(fixture.countrySnapshot.getCountries());
+    }
+}
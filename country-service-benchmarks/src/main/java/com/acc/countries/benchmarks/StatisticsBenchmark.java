@@ -0,0 +1,59 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.payload.CountryStatisticsResponseDto;
+import com.acc.countries.snapshot.CountryStatistics;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.DoubleSummaryStatistics;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+
+/**
+ * The Class StatisticsBenchmark
+ * Cost of the regional statistics, over the bound DTOs and over the snapshot columns.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatisticsBenchmark {
+    private static final double[] PERCENTILES = {25d, 75d, 90d, 99d};
+
+    /**
+     * Population summaries per region the way a client computes them from the full list, without median or percentiles.
+     */
+    @Benchmark
+    public Map<String, DoubleSummaryStatistics> summarizeCountryResponseDtosByRegion(CountryFixture fixture) {
+        return Arrays.stream(fixture.countryResponseDtos).filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(country -> String.valueOf(country.getRegion()),
+                        Collectors.summarizingDouble(CountryResponseDto::getPopulation)));
+    }
+
+    /**
+     * Population, area and density statistics with percentiles per region, over the snapshot columns.
+     */
+    @Benchmark
+    public CountryStatisticsResponseDto aggregateColumnsByRegion(CountryFixture fixture) {
+        return CountryStatistics.aggregate(fixture.countrySnapshot.getCountryColumns(), CountryStatistics.Grouping.REGION, 0, 0, PERCENTILES, Integer.MAX_VALUE);
+    }
+
+    /**
+     * The same statistics per subregion, about 25 smaller groups.
+     */
+    @Benchmark
+    public CountryStatisticsResponseDto aggregateColumnsBySubregion(CountryFixture fixture) {
+        return CountryStatistics.aggregate(fixture.countrySnapshot.getCountryColumns(), CountryStatistics.Grouping.SUBREGION, 0, 0, PERCENTILES, Integer.MAX_VALUE);
+    }
+}
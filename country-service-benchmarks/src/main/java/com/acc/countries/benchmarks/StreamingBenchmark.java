@@ -0,0 +1,111 @@
+package com.acc.countries.benchmarks;
+
+import com.acc.countries.payload.DataVersion;
+import com.acc.countries.snapshot.CountryRecord;
+import com.acc.countries.streaming.CountryStream;
+import com.acc.countries.streaming.StreamFormat;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+
+/**
+ * The Class StreamingBenchmark
+ * Work done before the first byte of the density ranking reaches the client, and for the whole body:
+ * the original DTO list serialized as one array against the country stream flushed every 16 countries.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamingBenchmark {
+    private static final int FLUSH_EVERY = 16;
+
+    /**
+     * Decodes the ranked countries into DTOs and serializes the list, nothing can be sent before it completes.
+     */
+    @Benchmark
+    public byte[] serializeDtoList(CountryFixture fixture) throws JsonProcessingException {
+        List<CountryRecord> ranked = fixture.countrySnapshot.getDensityRanking().getRankedCountries();
+        return fixture.objectMapper.writeValueAsBytes(ranked.stream().map(country -> country.toDto(fixture.objectMapper)).collect(Collectors.toList()));
+    }
+
+    /**
+     * Streams until the first flush, the point the first countries are handed to the socket.
+     */
+    @Benchmark
+    public long streamUntilFirstFlush(CountryFixture fixture) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(true);
+        try {
+            stream(fixture).writeTo(out, StreamFormat.NDJSON, FLUSH_EVERY);
+        } catch (FirstFlush ex) {
+            return out.count;
+        }
+        return out.count;
+    }
+
+    /**
+     * Streams the complete ranking as NDJSON.
+     */
+    @Benchmark
+    public long streamAll(CountryFixture fixture) throws IOException {
+        CountingOutputStream out = new CountingOutputStream(false);
+        stream(fixture).writeTo(out, StreamFormat.NDJSON, FLUSH_EVERY);
+        return out.count;
+    }
+
+    private static CountryStream stream(CountryFixture fixture) {
+        return new CountryStream(fixture.countrySnapshot.getDensityRanking(), null, fixture.objectMapper.getFactory(),
+                new DataVersion(fixture.countrySnapshot.getVersion(), fixture.countrySnapshot.getFetchedAt()));
+    }
+
+    /**
+     * Discards the bytes, counting them, optionally stopping the stream at the first flush.
+     */
+    private static final class CountingOutputStream extends OutputStream {
+        private final boolean stopAtFlush;
+
+        private long count;
+
+        private CountingOutputStream(boolean stopAtFlush) {
+            this.stopAtFlush = stopAtFlush;
+        }
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+
+        @Override
+        public void flush() {
+            if (stopAtFlush) {
+                throw FirstFlush.INSTANCE;
+            }
+        }
+    }
+
+    private static final class FirstFlush extends RuntimeException {
+        private static final FirstFlush INSTANCE = new FirstFlush();
+
+        private FirstFlush() {
+            super(null, null, false, false);
+        }
+    }
+}
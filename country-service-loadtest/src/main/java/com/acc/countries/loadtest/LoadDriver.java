@@ -0,0 +1,101 @@
+package com.acc.countries.loadtest;
+
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+
+/**
+ * The Class LoadDriver
+ * Open model load generator: requests start on a fixed schedule, at the target rate, whether or not the previous
+ * requests have completed, the way independent clients arrive. A closed loop of N users would slow down together with
+ * the service and hide its latency under load (coordinated omission).
+ * Requests are sent asynchronously over one shared http client, the first {@code warmup} of a run is not recorded.
+ */
+public class LoadDriver {
+    private final HttpClient httpClient;
+
+    private final Duration requestTimeout;
+
+    /**
+     * Instantiates a new LoadDriver
+     *
+     * @param requestTimeout the time after which a request counts as failed
+     */
+    public LoadDriver(Duration requestTimeout) {
+        this.requestTimeout = requestTimeout;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(requestTimeout)
+                .build();
+    }
+
+    /**
+     * Sends the request at a fixed rate and records the outcome.
+     *
+     * @param scenario the scenario name
+     * @param request  the request, sent as is every time
+     * @param rate     the arrival rate in requests per second
+     * @param warmup   the time sent before recording starts
+     * @param duration the time recorded
+     * @return the LoadReport of the recorded requests
+     * @throws InterruptedException if interrupted while waiting for the last requests
+     */
+    public LoadReport run(String scenario, HttpRequest request, double rate, Duration warmup, Duration duration) throws InterruptedException {
+        if (!(rate > 0d)) {
+            throw new IllegalArgumentException("rate must be positive: " + rate);
+        }
+        HttpRequest timedRequest = HttpRequest.newBuilder(request, (name, value) -> true).timeout(requestTimeout).build();
+        double intervalNanos = 1e9d / rate;
+        int warmupCount = (int) (warmup.toNanos() / intervalNanos);
+        int measuredCount = (int) Math.max(1L, (long) (duration.toNanos() / intervalNanos));
+        int total = warmupCount + measuredCount;
+
+        long[] latencies = new long[measuredCount];
+        AtomicInteger succeeded = new AtomicInteger();
+        LongAdder failed = new LongAdder();
+        AtomicLong lastCompletion = new AtomicLong();
+        CountDownLatch completed = new CountDownLatch(total);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < total; i++) {
+            long intended = start + (long) (i * intervalNanos);
+            long wait;
+            while ((wait = intended - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            boolean recorded = i >= warmupCount;
+            httpClient.sendAsync(timedRequest, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                long now = System.nanoTime();
+                if (recorded) {
+                    if (failure == null && isSuccess(response.statusCode())) {
+                        latencies[succeeded.getAndIncrement()] = now - intended;
+                    } else {
+                        failed.increment();
+                    }
+                    lastCompletion.accumulateAndGet(now, Math::max);
+                }
+                completed.countDown();
+            });
+        }
+        if (!completed.await(requestTimeout.toMillis() + TimeUnit.SECONDS.toMillis(5), TimeUnit.MILLISECONDS)) {
+            throw new IllegalStateException("Requests of " + scenario + " did not complete within the request timeout");
+        }
+
+        long recordingStart = start + (long) (warmupCount * intervalNanos);
+        Duration elapsed = Duration.ofNanos(Math.max(0L, lastCompletion.get() - recordingStart));
+        return new LoadReport(scenario, rate, measuredCount, failed.sum(), elapsed, Arrays.copyOf(latencies, succeeded.get()));
+    }
+
+    private static boolean isSuccess(int status) {
+        return status / 100 == 2 || status == 304;
+    }
+}
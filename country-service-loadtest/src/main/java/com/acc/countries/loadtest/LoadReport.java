@@ -0,0 +1,117 @@
+package com.acc.countries.loadtest;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Locale;
+
+
+/**
+ * The Class LoadReport
+ * Outcome of one load test scenario: requests sent at the target rate, requests completed and failed,
+ * achieved throughput and the latency distribution of the completed requests.
+ * Latencies are measured from the time a request was scheduled to start, not from the time it was actually sent,
+ * so a stalled service shows in the percentiles instead of silently lowering the rate.
+ */
+public final class LoadReport {
+    private final String scenario;
+
+    private final double targetRate;
+
+    private final long sent;
+
+    private final long failed;
+
+    private final Duration elapsed;
+
+    private final long[] sortedLatencies;
+
+    /**
+     * Instantiates a new LoadReport
+     *
+     * @param scenario   the scenario name
+     * @param targetRate the target arrival rate in requests per second
+     * @param sent       the number of requests sent
+     * @param failed     the number of requests failed, non 2xx/304 status, error or timeout
+     * @param elapsed    the time from the first scheduled request to the last completion
+     * @param latencies  the latencies of the successful requests in nanoseconds, sorted in place
+     */
+    public LoadReport(String scenario, double targetRate, long sent, long failed, Duration elapsed, long[] latencies) {
+        this.scenario = scenario;
+        this.targetRate = targetRate;
+        this.sent = sent;
+        this.failed = failed;
+        this.elapsed = elapsed;
+        Arrays.sort(latencies);
+        this.sortedLatencies = latencies;
+    }
+
+    public String getScenario() {
+        return scenario;
+    }
+
+    public long getSent() {
+        return sent;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public long getSucceeded() {
+        return sortedLatencies.length;
+    }
+
+    /**
+     * Gets the achieved throughput.
+     *
+     * @return the successful requests per second
+     */
+    public double getThroughput() {
+        return elapsed.isZero() ? 0d : sortedLatencies.length / (elapsed.toNanos() / 1e9d);
+    }
+
+    /**
+     * Gets a latency percentile, by nearest rank.
+     *
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency, zero without successful request
+     */
+    public Duration percentile(double percentile) {
+        if (sortedLatencies.length == 0) {
+            return Duration.ZERO;
+        }
+        // The epsilon keeps binary rounding from moving an exact rank, 99.9% of 1000 to 1000 instead of 999
+        int rank = (int) Math.ceil(percentile / 100d * sortedLatencies.length - 1e-9);
+        return Duration.ofNanos(sortedLatencies[Math.max(0, Math.min(sortedLatencies.length, rank) - 1)]);
+    }
+
+    /**
+     * Gets the highest latency.
+     *
+     * @return the latency, zero without successful request
+     */
+    public Duration max() {
+        return sortedLatencies.length == 0 ? Duration.ZERO : Duration.ofNanos(sortedLatencies[sortedLatencies.length - 1]);
+    }
+
+    /**
+     * Gets the table header matching {@link #toString()}.
+     *
+     * @return the header line
+     */
+    public static String header() {
+        return String.format(Locale.ROOT, "%-40s %8s %8s %8s %10s %9s %9s %9s %9s",
+                "scenario", "rate/s", "sent", "failed", "tput/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "%-40s %8.0f %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f",
+                scenario, targetRate, sent, failed, getThroughput(),
+                millis(percentile(50d)), millis(percentile(99d)), millis(percentile(99.9d)), millis(max()));
+    }
+
+    private static double millis(Duration duration) {
+        return duration.toNanos() / 1e6d;
+    }
+}
@@ -0,0 +1,179 @@
+package com.acc.countries.loadtest;
+
+import com.acc.countries.CountryServiceApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * The Class LoadTest
+ * Starts the {@link StubRestCountries} and the country service pointed at it, then runs every scenario at a fixed
+ * arrival rate and prints the latency percentiles and throughput. Runs offline, nothing is sent to restcountries.
+ * The snapshot is refreshed from the stub every {@code --refresh-interval} while the load runs, so snapshot swaps
+ * happen under concurrent requests. Exits with status 1 when a request failed or a p99 exceeds {@code --max-p99}.
+ *
+ * <pre>
+ * java -jar country-service-loadtest/target/loadtest.jar --rate=500 --duration=PT30S --upstream-latency=PT0.2S
+ * java -jar country-service-loadtest/target/loadtest.jar --stub-only --stub-port=8089
+ * </pre>
+ * With {@code startup} as first argument the {@link StartupBenchmark} runs instead.
+ */
+public class LoadTest {
+    static final String FIXTURE = "/fixtures/v3.1-all.json";
+
+    private static final String API = "/api/v1/countries";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rate", "200");
+        DEFAULTS.put("warmup", "PT10S");
+        DEFAULTS.put("duration", "PT20S");
+        DEFAULTS.put("timeout", "PT5S");
+        DEFAULTS.put("max-p99", "");
+        DEFAULTS.put("refresh-interval", "PT2S");
+        DEFAULTS.put("upstream-latency", "PT0.05S");
+        DEFAULTS.put("upstream-jitter", "PT0.02S");
+        DEFAULTS.put("upstream-error-rate", "0");
+        DEFAULTS.put("upstream-error-status", "503");
+        DEFAULTS.put("stub-only", "false");
+        DEFAULTS.put("stub-port", "0");
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && "startup".equals(args[0])) {
+            StartupBenchmark.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        Map<String, String> options = parseOptions(args);
+        System.exit(run(options));
+    }
+
+    static int run(Map<String, String> options) throws IOException, InterruptedException {
+        try (StubRestCountries stub = new StubRestCountries(readFixture(), Integer.parseInt(options.get("stub-port")))) {
+            stub.setLatency(Duration.parse(options.get("upstream-latency")), Duration.parse(options.get("upstream-jitter")));
+            stub.setErrorRate(Double.parseDouble(options.get("upstream-error-rate")), Integer.parseInt(options.get("upstream-error-status")));
+            if (Boolean.parseBoolean(options.get("stub-only"))) {
+                System.out.println("Serving restcountries fixtures at " + stub.getBaseUrl() + ", start the service with:");
+                stub.getApiProperties().forEach((name, value) -> System.out.println("  --" + name + "=" + value));
+                Thread.currentThread().join();
+            }
+
+            Map<String, Object> properties = new LinkedHashMap<>(stub.getApiProperties());
+            properties.put("server.port", 0);
+            properties.put("country.peers.port", 0);
+            properties.put("spring.main.banner-mode", "off");
+            properties.put("country.snapshot.file", "");
+            properties.put("country.snapshot.refresh-interval", options.get("refresh-interval"));
+            // Passed as command line arguments, which override the application.yml of the service
+            String[] arguments = properties.entrySet().stream().map(property -> "--" + property.getKey() + "=" + property.getValue()).toArray(String[]::new);
+            try (ConfigurableApplicationContext context = new SpringApplicationBuilder(CountryServiceApplication.class).run(arguments)) {
+                String baseUrl = "http://127.0.0.1:" + context.getEnvironment().getProperty("local.server.port") + API;
+                awaitReady(URI.create(baseUrl + "/getByPopulationDensity?limit=1"), Duration.ofSeconds(30));
+
+                LoadDriver driver = new LoadDriver(Duration.parse(options.get("timeout")));
+                double rate = Double.parseDouble(options.get("rate"));
+                Duration warmup = Duration.parse(options.get("warmup"));
+                Duration duration = Duration.parse(options.get("duration"));
+                List<LoadReport> reports = new ArrayList<>();
+                for (Map.Entry<String, HttpRequest> scenario : scenarios(baseUrl).entrySet()) {
+                    reports.add(driver.run(scenario.getKey(), scenario.getValue(), rate, warmup, duration));
+                }
+
+                System.out.println(LoadReport.header());
+                reports.forEach(System.out::println);
+                System.out.printf("upstream requests: %d, injected failures: %d%n", stub.requestCount(), stub.failedCount());
+                return check(reports, options.get("max-p99"));
+            }
+        }
+    }
+
+    /**
+     * The scenarios by name: both original endpoints, plus the gzip encoded ranking.
+     */
+    static Map<String, HttpRequest> scenarios(String baseUrl) {
+        Map<String, HttpRequest> scenarios = new LinkedHashMap<>();
+        scenarios.put("getByPopulationDensity", HttpRequest.newBuilder(URI.create(baseUrl + "/getByPopulationDensity")).GET().build());
+        scenarios.put("getByPopulationDensity (gzip)", HttpRequest.newBuilder(URI.create(baseUrl + "/getByPopulationDensity"))
+                .header("Accept-Encoding", "gzip").GET().build());
+        scenarios.put("getAsianCountryWithMostNonAsianBorders", HttpRequest.newBuilder(URI.create(baseUrl + "/getAsianCountryWithMostNonAsianBorders")).GET().build());
+        return scenarios;
+    }
+
+    /**
+     * Gets the exit status: 1 if a request failed or a p99 exceeds the limit.
+     */
+    static int check(List<LoadReport> reports, String maxP99) {
+        int status = 0;
+        for (LoadReport report : reports) {
+            if (report.getFailed() > 0) {
+                System.out.printf("FAILED %s: %d failed requests%n", report.getScenario(), report.getFailed());
+                status = 1;
+            }
+            if (!maxP99.isEmpty() && report.percentile(99d).compareTo(Duration.parse(maxP99)) > 0) {
+                System.out.printf("FAILED %s: p99 %s exceeds %s%n", report.getScenario(), report.percentile(99d), maxP99);
+                status = 1;
+            }
+        }
+        return status;
+    }
+
+    static Map<String, String> parseOptions(String[] args) {
+        return parseOptions(args, DEFAULTS);
+    }
+
+    static Map<String, String> parseOptions(String[] args, Map<String, String> defaults) {
+        Map<String, String> options = new LinkedHashMap<>(defaults);
+        for (String arg : args) {
+            String option = arg.startsWith("--") ? arg.substring(2) : arg;
+            int separator = option.indexOf('=');
+            String name = separator < 0 ? option : option.substring(0, separator);
+            if (!defaults.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option " + arg + ", expected one of " + defaults.keySet());
+            }
+            options.put(name, separator < 0 ? "true" : option.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static void awaitReady(URI uri, Duration timeout) throws InterruptedException {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            try {
+                if (httpClient.send(HttpRequest.newBuilder(uri).GET().build(), HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException ex) {
+                // Not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("The country service did not serve " + uri + " within " + timeout);
+    }
+
+    static byte[] readFixture() {
+        try (InputStream fixture = LoadTest.class.getResourceAsStream(FIXTURE)) {
+            if (fixture == null) {
+                throw new IllegalStateException("Missing load test fixture " + FIXTURE);
+            }
+            return fixture.readAllBytes();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.acc.countries.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.ToDoubleFunction;
+
+
+/**
+ * The Class StartupBenchmark
+ * Launches the country service as a separate JVM against the {@link StubRestCountries}, the way a new pod starts,
+ * and measures from process launch:
+ * <ul>
+ * <li>ready: {@code /actuator/health/readiness} answers 200</li>
+ * <li>first request: latency of the first density ranking request sent once ready</li>
+ * <li>first fast: a density ranking request completes within {@code --fast-threshold}, requests are sent back to back</li>
+ * <li>steady p50: median latency over the second half of {@code --sample}</li>
+ * </ul>
+ * Each variant runs {@code --runs} times and the medians are printed. The variants are the current executable jar,
+ * the same jar with the startup warm-up, the fast-startup build (AOT processed, started with the class data sharing
+ * archive of a training run) without and with the warm-up. The archive is created by the training run when missing.
+ *
+ * <pre>
+ * mvn -P fast-startup -f country-service package -DskipTests
+ * java -jar country-service-loadtest/target/loadtest.jar startup --runs=5
+ * </pre>
+ */
+public class StartupBenchmark {
+    private static final String DENSITY = "/api/v1/countries/getByPopulationDensity";
+
+    private static final String READINESS = "/actuator/health/readiness";
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("runs", "3");
+        DEFAULTS.put("jar", "country-service/target/country-service-exec.jar");
+        DEFAULTS.put("fast-jar", "country-service/target/country-service.jar");
+        DEFAULTS.put("archive", "country-service/target/country-service.jsa");
+        DEFAULTS.put("fast-threshold", "PT0.005S");
+        DEFAULTS.put("sample", "PT5S");
+        DEFAULTS.put("startup-timeout", "PT60S");
+        DEFAULTS.put("upstream-latency", "PT0.05S");
+        DEFAULTS.put("warmup-iterations", "");
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(run(LoadTest.parseOptions(args, DEFAULTS)));
+    }
+
+    static int run(Map<String, String> options) throws IOException, InterruptedException {
+        try (StubRestCountries stub = new StubRestCountries(LoadTest.readFixture(), 0)) {
+            stub.setLatency(Duration.parse(options.get("upstream-latency")), Duration.ZERO);
+            List<String> properties = new ArrayList<>();
+            stub.getApiProperties().forEach((name, value) -> properties.add("--" + name + "=" + value));
+            properties.add("--country.snapshot.file=");
+            properties.add("--country.peers.port=0");
+            properties.add("--spring.main.banner-mode=off");
+            if (!options.get("warmup-iterations").isEmpty()) {
+                properties.add("--country.warmup.iterations=" + options.get("warmup-iterations"));
+            }
+
+            Path archive = Path.of(options.get("archive"));
+            if (!Files.exists(archive)) {
+                train(options.get("fast-jar"), archive, properties);
+            }
+
+            Map<String, List<String>> variants = new LinkedHashMap<>();
+            variants.put("jar", command(List.of(), options.get("jar"), properties, false));
+            variants.put("jar + warm-up", command(List.of(), options.get("jar"), properties, true));
+            List<String> fastStartup = List.of("-XX:SharedArchiveFile=" + archive, "-Xlog:cds=off", "-Dspring.aot.enabled=true");
+            variants.put("AOT + CDS", command(fastStartup, options.get("fast-jar"), properties, false));
+            variants.put("fast-startup (AOT + CDS + warm-up)", command(fastStartup, options.get("fast-jar"), properties, true));
+
+            int runs = Integer.parseInt(options.get("runs"));
+            Duration threshold = Duration.parse(options.get("fast-threshold"));
+            Duration sample = Duration.parse(options.get("sample"));
+            Duration startupTimeout = Duration.parse(options.get("startup-timeout"));
+            List<String> lines = new ArrayList<>();
+            for (Map.Entry<String, List<String>> variant : variants.entrySet()) {
+                List<Result> results = new ArrayList<>();
+                for (int i = 0; i < runs; i++) {
+                    results.add(measure(variant.getValue(), threshold, sample, startupTimeout));
+                }
+                lines.add(String.format(Locale.ROOT, "%-36s %10.0f %14.1f %14.0f %14.2f", variant.getKey(),
+                        median(results, Result::readyMillis), median(results, Result::firstRequestMillis),
+                        median(results, Result::firstFastMillis), median(results, Result::steadyMillis)));
+            }
+
+            System.out.printf(Locale.ROOT, "%-36s %10s %14s %14s %14s%n", "variant", "ready ms", "first req ms", "first fast ms", "steady p50 ms");
+            lines.forEach(System.out::println);
+            System.out.printf("fast threshold %s, %d runs per variant, medians%n", threshold, runs);
+            return 0;
+        }
+    }
+
+    /**
+     * Creates the class data sharing archive: the AOT processed application stops right after the context refresh
+     * and the JVM dumps the classes it loaded. The training run must not reach restcountries, the scheduled refresh
+     * is postponed.
+     */
+    static void train(String jar, Path archive, List<String> properties) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(List.of(java(), "-XX:ArchiveClassesAtExit=" + archive, "-Xlog:cds=off",
+                "-Dspring.aot.enabled=true", "-Dspring.context.exit=onRefresh", "-jar", jar));
+        command.addAll(properties);
+        command.add("--country.snapshot.initial-delay=PT1H");
+        command.add("--server.port=0");
+        System.out.println("Creating the class data sharing archive " + archive);
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        if (process.waitFor() != 0 || !Files.exists(archive)) {
+            throw new IllegalStateException("The training run did not create " + archive);
+        }
+    }
+
+    static Result measure(List<String> command, Duration threshold, Duration sample, Duration startupTimeout) throws IOException, InterruptedException {
+        int port = freePort();
+        List<String> arguments = new ArrayList<>(command);
+        arguments.add("--server.port=" + port);
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        HttpRequest readiness = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + READINESS)).GET().build();
+        HttpRequest density = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + DENSITY)).GET().build();
+
+        long launched = System.nanoTime();
+        Process process = new ProcessBuilder(arguments).redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD).start();
+        try {
+            long deadline = launched + startupTimeout.toNanos();
+            while (status(httpClient, readiness) != 200) {
+                if (System.nanoTime() > deadline || !process.isAlive()) {
+                    throw new IllegalStateException("The country service was not ready within " + startupTimeout + ": " + arguments);
+                }
+                Thread.sleep(5);
+            }
+            long ready = System.nanoTime() - launched;
+
+            List<long[]> samples = new ArrayList<>();
+            long sampleEnd = System.nanoTime() + sample.toNanos();
+            while (System.nanoTime() < sampleEnd) {
+                long start = System.nanoTime();
+                int status = status(httpClient, density);
+                long end = System.nanoTime();
+                if (status == 200) {
+                    samples.add(new long[]{end - launched, end - start});
+                }
+            }
+            if (samples.isEmpty()) {
+                throw new IllegalStateException("No successful density request: " + arguments);
+            }
+
+            long firstFast = -1;
+            for (long[] s : samples) {
+                if (s[1] <= threshold.toNanos()) {
+                    firstFast = s[0];
+                    break;
+                }
+            }
+            long[] steady = samples.subList(samples.size() / 2, samples.size()).stream().mapToLong(s -> s[1]).sorted().toArray();
+            return new Result(ready / 1e6d, samples.get(0)[1] / 1e6d, firstFast < 0 ? Double.NaN : firstFast / 1e6d, steady[steady.length / 2] / 1e6d);
+        } finally {
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    private static List<String> command(List<String> jvmOptions, String jar, List<String> properties, boolean warmup) {
+        List<String> command = new ArrayList<>();
+        command.add(java());
+        command.addAll(jvmOptions);
+        command.addAll(List.of("-jar", jar));
+        command.addAll(properties);
+        command.add("--country.warmup.enabled=" + warmup);
+        return command;
+    }
+
+    private static int status(HttpClient httpClient, HttpRequest request) throws InterruptedException {
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        } catch (IOException ex) {
+            // Not listening yet
+            return -1;
+        }
+    }
+
+    private static String java() {
+        return ProcessHandle.current().info().command().orElse("java");
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    static double median(List<Result> results, ToDoubleFunction<Result> metric) {
+        double[] values = results.stream().mapToDouble(metric).sorted().toArray();
+        return values[values.length / 2];
+    }
+
+    /**
+     * The measurements of one launch, in milliseconds from process launch except the latencies
+     */
+    record Result(double readyMillis, double firstRequestMillis, double firstFastMillis, double steadyMillis) {
+    }
+}
@@ -0,0 +1,295 @@
+package com.acc.countries.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * The Class StubRestCountries
+ * Local stand-in for the restcountries API, serving the recorded {@code /v3.1/all} fixture on the loopback interface.
+ * The {@code /v3.1/region/{region}}, {@code /v3.1/alpha/{code}} and {@code /v3.1/alpha?codes=} responses are cut from
+ * that fixture once at startup, so every response is a byte array ready to send.
+ * Responses carry a strong ETag and honour If-None-Match, and are gzip encoded for clients accepting it.
+ * Latency and failures are injected per request and can be changed while a load test runs.
+ */
+public class StubRestCountries implements AutoCloseable {
+    private static final String PREFIX = "/v3.1/";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Fixture all;
+
+    private final Map<String, Fixture> byRegion = new LinkedHashMap<>();
+
+    private final Map<String, JsonNode> byCode = new LinkedHashMap<>();
+
+    private final HttpServer server;
+
+    private final ExecutorService executor;
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final LongAdder failedCount = new LongAdder();
+
+    private volatile Duration latency = Duration.ZERO;
+
+    private volatile Duration jitter = Duration.ZERO;
+
+    private volatile double errorRate;
+
+    private volatile int errorStatus = 503;
+
+    /**
+     * A response body with its gzip encoding and ETag
+     */
+    private record Fixture(byte[] body, byte[] gzipBody, String etag) {
+    }
+
+    /**
+     * Instantiates a new StubRestCountries, listening on an ephemeral loopback port.
+     *
+     * @param allPayload the recorded {@code /v3.1/all} response
+     * @throws IOException if the server cannot bind
+     */
+    public StubRestCountries(byte[] allPayload) throws IOException {
+        this(allPayload, 0);
+    }
+
+    /**
+     * Instantiates a new StubRestCountries.
+     *
+     * @param allPayload the recorded {@code /v3.1/all} response
+     * @param port       the port, 0 for an ephemeral port
+     * @throws IOException if the server cannot bind
+     */
+    public StubRestCountries(byte[] allPayload, int port) throws IOException {
+        this.all = fixtureOf(allPayload);
+
+        Map<String, ArrayNode> regions = new LinkedHashMap<>();
+        for (JsonNode country : objectMapper.readTree(allPayload)) {
+            String region = country.path("region").asText("");
+            if (!region.isEmpty()) {
+                regions.computeIfAbsent(region.toLowerCase(Locale.ROOT), key -> objectMapper.createArrayNode()).add(country);
+            }
+            for (String code : new String[]{"cca2", "cca3", "ccn3", "cioc"}) {
+                String value = country.path(code).asText("");
+                if (!value.isEmpty()) {
+                    byCode.putIfAbsent(value.toUpperCase(Locale.ROOT), country);
+                }
+            }
+        }
+        for (Map.Entry<String, ArrayNode> region : regions.entrySet()) {
+            byRegion.put(region.getKey(), fixtureOf(objectMapper.writeValueAsBytes(region.getValue())));
+        }
+
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "stub-restcountries");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 1024);
+        server.createContext(PREFIX, this::handle);
+        server.setExecutor(executor);
+        server.start();
+    }
+
+    /**
+     * Gets the base url of the stub, for example {@code http://127.0.0.1:40123/v3.1}.
+     *
+     * @return the base url
+     */
+    public String getBaseUrl() {
+        return "http://" + server.getAddress().getAddress().getHostAddress() + ":" + server.getAddress().getPort() + "/v3.1";
+    }
+
+    /**
+     * Gets the application properties pointing the country service at the stub.
+     *
+     * @return the external.api properties
+     */
+    public Map<String, Object> getApiProperties() {
+        Map<String, Object> properties = new LinkedHashMap<>();
+        properties.put("external.api.countriesApiUrl", getBaseUrl() + "/all");
+        properties.put("external.api.countriesByRegionApiUrl", getBaseUrl() + "/region/{region}");
+        properties.put("external.api.countriesByCodeApiUrl", getBaseUrl() + "/alpha/{code}");
+        properties.put("external.api.countriesByCodesApiUrl", getBaseUrl() + "/alpha?codes={codes}");
+        return properties;
+    }
+
+    /**
+     * Sets the latency added to every response, a uniformly distributed jitter is added on top.
+     *
+     * @param latency the fixed latency
+     * @param jitter  the maximum jitter
+     */
+    public void setLatency(Duration latency, Duration jitter) {
+        this.latency = latency;
+        this.jitter = jitter;
+    }
+
+    /**
+     * Sets the share of requests failing, after the latency.
+     *
+     * @param errorRate   the share between 0 and 1
+     * @param errorStatus the http status of the failures
+     */
+    public void setErrorRate(double errorRate, int errorStatus) {
+        if (errorRate < 0d || errorRate > 1d) {
+            throw new IllegalArgumentException("errorRate must be between 0 and 1: " + errorRate);
+        }
+        this.errorRate = errorRate;
+        this.errorStatus = errorStatus;
+    }
+
+    /**
+     * Gets the number of requests received.
+     *
+     * @return the request count
+     */
+    public long requestCount() {
+        return requestCount.sum();
+    }
+
+    /**
+     * Gets the number of requests answered with an injected failure.
+     *
+     * @return the failure count
+     */
+    public long failedCount() {
+        return failedCount.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            requestCount.increment();
+            pause();
+            if (errorRate > 0d && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                failedCount.increment();
+                exchange.sendResponseHeaders(errorStatus, -1);
+                return;
+            }
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            Fixture fixture = route(exchange.getRequestURI().getPath().substring(PREFIX.length()), exchange.getRequestURI().getRawQuery());
+            if (fixture == null) {
+                byte[] body = "{\"status\":404,\"message\":\"Not Found\"}".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(404, body.length);
+                exchange.getResponseBody().write(body);
+                return;
+            }
+            send(exchange, fixture);
+        }
+    }
+
+    private Fixture route(String path, String query) throws IOException {
+        if (path.equals("all")) {
+            return all;
+        }
+        if (path.startsWith("region/")) {
+            return byRegion.get(decode(path.substring("region/".length())).toLowerCase(Locale.ROOT));
+        }
+        if (path.startsWith("alpha/")) {
+            JsonNode country = byCode.get(decode(path.substring("alpha/".length())).toUpperCase(Locale.ROOT));
+            return country == null ? null : fixtureOf(objectMapper.writeValueAsBytes(objectMapper.createArrayNode().add(country)));
+        }
+        if (path.equals("alpha") && query != null) {
+            ArrayNode countries = objectMapper.createArrayNode();
+            for (String parameter : query.split("&")) {
+                if (parameter.startsWith("codes=")) {
+                    for (String code : decode(parameter.substring("codes=".length())).split(",")) {
+                        JsonNode country = byCode.get(code.trim().toUpperCase(Locale.ROOT));
+                        if (country != null) {
+                            countries.add(country);
+                        }
+                    }
+                }
+            }
+            return countries.isEmpty() ? null : fixtureOf(objectMapper.writeValueAsBytes(countries));
+        }
+        return null;
+    }
+
+    private static void send(HttpExchange exchange, Fixture fixture) throws IOException {
+        exchange.getResponseHeaders().set("ETag", fixture.etag());
+        if (fixture.etag().equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            exchange.sendResponseHeaders(304, -1);
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        String acceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+        byte[] body = fixture.body();
+        if (acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip")) {
+            exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            body = fixture.gzipBody();
+        }
+        exchange.sendResponseHeaders(200, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private void pause() {
+        long nanos = latency.toNanos();
+        long jitterNanos = jitter.toNanos();
+        if (jitterNanos > 0) {
+            nanos += ThreadLocalRandom.current().nextLong(jitterNanos + 1);
+        }
+        if (nanos > 0) {
+            try {
+                Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static String decode(String value) {
+        return URLDecoder.decode(value, StandardCharsets.UTF_8);
+    }
+
+    private static Fixture fixtureOf(byte[] body) {
+        try {
+            ByteArrayOutputStream gzipBody = new ByteArrayOutputStream(body.length / 4);
+            try (OutputStream gzip = new GZIPOutputStream(gzipBody)) {
+                gzip.write(body);
+            }
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return new Fixture(body, gzipBody.toByteArray(), "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"");
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.acc.countries.loadtest;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class LoadDriverTest {
+
+    private StubRestCountries stub;
+
+    private HttpRequest request;
+
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = new StubRestCountries(LoadTest.readFixture());
+        request = HttpRequest.newBuilder(URI.create(stub.getBaseUrl() + "/alpha/DE")).GET().build();
+    }
+
+
+    @AfterEach
+    public void tearDown() {
+        stub.close();
+    }
+
+
+    @Test
+    void testSendsAtTheTargetRate() throws Exception {
+        stub.setLatency(Duration.ofMillis(20), Duration.ZERO);
+        LoadReport report = new LoadDriver(Duration.ofSeconds(5)).run("alpha", request, 200d, Duration.ofMillis(250), Duration.ofSeconds(1));
+
+        assertEquals(200, report.getSent());
+        assertEquals(0, report.getFailed());
+        assertEquals(200, report.getSucceeded());
+        assertEquals(250, stub.requestCount());
+        assertTrue(report.percentile(50d).compareTo(Duration.ofMillis(20)) >= 0);
+        assertTrue(report.percentile(99.9d).compareTo(report.percentile(50d)) >= 0);
+        assertTrue(report.getThroughput() > 100d, report.toString());
+    }
+
+
+    @Test
+    void testCountsFailedRequests() throws Exception {
+        stub.setErrorRate(1d, 500);
+        LoadReport report = new LoadDriver(Duration.ofSeconds(5)).run("alpha", request, 100d, Duration.ZERO, Duration.ofMillis(500));
+
+        assertEquals(50, report.getSent());
+        assertEquals(50, report.getFailed());
+        assertEquals(Duration.ZERO, report.percentile(99d));
+        assertEquals(1, LoadTest.check(List.of(report), ""));
+    }
+
+
+    @Test
+    void testPercentilesByNearestRank() {
+        long[] latencies = new long[1000];
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = latencies.length - i;
+        }
+        LoadReport report = new LoadReport("ranks", 1000d, 1000, 0, Duration.ofSeconds(1), latencies);
+
+        assertEquals(Duration.ofNanos(500), report.percentile(50d));
+        assertEquals(Duration.ofNanos(990), report.percentile(99d));
+        assertEquals(Duration.ofNanos(999), report.percentile(99.9d));
+        assertEquals(Duration.ofNanos(1000), report.max());
+        assertEquals(1000d, report.getThroughput(), 1e-9);
+    }
+}
@@ -0,0 +1,93 @@
+package com.acc.countries.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class StubRestCountriesTest {
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private StubRestCountries stub;
+
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = new StubRestCountries(LoadTest.readFixture());
+    }
+
+
+    @AfterEach
+    public void tearDown() {
+        stub.close();
+    }
+
+
+    @Test
+    void testServesRecordedFixtures() throws Exception {
+        HttpResponse<byte[]> all = get("/all", null);
+        assertEquals(200, all.statusCode());
+        assertArrayEquals(LoadTest.readFixture(), all.body());
+
+        JsonNode asia = objectMapper.readTree(get("/region/asia", null).body());
+        assertTrue(asia.size() > 0);
+        asia.forEach(country -> assertEquals("Asia", country.path("region").asText()));
+
+        JsonNode france = objectMapper.readTree(get("/alpha/fr", null).body());
+        assertEquals("FRA", france.get(0).path("cca3").asText());
+
+        JsonNode codes = objectMapper.readTree(get("/alpha?codes=DE,FRA,356,XXX", null).body());
+        assertEquals(3, codes.size());
+
+        assertEquals(404, get("/alpha/XXX", null).statusCode());
+        assertEquals(404, get("/region/atlantis", null).statusCode());
+    }
+
+
+    @Test
+    void testRevalidatesWithTheEtag() throws Exception {
+        String etag = get("/all", null).headers().firstValue("ETag").orElseThrow();
+
+        assertEquals(304, get("/all", etag).statusCode());
+        assertEquals(200, get("/all", "\"other\"").statusCode());
+    }
+
+
+    @Test
+    void testInjectsLatencyAndFailures() throws Exception {
+        stub.setErrorRate(1d, 503);
+        assertEquals(503, get("/all", null).statusCode());
+        assertEquals(1, stub.failedCount());
+
+        stub.setErrorRate(0d, 503);
+        stub.setLatency(Duration.ofMillis(200), Duration.ZERO);
+        long start = System.nanoTime();
+        assertEquals(200, get("/alpha/DE", null).statusCode());
+        assertTrue(System.nanoTime() - start >= Duration.ofMillis(200).toNanos());
+        assertEquals(2, stub.requestCount());
+
+        assertThrows(IllegalArgumentException.class, () -> stub.setErrorRate(2d, 503));
+    }
+
+
+    private HttpResponse<byte[]> get(String path, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(stub.getBaseUrl() + path)).GET();
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofByteArray());
+    }
+}
@@ -0,0 +1,72 @@
+package com.acc.countries.actuator;
+
+import com.acc.countries.config.HttpClientProperties;
+import com.acc.countries.utils.RestApiRequestHelper;
+import com.acc.countries.utils.UpstreamRequestStats;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/**
+ * The Actuator endpoint class UpstreamClientEndpoint
+ * Exposes the upstream http client settings, connection pool usage, circuit breaker and bulkhead state and latency stats under /actuator/upstreamclient.
+ */
+@Component
+@Endpoint(id = "upstreamclient")
+public class UpstreamClientEndpoint {
+    @Autowired
+    private HttpClientProperties httpClientProperties;
+
+    @Autowired
+    private UpstreamRequestStats upstreamRequestStats;
+
+    @Autowired
+    private ObjectProvider<PoolingHttpClientConnectionManager> upstreamConnectionManager;
+
+    @Autowired
+    private RestApiRequestHelper restApiRequestHelper;
+
+    /**
+     * Reads the upstream client stats.
+     *
+     * @return the stats by name
+     */
+    @ReadOperation
+    public Map<String, Object> upstreamClient() {
+        Map<String, Object> upstreamClient = new LinkedHashMap<>();
+        upstreamClient.put("engine", httpClientProperties.getEngine());
+        upstreamClient.put("maxConnectionsTotal", httpClientProperties.getMaxConnectionsTotal());
+        upstreamClient.put("maxConnectionsPerRoute", httpClientProperties.getMaxConnectionsPerRoute());
+        upstreamClient.put("connectTimeout", httpClientProperties.getConnectTimeout());
+        upstreamClient.put("readTimeout", httpClientProperties.getReadTimeout());
+
+        PoolingHttpClientConnectionManager connectionManager = upstreamConnectionManager.getIfAvailable();
+        if (connectionManager != null) {
+            PoolStats totalStats = connectionManager.getTotalStats();
+            Map<String, Object> pool = new LinkedHashMap<>();
+            pool.put("leased", totalStats.getLeased());
+            pool.put("available", totalStats.getAvailable());
+            pool.put("pending", totalStats.getPending());
+            pool.put("max", totalStats.getMax());
+            upstreamClient.put("pool", pool);
+        }
+
+        Map<String, Object> resilience = new LinkedHashMap<>();
+        resilience.put("circuitState", restApiRequestHelper.getCircuitState());
+        resilience.put("activeCalls", restApiRequestHelper.getActiveCallCount());
+        resilience.put("maxConcurrentCalls", httpClientProperties.getBulkhead().getMaxConcurrentCalls());
+        resilience.put("rejectedCalls", restApiRequestHelper.getRejectedCallCount());
+        upstreamClient.put("resilience", resilience);
+
+        upstreamClient.put("requests", upstreamRequestStats.snapshot());
+        return upstreamClient;
+    }
+}
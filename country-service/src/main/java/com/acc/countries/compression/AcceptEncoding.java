@@ -0,0 +1,56 @@
+package com.acc.countries.compression;
+
+import java.util.Locale;
+
+
+/**
+ * The Class AcceptEncoding
+ * Minimal {@code Accept-Encoding} negotiation, RFC 9110 section 12.5.3, for the encodings the service produces.
+ */
+public final class AcceptEncoding {
+    public static final String GZIP = "gzip";
+
+    private AcceptEncoding() {
+    }
+
+    /**
+     * Checks whether a client accepts gzip encoded responses.
+     * An explicit {@code gzip} entry wins over {@code *}, a quality of 0 refuses the encoding.
+     *
+     * @param acceptEncoding the Accept-Encoding header, may be null
+     * @return true if gzip is acceptable
+     */
+    public static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null || acceptEncoding.isBlank()) {
+            return false;
+        }
+
+        Boolean wildcard = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            boolean acceptable = qualityOf(parts) > 0d;
+            if (coding.equals(GZIP) || coding.equals("x-gzip")) {
+                return acceptable;
+            }
+            if (coding.equals("*")) {
+                wildcard = acceptable;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double qualityOf(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].trim();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException ex) {
+                    return 0d;
+                }
+            }
+        }
+        return 1d;
+    }
+}
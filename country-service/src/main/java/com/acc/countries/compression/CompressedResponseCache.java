@@ -0,0 +1,198 @@
+package com.acc.countries.compression;
+
+import com.acc.countries.events.CountrySnapshotChangedEvent;
+import com.acc.countries.utils.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * The Class CompressedResponseCache
+ * Holds the gzip encoding of each response representation for the current data version, so the same bytes are
+ * compressed once per version rather than once per request.
+ * A new data version starts an empty generation, the encodings of the previous version are kept aside with the hash of
+ * their uncompressed body and reused for an identical body, so a refresh changing a few countries only recompresses
+ * the representations that include them. The generation advances when {@link CountrySnapshotChangedEvent} is published,
+ * or on the first request of a newer version.
+ * The cache is bounded, once full further representations are compressed per request instead of being cached.
+ */
+@Slf4j
+@Component
+public class CompressedResponseCache {
+    @Value("${country.compression.max-cached:128}")
+    private int maxCached;
+
+    @Value("${country.compression.min-size:1024}")
+    private int minSize;
+
+    private volatile Generation generation = new Generation(0L, Map.of());
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder carriedOverCount = new LongAdder();
+
+    /**
+     * Checks whether a body is large enough to be worth compressing.
+     *
+     * @param identity the uncompressed body
+     * @return true if the body should be sent gzip encoded
+     */
+    public boolean isCompressible(byte[] identity) {
+        return identity.length >= minSize;
+    }
+
+    /**
+     * Gets the gzip encoding of a response representation.
+     *
+     * @param version        the data version the representation belongs to
+     * @param representation the key of the representation within the version, for example the endpoint and its parameters
+     * @param identity       the uncompressed body
+     * @return the gzip encoded body
+     */
+    public byte[] gzip(long version, Object representation, byte[] identity) {
+        Generation current = generation;
+        if (current.version != version) {
+            if (version < current.version) {
+                // A request still working on the previous version, do not evict the current one
+                missCount.increment();
+                return compress(identity);
+            }
+            current = advanceTo(version);
+        }
+
+        Encoding encoding = current.encodings.get(representation);
+        if (encoding != null) {
+            hitCount.increment();
+            return encoding.gzip;
+        }
+
+        long identityHash = ContentHash.of(identity);
+        Encoding inherited = current.inherited.get(representation);
+        if (inherited != null && inherited.identityHash == identityHash && inherited.identityLength == identity.length) {
+            hitCount.increment();
+            carriedOverCount.increment();
+            return cache(current, representation, inherited).gzip;
+        }
+        missCount.increment();
+        return cache(current, representation, new Encoding(identityHash, identity.length, compress(identity))).gzip;
+    }
+
+    /**
+     * Starts the generation of a new data version as soon as it is installed.
+     *
+     * @param event the CountrySnapshotChangedEvent
+     */
+    @EventListener
+    public void onSnapshotChanged(CountrySnapshotChangedEvent event) {
+        advanceTo(event.getVersion());
+        log.debug("Compressed responses now cached for version {}, {} country changes", event.getVersion(), event.getChanges().size());
+    }
+
+    private Encoding cache(Generation current, Object representation, Encoding encoding) {
+        if (current.encodings.size() < maxCached) {
+            Encoding existing = current.encodings.putIfAbsent(representation, encoding);
+            return existing == null ? encoding : existing;
+        }
+        log.debug("Compressed response cache is full, compressed {} without caching it", representation);
+        return encoding;
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of lookups which compressed the body.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of lookups served by an encoding of the previous version, its body being unchanged.
+     *
+     * @return the carried over count, included in the hit count
+     */
+    public long carriedOverCount() {
+        return carriedOverCount.sum();
+    }
+
+    /**
+     * Gets the number of encodings cached for the current version.
+     *
+     * @return the size
+     */
+    public int size() {
+        return generation.encodings.size();
+    }
+
+    private synchronized Generation advanceTo(long version) {
+        if (generation.version < version) {
+            generation = new Generation(version, generation.encodings);
+        }
+        return generation;
+    }
+
+    /**
+     * Compresses a body with the best gzip compression, the cost is paid once per version.
+     *
+     * @param identity the uncompressed body
+     * @return the gzip encoded body
+     */
+    static byte[] compress(byte[] identity) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, identity.length / 4));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 8192) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(identity);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to gzip a response", ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * A gzip encoding with the hash and length of the body it encodes
+     */
+    private record Encoding(long identityHash, int identityLength, byte[] gzip) {
+    }
+
+    /**
+     * The encodings cached for one data version, and those of the version before
+     */
+    private static final class Generation {
+        private final long version;
+
+        private final ConcurrentMap<Object, Encoding> encodings = new ConcurrentHashMap<>();
+
+        private final Map<Object, Encoding> inherited;
+
+        private Generation(long version, Map<Object, Encoding> inherited) {
+            this.version = version;
+            this.inherited = inherited;
+        }
+    }
+}
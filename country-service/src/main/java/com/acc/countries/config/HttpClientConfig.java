@@ -0,0 +1,159 @@
+package com.acc.countries.config;
+
+import com.acc.countries.utils.Bulkhead;
+import com.acc.countries.utils.CircuitBreaker;
+import com.acc.countries.utils.GzipDecodingInterceptor;
+import com.acc.countries.utils.UpstreamRequestStats;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClientBuilder;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestTemplate;
+
+import java.net.http.HttpClient;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The Configuration class HttpClientConfig
+ * Builds the RestTemplate used by {@link com.acc.countries.utils.RestApiRequestHelper} on top of a pooled,
+ * timeout-bounded client engine selected through {@link HttpClientProperties}.
+ */
+@Slf4j
+@Configuration
+@EnableConfigurationProperties(HttpClientProperties.class)
+public class HttpClientConfig {
+
+    /**
+     * Connection pool of the Apache engine, also the source of the pool stats.
+     *
+     * @param properties the http client properties
+     * @return the PoolingHttpClientConnectionManager
+     */
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "country.http-client.engine", havingValue = "apache", matchIfMissing = true)
+    public PoolingHttpClientConnectionManager upstreamConnectionManager(HttpClientProperties properties) {
+        ConnectionConfig connectionConfig = ConnectionConfig.custom()
+                .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                .setSocketTimeout(Timeout.of(properties.getReadTimeout()))
+                .build();
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnectionsTotal())
+                .setMaxConnPerRoute(properties.getMaxConnectionsPerRoute())
+                .setDefaultConnectionConfig(connectionConfig)
+                .build();
+    }
+
+    /**
+     * Executor for the blocking upstream work, virtual threads when enabled and supported by the runtime.
+     *
+     * @param properties the http client properties
+     * @return the ExecutorService
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService upstreamExecutor(HttpClientProperties properties) {
+        if (properties.isVirtualThreads()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException ex) {
+                log.warn("Virtual threads are not supported by Java {}, using platform threads", Runtime.version().feature());
+            }
+        }
+        return Executors.newCachedThreadPool();
+    }
+
+    /**
+     * Circuit breaker of the upstream API calls.
+     *
+     * @param properties the http client properties
+     * @return the CircuitBreaker
+     */
+    @Bean
+    public CircuitBreaker upstreamCircuitBreaker(HttpClientProperties properties) {
+        return new CircuitBreaker(properties.getCircuitBreaker().getFailureThreshold(), properties.getCircuitBreaker().getOpenDuration());
+    }
+
+    /**
+     * Bulkhead of the upstream API calls.
+     *
+     * @param properties the http client properties
+     * @return the Bulkhead
+     */
+    @Bean
+    public Bulkhead upstreamBulkhead(HttpClientProperties properties) {
+        return new Bulkhead(properties.getBulkhead().getMaxConcurrentCalls(), properties.getBulkhead().getMaxWait());
+    }
+
+    @Bean
+    public UpstreamRequestStats upstreamRequestStats() {
+        return new UpstreamRequestStats();
+    }
+
+    @Bean
+    public RestTemplate restTemplate(RestTemplateBuilder builder, HttpClientProperties properties, ObjectProvider<PoolingHttpClientConnectionManager> connectionManager,
+                                     ExecutorService upstreamExecutor, UpstreamRequestStats upstreamRequestStats) {
+        RestTemplateBuilder restTemplateBuilder = builder.additionalInterceptors(upstreamRequestStats);
+
+        if (properties.getEngine() == HttpClientProperties.Engine.JDK) {
+            ClientHttpRequestFactory requestFactory = jdkRequestFactory(properties, upstreamExecutor);
+            restTemplateBuilder = restTemplateBuilder.requestFactory(() -> requestFactory);
+            if (properties.isGzip()) {
+                restTemplateBuilder = restTemplateBuilder.additionalInterceptors(new GzipDecodingInterceptor());
+            }
+        } else {
+            ClientHttpRequestFactory requestFactory = apacheRequestFactory(properties, connectionManager.getObject());
+            restTemplateBuilder = restTemplateBuilder.requestFactory(() -> requestFactory);
+        }
+
+        log.info("Upstream http client engine {} with connect timeout {} and read timeout {}", properties.getEngine(), properties.getConnectTimeout(), properties.getReadTimeout());
+        return restTemplateBuilder.build();
+    }
+
+    private ClientHttpRequestFactory apacheRequestFactory(HttpClientProperties properties, PoolingHttpClientConnectionManager connectionManager) {
+        TimeValue keepAlive = TimeValue.of(properties.getKeepAlive());
+        HttpClientBuilder httpClientBuilder = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(properties.getConnectionRequestTimeout()))
+                        .setResponseTimeout(Timeout.of(properties.getReadTimeout()))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> keepAlive)
+                .evictExpiredConnections()
+                .evictIdleConnections(keepAlive);
+
+        // The Apache engine negotiates and decodes gzip and deflate on its own
+        if (!properties.isGzip()) {
+            httpClientBuilder.disableContentCompression();
+        }
+
+        CloseableHttpClient httpClient = httpClientBuilder.build();
+        return new HttpComponentsClientHttpRequestFactory(httpClient);
+    }
+
+    private ClientHttpRequestFactory jdkRequestFactory(HttpClientProperties properties, ExecutorService upstreamExecutor) {
+        HttpClient httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(properties.getConnectTimeout())
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .executor(upstreamExecutor)
+                .build();
+        JdkClientHttpRequestFactory requestFactory = new JdkClientHttpRequestFactory(httpClient, upstreamExecutor);
+        requestFactory.setReadTimeout(properties.getReadTimeout());
+        return requestFactory;
+    }
+}
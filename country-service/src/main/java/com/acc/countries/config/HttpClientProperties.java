@@ -0,0 +1,82 @@
+package com.acc.countries.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * The Properties class HttpClientProperties
+ * Settings of the HTTP client engine used for the upstream country API calls, bound from {@code country.http-client}.
+ */
+@Data
+@ConfigurationProperties(prefix = "country.http-client")
+public class HttpClientProperties {
+    /**
+     * The client engine, APACHE is a pooled HTTP/1.1 client, JDK is the HTTP/2 capable java.net.http client
+     */
+    private Engine engine = Engine.APACHE;
+
+    private int maxConnectionsTotal = 50;
+
+    private int maxConnectionsPerRoute = 20;
+
+    private Duration connectTimeout = Duration.ofSeconds(2);
+
+    private Duration readTimeout = Duration.ofSeconds(5);
+
+    /**
+     * Maximum time to wait for a pooled connection to become available
+     */
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Maximum time an idle connection is kept alive in the pool
+     */
+    private Duration keepAlive = Duration.ofSeconds(30);
+
+    private boolean gzip = true;
+
+    /**
+     * Runs the blocking upstream work on virtual threads, only effective on a Java 21+ runtime
+     */
+    private boolean virtualThreads = false;
+
+    private CircuitBreaker circuitBreaker = new CircuitBreaker();
+
+    private Bulkhead bulkhead = new Bulkhead();
+
+    /**
+     * The enum Engine
+     */
+    public enum Engine {
+        APACHE,
+        JDK
+    }
+
+    /**
+     * The Properties class CircuitBreaker, stops calling the upstream API after consecutive failures
+     */
+    @Data
+    public static class CircuitBreaker {
+        private int failureThreshold = 5;
+
+        /**
+         * Time the circuit stays open before a single trial call is let through
+         */
+        private Duration openDuration = Duration.ofSeconds(30);
+    }
+
+    /**
+     * The Properties class Bulkhead, caps the concurrent upstream calls of a replica
+     */
+    @Data
+    public static class Bulkhead {
+        private int maxConcurrentCalls = 10;
+
+        /**
+         * Maximum time a call waits for a free slot before it is rejected
+         */
+        private Duration maxWait = Duration.ofMillis(100);
+    }
+}
@@ -0,0 +1,83 @@
+package com.acc.countries.config;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.catalina.connector.Connector;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * The Configuration class InternalPortConfig
+ * Serves the replica to replica endpoints under {@code /internal/} on a port of their own, {@code country.peers.port},
+ * so they are only reachable through the headless {@code country-peers} Service and never through the public one.
+ * The internal port answers nothing else, the public port answers 404 to {@code /internal/} paths.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "country.peers.serve", havingValue = "true", matchIfMissing = true)
+public class InternalPortConfig {
+    public static final String INTERNAL_PATH = "/internal/";
+
+    @Value("${country.peers.port:8081}")
+    private int port;
+
+    private final Connector internalConnector = new Connector(TomcatServletWebServerFactory.DEFAULT_PROTOCOL);
+
+    /**
+     * Adds the internal port to the embedded Tomcat.
+     *
+     * @return the WebServerFactoryCustomizer
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> internalPortCustomizer() {
+        return factory -> {
+            internalConnector.setPort(port);
+            factory.addAdditionalTomcatConnectors(internalConnector);
+            log.info("Serving {} on port {}", INTERNAL_PATH, port);
+        };
+    }
+
+    /**
+     * Keeps the internal endpoints on the internal port and the other endpoints on the public port.
+     *
+     * @return the FilterRegistrationBean
+     */
+    @Bean
+    public FilterRegistrationBean<OncePerRequestFilter> internalPortFilter() {
+        FilterRegistrationBean<OncePerRequestFilter> registration = new FilterRegistrationBean<>(new OncePerRequestFilter() {
+            @Override
+            protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+                boolean internalPort = request.getLocalPort() == getInternalPort();
+                boolean internalPath = request.getRequestURI().startsWith(request.getContextPath() + INTERNAL_PATH);
+                if (internalPort != internalPath) {
+                    response.sendError(HttpServletResponse.SC_NOT_FOUND);
+                    return;
+                }
+                filterChain.doFilter(request, response);
+            }
+        });
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Gets the port the internal endpoints are served on, the bound port when configured as 0.
+     *
+     * @return the internal port, or -1 until the web server is started
+     */
+    public int getInternalPort() {
+        return internalConnector.getLocalPort();
+    }
+}
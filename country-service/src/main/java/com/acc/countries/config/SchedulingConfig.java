@@ -0,0 +1,15 @@
+package com.acc.countries.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * The Configuration class SchedulingConfig
+ * Enables the scheduled background jobs, such as the country snapshot refresh.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "country.snapshot.scheduling-enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
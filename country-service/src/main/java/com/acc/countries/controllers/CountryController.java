@@ -1,17 +1,55 @@
 package com.acc.countries.controllers;
 
-import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.compression.AcceptEncoding;
+import com.acc.countries.compression.CompressedResponseCache;
+import com.acc.countries.payload.BorderCountResponseDto;
+import com.acc.countries.payload.CountryPage;
+import com.acc.countries.payload.CountryStatisticsResponseDto;
+import com.acc.countries.payload.DataVersion;
+import com.acc.countries.payload.LandComponentResponseDto;
+import com.acc.countries.payload.LandRouteResponseDto;
+import com.acc.countries.payload.LandlockedDepthResponseDto;
+import com.acc.countries.payload.NearestCountryResponseDto;
+import com.acc.countries.payload.SearchResultResponseDto;
 import com.acc.countries.services.CountryService;
+import com.acc.countries.streaming.CountryStream;
+import com.acc.countries.streaming.StreamFormat;
+import com.acc.countries.utils.ContentHash;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.function.Supplier;
 
 /**
  * The Controller class CountryController
+ * Responses carry a strong ETag derived from the data version and the request parameters, plus Last-Modified,
+ * so polling clients revalidate with If-None-Match and get an empty 304 until the data changes.
+ * The JSON bodies are sent gzip encoded to clients accepting it, compressed once per data version.
+ * The data age is sent as X-Data-Age, data the upstream API could not confirm lately is still served but flagged
+ * with X-Data-Stale and a Warning header.
  */
 @Slf4j
 @RestController
@@ -20,30 +58,470 @@ public class CountryController {
     @Autowired
     private CountryService countryService;
 
+    @Autowired
+    private CompressedResponseCache compressedResponseCache;
+
+    @Value("${country.http-cache.max-age:PT1M}")
+    private Duration cacheMaxAge;
+
+    @Value("${country.streaming.flush-every:16}")
+    private int streamFlushEvery;
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    public static final String TOTAL_COUNT_HEADER = "X-Total-Count";
+
+    public static final String DATA_AGE_HEADER = "X-Data-Age";
+
+    public static final String DATA_STALE_HEADER = "X-Data-Stale";
+
+    private static final String STALE_WARNING = "110 - \"Response is Stale\"";
+
     /**
      * This method fetches the sorted countries by population density.
+     * The response body is the JSON precomputed for the current data snapshot, written as is.
+     * With a limit the body is one page, the next page is linked through the X-Next-Cursor and Link headers.
      *
+     * @param fields the comma separated field paths to keep, for example name.common,population
+     * @param limit  the maximum number of countries in the page, all countries if absent
+     * @param offset the rank of the first country in the page
+     * @param cursor the cursor of the next page returned by the previous page
      * @return the ResponseEntity
      */
     @GetMapping("/getByPopulationDensity")
-    public ResponseEntity<List<CountryResponseDto>> getSortedCountriesByPopulationDensity() {
+    public ResponseEntity<byte[]> getSortedCountriesByPopulationDensity(@RequestParam(required = false) String fields,
+                                                                        @RequestParam(required = false) Integer limit,
+                                                                        @RequestParam(defaultValue = "0") int offset,
+                                                                        @RequestParam(required = false) String cursor,
+                                                                        WebRequest webRequest) {
         log.info("Inside the getSortedCountriesByPopulationDensity method of CountryController");
-        List<CountryResponseDto> countryResponseDtoList = countryService.getSortedCountriesByPopulationDensity();
-        log.debug("Retrieved sorted list of countries by population density: {}", countryResponseDtoList);
-        return ResponseEntity.ok(countryResponseDtoList);
+        List<Object> representation = Arrays.asList("getByPopulationDensity", fields, limit, offset, cursor);
+        boolean gzip = acceptsGzip(webRequest);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, gzip)) {
+            return notModified(true);
+        }
+
+        CountryPage countryPage = countryService.getSortedCountriesByPopulationDensityPage(fields, limit, offset, cursor);
+        revalidate(webRequest, dataVersion, countryPage.getDataVersion(), representation, gzip);
+        log.debug("Retrieved sorted list of countries by population density: {} bytes", countryPage.getJson().length);
+
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl())
+                .varyBy(HttpHeaders.ACCEPT_ENCODING)
+                .header(TOTAL_COUNT_HEADER, String.valueOf(countryPage.getTotal()));
+        if (countryPage.getNextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("offset")
+                    .replaceQueryParam("cursor", countryPage.getNextCursor())
+                    .build().toUriString();
+            response.header(NEXT_CURSOR_HEADER, countryPage.getNextCursor())
+                    .header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return encodedBody(response, countryPage.getVersion(), representation,
+                encodesGzip(webRequest, countryPage.getDataVersion(), representation, gzip, countryPage.getJson()), countryPage.getJson());
+    }
+
+    /**
+     * This method streams the sorted countries by population density, one country at a time in rank order.
+     * Clients accepting text/event-stream get one Server-Sent Event per country, the others get NDJSON.
+     * The body is written from the MVC async executor, so the request thread is released right away.
+     *
+     * @param fields the comma separated field paths to keep
+     * @return the ResponseEntity
+     */
+    @GetMapping(value = "/getByPopulationDensity/stream", produces = {MediaType.APPLICATION_NDJSON_VALUE, MediaType.TEXT_EVENT_STREAM_VALUE})
+    public ResponseEntity<StreamingResponseBody> streamSortedCountriesByPopulationDensity(@RequestParam(required = false) String fields,
+                                                                                          WebRequest webRequest) {
+        log.info("Inside the streamSortedCountriesByPopulationDensity method of CountryController");
+        StreamFormat format = StreamFormat.of(webRequest.getHeader(HttpHeaders.ACCEPT));
+        List<Object> representation = Arrays.asList("getByPopulationDensity/stream", fields, format);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        CountryStream countryStream = countryService.getSortedCountriesByPopulationDensityStream(fields);
+        revalidate(webRequest, dataVersion, countryStream.getDataVersion(), representation, false);
+
+        log.debug("Streaming {} countries sorted by population density as {}", countryStream.size(), format);
+        return ResponseEntity.ok().contentType(format.getMediaType())
+                .cacheControl(cacheControl())
+                .header(TOTAL_COUNT_HEADER, String.valueOf(countryStream.size()))
+                .body(out -> countryStream.writeTo(out, format, streamFlushEvery));
     }
 
     /**
      * This method fetches the most bordering asian country with different region borders.
      *
+     * @param fields the comma separated field paths to keep, for example name.common,borders
      * @return the ResponseEntity
      */
     @GetMapping("/getAsianCountryWithMostNonAsianBorders")
-    public ResponseEntity<CountryResponseDto> getAsianCountryWithMostNonAsianBorders() {
+    public ResponseEntity<byte[]> getAsianCountryWithMostNonAsianBorders(@RequestParam(required = false) String fields, WebRequest webRequest) {
         log.info("Inside the getAsianCountryWithMostNonAsianBorders method of CountryController");
-        CountryResponseDto countryResponseDto = countryService.getAsianCountryWithMostNonAsianBorders();
-        log.debug("Retrieved the Asian Country with most non-asian border countries: {}", countryResponseDto);
-        return ResponseEntity.ok(countryResponseDto);
+        List<Object> representation = Arrays.asList("getAsianCountryWithMostNonAsianBorders", fields);
+        boolean gzip = acceptsGzip(webRequest);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, gzip)) {
+            return notModified(true);
+        }
+
+        Versioned<byte[]> countryJson = buildAtVersion(webRequest, dataVersion, representation, gzip, () -> countryService.getAsianCountryWithMostNonAsianBordersJson(fields));
+        log.debug("Retrieved the Asian Country with most non-asian border countries: {} bytes", countryJson.body().length);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).cacheControl(cacheControl()).varyBy(HttpHeaders.ACCEPT_ENCODING);
+        return encodedBody(response, countryJson.dataVersion().getVersion(), representation,
+                encodesGzip(webRequest, countryJson.dataVersion(), representation, gzip, countryJson.body()), countryJson.body());
+    }
+
+    /**
+     * This method fetches the countries of a region with the most borders to countries of other regions.
+     *
+     * @param region the region name
+     * @param top    the maximum number of countries
+     * @return the ResponseEntity
+     */
+    @GetMapping("/regions/{region}/most-foreign-borders")
+    public ResponseEntity<List<BorderCountResponseDto>> getCountriesWithMostForeignBorders(@PathVariable String region, @RequestParam(defaultValue = "10") int top, WebRequest webRequest) {
+        log.info("Inside the getCountriesWithMostForeignBorders method of CountryController");
+        List<Object> representation = Arrays.asList("most-foreign-borders", region.toLowerCase(Locale.ROOT), top);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        List<BorderCountResponseDto> borderCountResponseDtoList = buildAtVersion(webRequest, dataVersion, representation, false, () -> countryService.getCountriesWithMostForeignBorders(region, top)).body();
+        log.debug("Retrieved countries of region {} with most foreign borders: {}", region, borderCountResponseDtoList);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(borderCountResponseDtoList);
+    }
+
+    /**
+     * This method fetches population, area and density statistics of the countries, grouped by region or subregion.
+     *
+     * @param groupBy     region, subregion or none
+     * @param landlocked  keeps only landlocked (true) or coastal (false) countries
+     * @param unMember    keeps only UN members (true) or non members (false)
+     * @param percentiles the comma separated percentiles to compute
+     * @return the ResponseEntity
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<CountryStatisticsResponseDto> getCountryStatistics(@RequestParam(defaultValue = "region") String groupBy,
+                                                                             @RequestParam(required = false) Boolean landlocked,
+                                                                             @RequestParam(required = false) Boolean unMember,
+                                                                             @RequestParam(defaultValue = "25,75,90,99") String percentiles,
+                                                                             WebRequest webRequest) {
+        log.info("Inside the getCountryStatistics method of CountryController");
+        List<Object> representation = Arrays.asList("stats", groupBy.toLowerCase(Locale.ROOT), landlocked, unMember, percentiles);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        CountryStatisticsResponseDto countryStatisticsResponseDto = buildAtVersion(webRequest, dataVersion, representation, false, () -> countryService.getCountryStatistics(groupBy, landlocked, unMember, percentiles)).body();
+        log.debug("Retrieved country statistics: {}", countryStatisticsResponseDto);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(countryStatisticsResponseDto);
+    }
+
+    /**
+     * This method fetches the countries closest to a point, the k nearest or all within a radius.
+     *
+     * @param lat      the latitude in degrees
+     * @param lng      the longitude in degrees
+     * @param k        the maximum number of countries
+     * @param radiusKm the great-circle radius in kilometres, for a radius search
+     * @param by       country to measure to the country position, capital to measure to the capital
+     * @return the ResponseEntity
+     */
+    @GetMapping("/nearest")
+    public ResponseEntity<List<NearestCountryResponseDto>> getNearestCountries(@RequestParam double lat,
+                                                                               @RequestParam double lng,
+                                                                               @RequestParam(required = false) Integer k,
+                                                                               @RequestParam(required = false) Double radiusKm,
+                                                                               @RequestParam(defaultValue = "country") String by,
+                                                                               WebRequest webRequest) {
+        log.info("Inside the getNearestCountries method of CountryController");
+        List<Object> representation = Arrays.asList("nearest", lat, lng, k, radiusKm, by.toLowerCase(Locale.ROOT));
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        List<NearestCountryResponseDto> nearestCountryResponseDtoList = buildAtVersion(webRequest, dataVersion, representation, false, () -> countryService.getNearestCountries(lat, lng, k, radiusKm, by)).body();
+        log.debug("Retrieved countries nearest to {},{}: {}", lat, lng, nearestCountryResponseDtoList);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(nearestCountryResponseDtoList);
+    }
+
+    /**
+     * This method searches the countries by name, alternative spelling or translation, for autocompletion.
+     *
+     * @param q     the words the names must start with, case and accents are ignored
+     * @param limit the maximum number of countries
+     * @return the ResponseEntity
+     */
+    @GetMapping("/search")
+    public ResponseEntity<List<SearchResultResponseDto>> searchCountries(@RequestParam String q,
+                                                                         @RequestParam(required = false) Integer limit,
+                                                                         WebRequest webRequest) {
+        log.info("Inside the searchCountries method of CountryController");
+        List<Object> representation = Arrays.asList("search", q, limit);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        List<SearchResultResponseDto> searchResultResponseDtoList = buildAtVersion(webRequest, dataVersion, representation, false, () -> countryService.searchCountries(q, limit)).body();
+        log.debug("Retrieved countries matching {}: {}", q, searchResultResponseDtoList);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(searchResultResponseDtoList);
+    }
+
+    /**
+     * This method fetches the shortest land route between two countries, crossing the fewest borders.
+     *
+     * @param from the cca2, cca3, ccn3 or cioc code of the first country
+     * @param to   the cca2, cca3, ccn3 or cioc code of the second country
+     * @return the ResponseEntity
+     */
+    @GetMapping("/route")
+    public ResponseEntity<LandRouteResponseDto> getLandRoute(@RequestParam String from, @RequestParam String to, WebRequest webRequest) {
+        log.info("Inside the getLandRoute method of CountryController");
+        List<Object> representation = Arrays.asList("route", from.toUpperCase(Locale.ROOT), to.toUpperCase(Locale.ROOT));
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        LandRouteResponseDto landRouteResponseDto = buildAtVersion(webRequest, dataVersion, representation, false, () -> countryService.getLandRoute(from, to)).body();
+        log.debug("Retrieved land route from {} to {}: {}", from, to, landRouteResponseDto);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(landRouteResponseDto);
+    }
+
+    /**
+     * This method fetches the groups of countries connected by land.
+     *
+     * @param minSize the minimum number of countries of a group
+     * @return the ResponseEntity
+     */
+    @GetMapping("/components")
+    public ResponseEntity<List<LandComponentResponseDto>> getLandComponents(@RequestParam(defaultValue = "2") int minSize, WebRequest webRequest) {
+        log.info("Inside the getLandComponents method of CountryController");
+        List<Object> representation = Arrays.asList("components", minSize);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        List<LandComponentResponseDto> landComponentResponseDtoList = buildAtVersion(webRequest, dataVersion, representation, false, () -> countryService.getLandComponents(minSize)).body();
+        log.debug("Retrieved {} land components", landComponentResponseDtoList.size());
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(landComponentResponseDtoList);
+    }
+
+    /**
+     * This method fetches the landlocked countries with the most borders to cross to reach a coast.
+     *
+     * @param top the maximum number of countries
+     * @return the ResponseEntity
+     */
+    @GetMapping("/landlocked-depth")
+    public ResponseEntity<List<LandlockedDepthResponseDto>> getLandlockedDepths(@RequestParam(defaultValue = "10") int top, WebRequest webRequest) {
+        log.info("Inside the getLandlockedDepths method of CountryController");
+        List<Object> representation = Arrays.asList("landlocked-depth", top);
+        DataVersion dataVersion = countryService.getDataVersion();
+        if (isNotModified(webRequest, dataVersion, representation, false)) {
+            return notModified(false);
+        }
+
+        List<LandlockedDepthResponseDto> landlockedDepthResponseDtoList = buildAtVersion(webRequest, dataVersion, representation, false, () -> countryService.getLandlockedDepths(top)).body();
+        log.debug("Retrieved landlocked depths: {}", landlockedDepthResponseDtoList);
+        return ResponseEntity.ok().cacheControl(cacheControl()).body(landlockedDepthResponseDtoList);
+    }
+
+    /**
+     * This method fetches many countries by cca2, cca3, ccn3 or cioc code in one call.
+     * Codes are resolved from the current snapshot, the misses only are fetched from the upstream API, in one call.
+     *
+     * @param codes  the codes as a JSON array
+     * @param fields the comma separated field paths to keep
+     * @return the ResponseEntity
+     */
+    @PostMapping("/batch")
+    public ResponseEntity<byte[]> getCountriesByCodes(@RequestBody List<String> codes, @RequestParam(required = false) String fields) {
+        log.info("Inside the getCountriesByCodes method of CountryController");
+        byte[] batchJson = countryService.getCountriesByCodesJson(codes, fields);
+        log.debug("Retrieved countries of {} codes: {} bytes", codes.size(), batchJson.length);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(batchJson);
+    }
+
+    /**
+     * This method fetches many countries by code in one call, the codes being given as a comma separated list.
+     *
+     * @param codes  the comma separated codes
+     * @param fields the comma separated field paths to keep
+     * @return the ResponseEntity
+     */
+    @GetMapping(value = {"", "/batch"}, params = "codes")
+    public ResponseEntity<byte[]> getCountriesByCodes(@RequestParam String codes, @RequestParam(required = false) String fields) {
+        return getCountriesByCodes(Arrays.asList(codes.split(",", -1)), fields);
+    }
+
+    /**
+     * This method checks the request validators against the data version.
+     * The ETag and Last-Modified headers are set on the response in both cases.
+     * Before the first data load no validator is sent, so the request falls through to the service.
+     *
+     * @param webRequest     the web request
+     * @param dataVersion    the data version
+     * @param representation the endpoint and the parameters selecting the representation
+     * @param gzip           whether the representation is gzip encoded, encodings have distinct strong ETags
+     * @return true if the client copy is still current and a 304 must be sent
+     */
+    private boolean isNotModified(WebRequest webRequest, DataVersion dataVersion, List<Object> representation, boolean gzip) {
+        if (dataVersion.isEmpty()) {
+            return false;
+        }
+        addFreshnessHeaders(webRequest, dataVersion);
+        return webRequest.checkNotModified(etagOf(dataVersion, representation, gzip), dataVersion.getFetchedAt().toEpochMilli());
+    }
+
+    /**
+     * This method builds the strong ETag of a representation: the data version, the hash of the parameters and the encoding.
+     */
+    private static String etagOf(DataVersion dataVersion, List<Object> representation, boolean gzip) {
+        return "\"" + Long.toHexString(dataVersion.getVersion()) + "-" + Long.toHexString(representationHash(representation)) + (gzip ? "-gzip" : "") + "\"";
+    }
+
+    /**
+     * This method hashes the parameters of a representation with the 64-bit {@link ContentHash}.
+     * Every parameter is written with its length as prefix and null as a distinct marker, so two different parameter
+     * lists never share an encoding and only a 64-bit collision could make them share an ETag.
+     */
+    static long representationHash(List<Object> representation) {
+        StringBuilder encoded = new StringBuilder();
+        for (Object parameter : representation) {
+            if (parameter == null) {
+                encoded.append('-');
+            } else {
+                String value = parameter.toString();
+                encoded.append(value.length()).append(':').append(value);
+            }
+        }
+        return ContentHash.of(encoded.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * This method builds a body from the data version the conditional check was made against.
+     * Snapshot versions only grow and every service call reads the snapshot once, so when the version read after the
+     * body is built is still the version read before, the body was built from it. Otherwise a refresh was installed in
+     * between and the body is built again, until both reads agree.
+     *
+     * @param webRequest     the web request
+     * @param checked        the data version the conditional check was made against
+     * @param representation the endpoint and the parameters selecting the representation
+     * @param gzip           whether the representation is gzip encoded
+     * @param builder        builds the body from the current snapshot
+     * @return the body with the data version it was built from
+     */
+    private <T> Versioned<T> buildAtVersion(WebRequest webRequest, DataVersion checked, List<Object> representation, boolean gzip, Supplier<T> builder) {
+        DataVersion before = checked;
+        while (true) {
+            T body = builder.get();
+            DataVersion after = countryService.getDataVersion();
+            if (after.getVersion() == before.getVersion()) {
+                revalidate(webRequest, checked, before, representation, gzip);
+                return new Versioned<>(body, before);
+            }
+            before = after;
+        }
+    }
+
+    /**
+     * This method replaces the validators set by the conditional check when the body was built from another data version,
+     * a refresh having been installed in between or a cursor page being read from the previous snapshot.
+     */
+    private void revalidate(WebRequest webRequest, DataVersion checked, DataVersion built, List<Object> representation, boolean gzip) {
+        HttpServletResponse response = nativeResponse(webRequest);
+        if (response == null || built.isEmpty() || built.getVersion() == checked.getVersion()) {
+            return;
+        }
+        response.setHeader(HttpHeaders.ETAG, etagOf(built, representation, gzip));
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, built.getFetchedAt().toEpochMilli());
+        addFreshnessHeaders(webRequest, built);
+    }
+
+    /**
+     * This method sets the age of the data, in seconds since the upstream API last confirmed it, and flags stale data.
+     */
+    private static void addFreshnessHeaders(WebRequest webRequest, DataVersion dataVersion) {
+        HttpServletResponse response = nativeResponse(webRequest);
+        if (response == null) {
+            return;
+        }
+        long age = Math.max(0L, Duration.between(dataVersion.getVerifiedAt(), Instant.now()).toSeconds());
+        response.setHeader(DATA_AGE_HEADER, String.valueOf(age));
+        if (dataVersion.isStale()) {
+            response.setHeader(DATA_STALE_HEADER, "true");
+            response.setHeader(HttpHeaders.WARNING, STALE_WARNING);
+        }
+    }
+
+    private static HttpServletResponse nativeResponse(WebRequest webRequest) {
+        return webRequest instanceof NativeWebRequest nativeWebRequest ? nativeWebRequest.getNativeResponse(HttpServletResponse.class) : null;
+    }
+
+    private <T> ResponseEntity<T> notModified(boolean negotiated) {
+        log.debug("Client copy is current, answering 304");
+        ResponseEntity.BodyBuilder response = ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl());
+        if (negotiated) {
+            response.varyBy(HttpHeaders.ACCEPT_ENCODING);
+        }
+        return response.build();
+    }
+
+    /**
+     * This method decides once whether a body is sent gzip encoded: the client accepts gzip and the body is large enough.
+     * The conditional check tagged the response with the ETag of the accepted encoding, it is replaced by the identity
+     * ETag when the body is too small to be compressed, so the "-gzip" ETag only ever goes with a gzip encoded body.
+     *
+     * @param webRequest     the web request
+     * @param built          the data version the body was built from
+     * @param representation the endpoint and the parameters selecting the representation
+     * @param acceptsGzip    whether the client accepts gzip
+     * @param identity       the uncompressed body
+     * @return true if the body must be sent gzip encoded
+     */
+    private boolean encodesGzip(WebRequest webRequest, DataVersion built, List<Object> representation, boolean acceptsGzip, byte[] identity) {
+        if (!acceptsGzip || compressedResponseCache.isCompressible(identity)) {
+            return acceptsGzip;
+        }
+        HttpServletResponse response = nativeResponse(webRequest);
+        if (response != null && !built.isEmpty()) {
+            response.setHeader(HttpHeaders.ETAG, etagOf(built, representation, false));
+        }
+        return false;
+    }
+
+    /**
+     * This method sets the body in the decided encoding, the gzip encoding is reused for the whole data version.
+     */
+    private ResponseEntity<byte[]> encodedBody(ResponseEntity.BodyBuilder response, long version, List<Object> representation, boolean gzip, byte[] identity) {
+        if (!gzip) {
+            return response.body(identity);
+        }
+        return response.header(HttpHeaders.CONTENT_ENCODING, AcceptEncoding.GZIP)
+                .body(compressedResponseCache.gzip(version, representation, identity));
+    }
+
+    private static boolean acceptsGzip(WebRequest webRequest) {
+        return AcceptEncoding.acceptsGzip(webRequest.getHeader(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    private CacheControl cacheControl() {
+        return CacheControl.maxAge(cacheMaxAge).cachePublic().mustRevalidate();
+    }
+
+    /**
+     * A response body with the data version it was built from
+     */
+    private record Versioned<T>(T body, DataVersion dataVersion) {
     }
 
 }
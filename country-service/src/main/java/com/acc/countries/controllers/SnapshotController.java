@@ -0,0 +1,85 @@
+package com.acc.countries.controllers;
+
+import com.acc.countries.config.InternalPortConfig;
+import com.acc.countries.snapshot.CountrySnapshot;
+import com.acc.countries.snapshot.CountrySnapshotFile;
+import com.acc.countries.snapshot.CountrySnapshotStore;
+import com.acc.countries.snapshot.PeerSnapshotClient;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * The Controller class SnapshotController
+ * Serves the current snapshot to the other replicas in the {@link CountrySnapshotFile} layout, see
+ * {@link PeerSnapshotClient}. The endpoint is only served on the internal port of {@link InternalPortConfig} and can
+ * be switched off with {@code country.peers.serve}. The snapshot is encoded once per version.
+ */
+@Slf4j
+@RestController
+@ConditionalOnProperty(name = "country.peers.serve", havingValue = "true", matchIfMissing = true)
+public class SnapshotController {
+    @Autowired
+    private CountrySnapshotStore countrySnapshotStore;
+
+    private final AtomicReference<EncodedSnapshot> encodedSnapshot = new AtomicReference<>();
+
+    /**
+     * This method serves the current snapshot with its version and last upstream verification time.
+     * A replica holding nothing newer than the given version answers an empty 304, so peers poll cheaply. The 304 still
+     * carries the last upstream verification time, a peer at the same version then knows the data was recently confirmed.
+     *
+     * @param newerThan the snapshot version already held by the caller
+     * @return the ResponseEntity
+     */
+    @GetMapping(value = PeerSnapshotClient.SNAPSHOT_PATH, produces = "application/octet-stream")
+    public ResponseEntity<byte[]> getSnapshot(@RequestParam(defaultValue = "0") long newerThan) {
+        log.info("Inside the getSnapshot method of SnapshotController");
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+        if (snapshot.isEmpty()) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(PeerSnapshotClient.SNAPSHOT_VERSION_HEADER, String.valueOf(snapshot.getVersion()))
+                    .build();
+        }
+        if (snapshot.getVersion() <= newerThan) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .header(PeerSnapshotClient.SNAPSHOT_VERSION_HEADER, String.valueOf(snapshot.getVersion()))
+                    .header(PeerSnapshotClient.SNAPSHOT_VERIFIED_AT_HEADER, countrySnapshotStore.getLastVerifiedAt().toString())
+                    .build();
+        }
+
+        byte[] body = encodedBodyOf(snapshot);
+        log.debug("Serving country snapshot version {}: {} bytes", snapshot.getVersion(), body.length);
+        return ResponseEntity.ok().contentType(PeerSnapshotClient.SNAPSHOT_MEDIA_TYPE)
+                .cacheControl(CacheControl.noStore())
+                .header(PeerSnapshotClient.SNAPSHOT_VERSION_HEADER, String.valueOf(snapshot.getVersion()))
+                .header(PeerSnapshotClient.SNAPSHOT_VERIFIED_AT_HEADER, countrySnapshotStore.getLastVerifiedAt().toString())
+                .body(body);
+    }
+
+    /**
+     * This method encodes a snapshot version once, the bytes are shared by every peer asking for it.
+     */
+    private byte[] encodedBodyOf(CountrySnapshot snapshot) {
+        EncodedSnapshot encoded = encodedSnapshot.get();
+        if (encoded == null || encoded.version() != snapshot.getVersion()) {
+            encoded = new EncodedSnapshot(snapshot.getVersion(), CountrySnapshotFile.encode(snapshot));
+            encodedSnapshot.set(encoded);
+        }
+        return encoded.body();
+    }
+
+    /**
+     * A snapshot version in the {@link CountrySnapshotFile} layout
+     */
+    private record EncodedSnapshot(long version, byte[] body) {
+    }
+}
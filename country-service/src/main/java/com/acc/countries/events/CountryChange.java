@@ -0,0 +1,54 @@
+package com.acc.countries.events;
+
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+
+/**
+ * The Class CountryChange
+ * One country added, removed or changed between two snapshots, identified by its cca3 code.
+ * A changed country lists the top-level fields whose values differ, for example {@code population} or {@code borders}.
+ */
+@Getter
+@ToString
+@EqualsAndHashCode
+@AllArgsConstructor
+public final class CountryChange {
+    /**
+     * The Enum Type
+     */
+    public enum Type {
+        ADDED, REMOVED, CHANGED
+    }
+
+    private final Type type;
+
+    private final String cca3;
+
+    /**
+     * The changed top-level fields, every field of the country when it is added or removed
+     */
+    private final Set<String> fields;
+
+    /**
+     * Checks whether the change touches any of the given fields.
+     *
+     * @param candidates the top-level field names
+     * @return true if the country was added or removed, or one of the fields changed
+     */
+    public boolean affects(Set<String> candidates) {
+        if (type != Type.CHANGED) {
+            return true;
+        }
+        for (String field : fields) {
+            if (candidates.contains(field)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
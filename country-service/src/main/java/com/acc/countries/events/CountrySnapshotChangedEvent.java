@@ -0,0 +1,59 @@
+package com.acc.countries.events;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * The Class CountrySnapshotChangedEvent
+ * Published once a refresh installed a new snapshot, with the countries that differ from the snapshot it replaced,
+ * so caches invalidate only what depends on the changed countries and fields.
+ * The first load of a process lists every country as added.
+ */
+@Getter
+@ToString
+@AllArgsConstructor
+public class CountrySnapshotChangedEvent {
+    /**
+     * Version of the replaced snapshot, 0 if there was none
+     */
+    private final long previousVersion;
+
+    private final long version;
+
+    private final List<CountryChange> changes;
+
+    /**
+     * Checks whether the change touches any of the given fields of any country.
+     *
+     * @param fields the top-level field names
+     * @return true if a country was added or removed, or one of the fields changed
+     */
+    public boolean affects(Set<String> fields) {
+        for (CountryChange change : changes) {
+            if (change.affects(fields)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether a country was added, removed or changed.
+     *
+     * @param cca3 the cca3 code
+     * @return true if the country is part of the changes
+     */
+    public boolean affects(String cca3) {
+        for (CountryChange change : changes) {
+            if (change.getCca3().equals(cca3)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -1,11 +1,15 @@
 package com.acc.countries.exceptions;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.ServletRequestBindingException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.method.annotation.MethodArgumentTypeMismatchException;
 
 import java.net.URI;
 
@@ -29,6 +33,75 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(problemDetail, HttpStatus.NOT_FOUND);
     }
 
+    /**
+     * Handles the StaleCursorException globally
+     *
+     * @param ex the StaleCursorException ex
+     * @return the ResponseEntity
+     */
+    @ExceptionHandler(StaleCursorException.class)
+    public ResponseEntity<ProblemDetail> handleStaleCursorException(StaleCursorException ex) {
+        log.error("Stale cursor", ex);
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.GONE, ex.getMessage());
+        problemDetail.setDetail("The data changed since this page was requested, please start again from the first page");
+        return new ResponseEntity<>(problemDetail, HttpStatus.GONE);
+    }
+
+    /**
+     * Handles invalid request parameters globally
+     *
+     * @param ex the IllegalArgumentException ex
+     * @return the ResponseEntity
+     */
+    @ExceptionHandler(IllegalArgumentException.class)
+    public ResponseEntity<ProblemDetail> handleIllegalArgumentException(IllegalArgumentException ex) {
+        log.error("Invalid request", ex);
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return new ResponseEntity<>(problemDetail, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles missing and malformed request parameters globally
+     *
+     * @param ex the ServletRequestBindingException or MethodArgumentTypeMismatchException ex
+     * @return the ResponseEntity
+     */
+    @ExceptionHandler({ServletRequestBindingException.class, MethodArgumentTypeMismatchException.class})
+    public ResponseEntity<ProblemDetail> handleInvalidRequestParameter(Exception ex) {
+        log.error("Invalid request parameter", ex);
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_REQUEST, ex.getMessage());
+        return new ResponseEntity<>(problemDetail, HttpStatus.BAD_REQUEST);
+    }
+
+    /**
+     * Handles the UpstreamUnavailableException globally, the upstream API is not called until Retry-After
+     *
+     * @param ex the UpstreamUnavailableException ex
+     * @return the ResponseEntity
+     */
+    @ExceptionHandler(UpstreamUnavailableException.class)
+    public ResponseEntity<ProblemDetail> handleUpstreamUnavailableException(UpstreamUnavailableException ex) {
+        log.error("Upstream unavailable: {}", ex.getMessage());
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+        problemDetail.setDetail("The country data source is unavailable. Please try again later.");
+        long retryAfter = Math.max(1L, (ex.getRetryAfter().toMillis() + 999L) / 1000L);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter)).body(problemDetail);
+    }
+
+    /**
+     * Handles the upstream API failures globally
+     *
+     * @param ex the RestClientException ex
+     * @return the ResponseEntity
+     */
+    @ExceptionHandler(RestClientException.class)
+    public ResponseEntity<ProblemDetail> handleRestClientException(RestClientException ex) {
+        log.error("Upstream call failed", ex);
+        ProblemDetail problemDetail = ProblemDetail.forStatusAndDetail(HttpStatus.BAD_GATEWAY, ex.getMessage());
+        problemDetail.setDetail("The country data source failed. Please try again later.");
+        return new ResponseEntity<>(problemDetail, HttpStatus.BAD_GATEWAY);
+    }
+
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ProblemDetail> handleGlobalException(Exception ex) {
         log.error("An unexpected error occurred", ex);
@@ -0,0 +1,16 @@
+package com.acc.countries.exceptions;
+
+/**
+ * The Exception class StaleCursorException
+ * Thrown when a paging cursor refers to a data version that is no longer held.
+ */
+public class StaleCursorException extends RuntimeException {
+    /**
+     * Instantiates a new StaleCursorException
+     *
+     * @param message the message
+     */
+    public StaleCursorException(String message) {
+        super(message);
+    }
+}
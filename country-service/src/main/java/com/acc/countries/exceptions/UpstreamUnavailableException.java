@@ -0,0 +1,34 @@
+package com.acc.countries.exceptions;
+
+import org.springframework.web.client.RestClientException;
+
+import java.time.Duration;
+
+/**
+ * The Exception class UpstreamUnavailableException
+ * Thrown instead of calling the upstream API when its circuit is open or its bulkhead is full.
+ * It is a {@link RestClientException}, so callers falling back on upstream failures handle it the same way.
+ */
+public class UpstreamUnavailableException extends RestClientException {
+    private final Duration retryAfter;
+
+    /**
+     * Instantiates a new UpstreamUnavailableException
+     *
+     * @param message    the message
+     * @param retryAfter the time after which the upstream API may be called again
+     */
+    public UpstreamUnavailableException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * Gets the time after which the upstream API may be called again.
+     *
+     * @return the retry delay
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,129 @@
+package com.acc.countries.metrics;
+
+import com.acc.countries.compression.CompressedResponseCache;
+import com.acc.countries.projection.FieldProjectionCache;
+import com.acc.countries.snapshot.CountrySnapshot;
+import com.acc.countries.snapshot.CountrySnapshotStore;
+import com.acc.countries.snapshot.PeerSnapshotClient;
+import com.acc.countries.utils.RestApiRequestHelper;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.BaseUnits;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+
+/**
+ * The Class CountryMetrics
+ * Binds the gauges and counters of the country data: snapshot size and age, payload sizes,
+ * field projection and compressed response cache hits and misses, upstream call coalescing and rejections,
+ * snapshots received from peers.
+ * Timers of the endpoints ({@code http.server.requests}) and upstream calls ({@code country.upstream.calls})
+ * are recorded where the calls are made.
+ */
+@Component
+public class CountryMetrics implements MeterBinder {
+    @Autowired
+    private CountrySnapshotStore countrySnapshotStore;
+
+    @Autowired
+    private FieldProjectionCache fieldProjectionCache;
+
+    @Autowired
+    private CompressedResponseCache compressedResponseCache;
+
+    @Autowired
+    private RestApiRequestHelper restApiRequestHelper;
+
+    @Autowired
+    private PeerSnapshotClient peerSnapshotClient;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("country.snapshot.countries", countrySnapshotStore, store -> store.getSnapshot().getCountries().size())
+                .description("Countries in the current snapshot")
+                .register(registry);
+        Gauge.builder("country.snapshot.version", countrySnapshotStore, store -> store.getSnapshot().getVersion())
+                .description("Version of the current snapshot, the fetch time in epoch millis")
+                .register(registry);
+        Gauge.builder("country.snapshot.age", countrySnapshotStore, CountryMetrics::ageSeconds)
+                .description("Time since the current snapshot was fetched from the upstream API")
+                .baseUnit("seconds")
+                .register(registry);
+        Gauge.builder("country.snapshot.payload.size", countrySnapshotStore, store -> store.getSnapshot().getDensityRanking().getJson().length)
+                .description("Size of the complete countries JSON served by the density endpoint")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+        Gauge.builder("country.upstream.payload.size", countrySnapshotStore, CountrySnapshotStore::getLastPayloadSize)
+                .description("Size of the last payload received from the upstream API")
+                .baseUnit(BaseUnits.BYTES)
+                .register(registry);
+
+        FunctionCounter.builder("cache.gets", fieldProjectionCache, FieldProjectionCache::hitCount)
+                .tag("cache", "fieldProjections").tag("result", "hit")
+                .description("Field projection lookups served from the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", fieldProjectionCache, FieldProjectionCache::missCount)
+                .tag("cache", "fieldProjections").tag("result", "miss")
+                .description("Field projection lookups which compiled the projection")
+                .register(registry);
+        Gauge.builder("cache.size", fieldProjectionCache, FieldProjectionCache::size)
+                .tag("cache", "fieldProjections")
+                .description("Compiled field projections held in the cache")
+                .register(registry);
+
+        FunctionCounter.builder("cache.gets", compressedResponseCache, CompressedResponseCache::hitCount)
+                .tag("cache", "compressedResponses").tag("result", "hit")
+                .description("Gzip encoded responses served from the cache")
+                .register(registry);
+        FunctionCounter.builder("cache.gets", compressedResponseCache, CompressedResponseCache::missCount)
+                .tag("cache", "compressedResponses").tag("result", "miss")
+                .description("Responses compressed on the request path")
+                .register(registry);
+        Gauge.builder("cache.size", compressedResponseCache, CompressedResponseCache::size)
+                .tag("cache", "compressedResponses")
+                .description("Gzip encoded responses held for the current data version")
+                .register(registry);
+
+        FunctionCounter.builder("country.upstream.coalesced", restApiRequestHelper, RestApiRequestHelper::getCoalescedCallCount)
+                .description("Upstream calls served by joining an identical call in flight")
+                .register(registry);
+        FunctionCounter.builder("country.upstream.executed", restApiRequestHelper, RestApiRequestHelper::getExecutedCallCount)
+                .description("Upstream calls actually sent")
+                .register(registry);
+        FunctionCounter.builder("country.upstream.rejected", restApiRequestHelper, RestApiRequestHelper::getRejectedCallCount)
+                .description("Upstream calls rejected by the open circuit or the full bulkhead, without being sent")
+                .register(registry);
+        Gauge.builder("country.upstream.active", restApiRequestHelper, RestApiRequestHelper::getActiveCallCount)
+                .description("Upstream calls currently holding a bulkhead slot")
+                .register(registry);
+        Gauge.builder("country.upstream.circuit.state", restApiRequestHelper, helper -> helper.getCircuitState().ordinal())
+                .description("Upstream circuit breaker state, 0 closed, 1 open, 2 half-open")
+                .register(registry);
+        Gauge.builder("country.snapshot.stale", countrySnapshotStore, store -> store.isStale() ? 1d : 0d)
+                .description("Whether the current snapshot is served without recent upstream confirmation")
+                .register(registry);
+
+        FunctionCounter.builder("country.peer.snapshots", peerSnapshotClient, PeerSnapshotClient::getReceivedCount)
+                .tag("result", "received")
+                .description("Newer snapshots received from peers")
+                .register(registry);
+        FunctionCounter.builder("country.peer.snapshots", peerSnapshotClient, PeerSnapshotClient::getFailedCount)
+                .tag("result", "failed")
+                .description("Peer snapshot requests which failed or returned an unreadable snapshot")
+                .register(registry);
+    }
+
+    private static double ageSeconds(CountrySnapshotStore store) {
+        CountrySnapshot snapshot = store.getSnapshot();
+        if (snapshot.isEmpty()) {
+            return Double.NaN;
+        }
+        return Duration.between(snapshot.getFetchedAt(), Instant.now()).toMillis() / 1000d;
+    }
+}
@@ -0,0 +1,19 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * The Response Dto class BorderCountResponseDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BorderCountResponseDto {
+    private String cca3;
+    private String name;
+    private String region;
+    private int foreignBorders;
+}
@@ -0,0 +1,30 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+
+/**
+ * The Class CountryPage
+ * One page of a country ranking, already encoded as a JSON array, with the version of the snapshot it was read from.
+ */
+@Getter
+@AllArgsConstructor
+public class CountryPage {
+    private byte[] json;
+
+    private DataVersion dataVersion;
+
+    private int total;
+
+    private String nextCursor;
+
+    /**
+     * Gets the version of the snapshot the page was read from, the previous snapshot for a cursor issued before a refresh.
+     *
+     * @return the version
+     */
+    public long getVersion() {
+        return dataVersion.getVersion();
+    }
+}
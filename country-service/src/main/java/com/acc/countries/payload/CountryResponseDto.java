@@ -50,7 +50,7 @@ public class CountryResponseDto {
      * The type NameResponseDto
      */
     @Data
-    static class NameResponseDto {
+    public static class NameResponseDto {
         private String common;
         private String official;
         private Map<String, NativeNameResponseDto> nativeName;
@@ -61,7 +61,7 @@ public class CountryResponseDto {
      * The type NativeNameResponseDto
      */
     @Data
-    static class NativeNameResponseDto {
+    public static class NativeNameResponseDto {
         private String common;
         private String official;
     }
@@ -71,7 +71,7 @@ public class CountryResponseDto {
      * The type CurrencyResponseDto
      */
     @Data
-    static class CurrencyResponseDto {
+    public static class CurrencyResponseDto {
         private String name;
         private String symbol;
     }
@@ -80,7 +80,7 @@ public class CountryResponseDto {
      * The type CurrencyNameSymbolDto
      */
     @Data
-    static class CurrencyNameSymbolDto {
+    public static class CurrencyNameSymbolDto {
         private String name;
         private String symbol;
     }
@@ -89,7 +89,7 @@ public class CountryResponseDto {
      * The type IddResponseDto.
      */
     @Data
-    static class IddResponseDto {
+    public static class IddResponseDto {
         private String root;
         private List<String> suffixes;
     }
@@ -98,7 +98,7 @@ public class CountryResponseDto {
      * The type TranslationResponseDto.
      */
     @Data
-    static class TranslationResponseDto {
+    public static class TranslationResponseDto {
         private String official;
         private String common;
     }
@@ -107,7 +107,7 @@ public class CountryResponseDto {
      * The type DemonymsResponseDto.
      */
     @Data
-    static class DemonymsResponseDto {
+    public static class DemonymsResponseDto {
         private Map<String, String> eng;
         private Map<String, String> fra;
     }
@@ -116,7 +116,7 @@ public class CountryResponseDto {
      * The type CarResponseDto.
      */
     @Data
-    static class CarResponseDto {
+    public static class CarResponseDto {
         private List<String> signs;
         private String side;
     }
@@ -125,7 +125,7 @@ public class CountryResponseDto {
      * The type FlagsResponseDto.
      */
     @Data
-    static class FlagsResponseDto {
+    public static class FlagsResponseDto {
         private String png;
         private String svg;
         private String alt;
@@ -135,7 +135,7 @@ public class CountryResponseDto {
      * The type CoatOfArmsResponseDto.
      */
     @Data
-    static class CoatOfArmsResponseDto {
+    public static class CoatOfArmsResponseDto {
         private String png;
         private String svg;
     }
@@ -144,7 +144,7 @@ public class CountryResponseDto {
      * The type CapitalInfoResponseDto.
      */
     @Data
-    static class CapitalInfoResponseDto {
+    public static class CapitalInfoResponseDto {
         private List<Double> latlng;
     }
 
@@ -152,7 +152,7 @@ public class CountryResponseDto {
      * The type PostalCodeResponseDto.
      */
     @Data
-    static class PostalCodeResponseDto {
+    public static class PostalCodeResponseDto {
         private String format;
         private String regex;
     }
@@ -0,0 +1,19 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+/**
+ * The Response Dto class CountryStatisticsResponseDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CountryStatisticsResponseDto {
+    private String groupBy;
+    private List<GroupStatisticsDto> groups;
+}
@@ -0,0 +1,48 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+
+/**
+ * The Class DataVersion
+ * Identifies the country data a response is built from, used for HTTP validators and staleness headers.
+ */
+@Getter
+@AllArgsConstructor
+public class DataVersion {
+    private long version;
+
+    private Instant fetchedAt;
+
+    /**
+     * Last time the upstream API confirmed the data
+     */
+    private Instant verifiedAt;
+
+    /**
+     * Whether the data may be outdated because the upstream API could not confirm it
+     */
+    private boolean stale;
+
+    /**
+     * Instantiates a new DataVersion of fresh data.
+     *
+     * @param version   the version
+     * @param fetchedAt the fetch time, also the verification time
+     */
+    public DataVersion(long version, Instant fetchedAt) {
+        this(version, fetchedAt, fetchedAt, false);
+    }
+
+    /**
+     * Checks whether any data has been loaded yet.
+     *
+     * @return true if no snapshot is loaded
+     */
+    public boolean isEmpty() {
+        return version == 0L;
+    }
+}
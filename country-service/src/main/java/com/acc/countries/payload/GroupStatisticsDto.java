@@ -0,0 +1,20 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * The Response Dto class GroupStatisticsDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class GroupStatisticsDto {
+    private String group;
+    private int countries;
+    private MetricStatisticsDto population;
+    private MetricStatisticsDto area;
+    private MetricStatisticsDto density;
+}
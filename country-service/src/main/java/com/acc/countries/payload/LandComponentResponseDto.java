@@ -0,0 +1,22 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+/**
+ * The Response Dto class LandComponentResponseDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LandComponentResponseDto {
+    private int size;
+    /**
+     * The cca3 codes of the countries connected by land, in alphabetical order
+     */
+    private List<String> countries;
+}
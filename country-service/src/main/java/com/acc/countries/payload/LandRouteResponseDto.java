@@ -0,0 +1,31 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+
+/**
+ * The Response Dto class LandRouteResponseDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LandRouteResponseDto {
+    private String from;
+    private String to;
+    /**
+     * Whether the two countries are connected by land
+     */
+    private boolean reachable;
+    /**
+     * Number of borders crossed on the shortest route, null without land route
+     */
+    private Integer borderCrossings;
+    /**
+     * The cca3 codes of the countries on the route, both ends included
+     */
+    private List<String> path;
+}
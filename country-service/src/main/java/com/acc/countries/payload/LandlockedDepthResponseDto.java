@@ -0,0 +1,22 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * The Response Dto class LandlockedDepthResponseDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LandlockedDepthResponseDto {
+    private String cca3;
+    private String name;
+    private String region;
+    /**
+     * Number of borders to cross to reach the nearest country with a coast
+     */
+    private int depth;
+}
@@ -0,0 +1,28 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+
+/**
+ * The Response Dto class MetricStatisticsDto
+ * Summary of one numeric field over a group of countries, countries without a value are not counted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class MetricStatisticsDto {
+    private int count;
+    private double sum;
+    private double mean;
+    private double min;
+    private double max;
+    private double median;
+    /**
+     * Percentiles by name, for example p90, linearly interpolated between the closest ranks
+     */
+    private Map<String, Double> percentiles;
+}
@@ -0,0 +1,22 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * The Response Dto class NearestCountryResponseDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NearestCountryResponseDto {
+    private String cca3;
+    private String name;
+    private String region;
+    /**
+     * Great-circle distance between the queried point and the country or capital position
+     */
+    private double distanceKm;
+}
@@ -0,0 +1,23 @@
+package com.acc.countries.payload;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+
+/**
+ * The Response Dto class SearchResultResponseDto
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchResultResponseDto {
+    private String cca3;
+    private String name;
+    private String region;
+    /**
+     * The field of the best match, for example name.common or translations
+     */
+    private String matchedField;
+    private int score;
+}
@@ -0,0 +1,195 @@
+package com.acc.countries.projection;
+
+import com.acc.countries.snapshot.CountryRecord;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.filter.FilteringParserDelegate;
+import com.fasterxml.jackson.core.filter.TokenFilter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+
+/**
+ * The Class FieldProjection
+ * A compiled {@code ?fields=} projection such as {@code name.common,population}.
+ * The requested paths are compiled once into a Jackson {@link TokenFilter} tree which is then applied
+ * while copying the compact country JSON, so no object is bound and only the selected tokens are written.
+ * Paths run through arrays, {@code capitalInfo.latlng} or {@code translations.fra.common} both work.
+ */
+public final class FieldProjection {
+    private final String key;
+
+    private final PathFilter filter;
+
+    private FieldProjection(String key, PathFilter filter) {
+        this.key = key;
+        this.filter = filter;
+    }
+
+    /**
+     * Compiles a comma separated list of dotted field paths.
+     *
+     * @param fields the fields, for example {@code name.common,population}
+     * @return the FieldProjection
+     * @throws IllegalArgumentException if a path is empty or contains an empty segment
+     */
+    public static FieldProjection compile(String fields) {
+        TreeSet<String> paths = new TreeSet<>();
+        for (String path : fields.split(",", -1)) {
+            String trimmed = path.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith(".") || trimmed.endsWith(".") || trimmed.contains("..")) {
+                throw new IllegalArgumentException("Invalid field path in fields: '" + fields + "'");
+            }
+            paths.add(trimmed);
+        }
+
+        PathFilter root = new PathFilter(true);
+        for (String path : paths) {
+            root.add(Arrays.asList(path.split("\\.")));
+        }
+        return new FieldProjection(String.join(",", paths), root);
+    }
+
+    /**
+     * Gets the normalized key of the projection, identical for equivalent field lists.
+     *
+     * @return the key
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Projects one JSON object.
+     *
+     * @param jsonFactory the json factory
+     * @param json        the compact JSON object
+     * @return the projected JSON bytes
+     */
+    public byte[] project(JsonFactory jsonFactory, byte[] json) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(256);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            copyFiltered(jsonFactory.createParser(json), generator);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to project fields " + key, ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Projects countries into a JSON array, reading each country JSON in place.
+     *
+     * @param jsonFactory the json factory
+     * @param countries   the countries
+     * @return the projected JSON array bytes
+     */
+    public byte[] projectCountries(JsonFactory jsonFactory, List<CountryRecord> countries) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(64 * countries.size() + 2);
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)) {
+            generator.writeStartArray();
+            for (CountryRecord country : countries) {
+                copyFiltered(country.createJsonParser(jsonFactory), generator);
+            }
+            generator.writeEndArray();
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to project fields " + key, ex);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Projects one country onto an output stream, reading the country JSON in place.
+     *
+     * @param jsonFactory the json factory
+     * @param country     the country
+     * @param out         the output stream, left open
+     * @throws IOException if the output stream fails
+     */
+    public void projectCountry(JsonFactory jsonFactory, CountryRecord country, OutputStream out) throws IOException {
+        // Closing the generator only moves its buffer to the stream, flushing is left to the caller
+        try (JsonGenerator generator = jsonFactory.createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM)) {
+            copyFiltered(country.createJsonParser(jsonFactory), generator);
+        }
+    }
+
+    private void copyFiltered(JsonParser source, JsonGenerator generator) throws IOException {
+        try (JsonParser parser = new FilteringParserDelegate(source, filter, TokenFilter.Inclusion.INCLUDE_ALL_AND_PATH, true)) {
+            while (parser.nextToken() != null) {
+                generator.copyCurrentEvent(parser);
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return key;
+    }
+
+    /**
+     * The Filter class PathFilter
+     * One node of the compiled path tree, a requested leaf includes its whole value.
+     */
+    private static final class PathFilter extends TokenFilter {
+        private final boolean root;
+
+        private final Map<String, TokenFilter> children = new LinkedHashMap<>();
+
+        private PathFilter(boolean root) {
+            this.root = root;
+        }
+
+        private void add(List<String> segments) {
+            String head = segments.get(0);
+            if (segments.size() == 1) {
+                children.put(head, TokenFilter.INCLUDE_ALL);
+                return;
+            }
+            TokenFilter child = children.get(head);
+            if (child == TokenFilter.INCLUDE_ALL) {
+                return;
+            }
+            if (child == null) {
+                child = new PathFilter(false);
+                children.put(head, child);
+            }
+            ((PathFilter) child).add(segments.subList(1, segments.size()));
+        }
+
+        @Override
+        public TokenFilter includeProperty(String name) {
+            return children.get(name);
+        }
+
+        @Override
+        public TokenFilter includeElement(int index) {
+            return this;
+        }
+
+        @Override
+        public TokenFilter includeRootValue(int index) {
+            return this;
+        }
+
+        @Override
+        public boolean includeEmptyObject(boolean contentsFiltered) {
+            // Keeps one element per country even when none of the paths is present
+            return root;
+        }
+
+        @Override
+        protected boolean _includeScalar() {
+            return false;
+        }
+    }
+}
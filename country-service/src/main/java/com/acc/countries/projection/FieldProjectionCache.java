@@ -0,0 +1,84 @@
+package com.acc.countries.projection;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The Class FieldProjectionCache
+ * Caches the compiled {@link FieldProjection} per distinct {@code ?fields=} value.
+ * The cache is bounded, once full further projections are compiled per request instead of being cached.
+ */
+@Slf4j
+@Component
+public class FieldProjectionCache {
+    @Value("${country.projection.max-cached:256}")
+    private int maxCached;
+
+    private final ConcurrentMap<String, FieldProjection> projections = new ConcurrentHashMap<>();
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    /**
+     * Gets the compiled projection of a fields parameter.
+     *
+     * @param fields the fields parameter, may be null or blank
+     * @return the FieldProjection, or null if no projection is requested
+     * @throws IllegalArgumentException if the fields parameter is malformed
+     */
+    public FieldProjection get(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+
+        FieldProjection projection = projections.get(fields);
+        if (projection != null) {
+            hitCount.increment();
+            return projection;
+        }
+        missCount.increment();
+
+        projection = FieldProjection.compile(fields);
+        if (projections.size() < maxCached) {
+            FieldProjection existing = projections.putIfAbsent(fields, projection);
+            return existing == null ? projection : existing;
+        }
+
+        log.debug("Field projection cache is full, compiled {} without caching it", projection);
+        return projection;
+    }
+
+    /**
+     * Gets the number of lookups served from the cache.
+     *
+     * @return the hit count
+     */
+    public long hitCount() {
+        return hitCount.sum();
+    }
+
+    /**
+     * Gets the number of lookups which compiled the projection.
+     *
+     * @return the miss count
+     */
+    public long missCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Gets the number of cached projections.
+     *
+     * @return the size
+     */
+    public int size() {
+        return projections.size();
+    }
+}
@@ -1,6 +1,16 @@
 package com.acc.countries.services;
 
+import com.acc.countries.payload.BorderCountResponseDto;
+import com.acc.countries.payload.CountryPage;
 import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.payload.CountryStatisticsResponseDto;
+import com.acc.countries.payload.DataVersion;
+import com.acc.countries.payload.LandComponentResponseDto;
+import com.acc.countries.payload.LandRouteResponseDto;
+import com.acc.countries.payload.LandlockedDepthResponseDto;
+import com.acc.countries.payload.NearestCountryResponseDto;
+import com.acc.countries.payload.SearchResultResponseDto;
+import com.acc.countries.streaming.CountryStream;
 import java.util.List;
 
 /**
@@ -8,11 +18,33 @@ import java.util.List;
  */
 public interface CountryService {
     /**
-     * Gets sorted list of countries by population density.
+     * Gets the version of the country data currently served.
      *
-     * @return the sorted countries list by population density
+     * @return the data version
      */
-    List<CountryResponseDto> getSortedCountriesByPopulationDensity();
+    DataVersion getDataVersion();
+
+
+    /**
+     * Gets one page of the countries sorted by population density, encoded as JSON.
+     *
+     * @param fields the comma separated field paths to keep, null for the complete countries
+     * @param limit  the maximum number of countries, null for all remaining countries
+     * @param offset the rank of the first country, ignored when a cursor is given
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @return the page with its next-page cursor
+     */
+    CountryPage getSortedCountriesByPopulationDensityPage(String fields, Integer limit, int offset, String cursor);
+
+
+    /**
+     * Gets the countries sorted by population density as a stream, written country by country.
+     * The stream is bound to the current snapshot, later refreshes do not change it.
+     *
+     * @param fields the comma separated field paths to keep, null for the complete countries
+     * @return the CountryStream
+     */
+    CountryStream getSortedCountriesByPopulationDensityStream(String fields);
 
 
     /**
@@ -22,4 +54,99 @@ public interface CountryService {
      */
     CountryResponseDto getAsianCountryWithMostNonAsianBorders();
 
+
+    /**
+     * Gets most bordering asian country with most non-asian region borders, encoded as JSON.
+     *
+     * @param fields the comma separated field paths to keep, null for the complete country
+     * @return the JSON encoded most bordering asian country with most non-asian region borders
+     */
+    byte[] getAsianCountryWithMostNonAsianBordersJson(String fields);
+
+
+    /**
+     * Gets the countries of a region with the most borders to countries of other regions.
+     *
+     * @param region the region name
+     * @param top    the maximum number of countries
+     * @return the countries ordered by foreign border count descending
+     */
+    List<BorderCountResponseDto> getCountriesWithMostForeignBorders(String region, int top);
+
+
+    /**
+     * Gets population, area and density statistics of the countries, grouped by region or subregion.
+     *
+     * @param groupBy     region, subregion or none, null for region
+     * @param landlocked  keeps only landlocked (true) or coastal (false) countries, null for both
+     * @param unMember    keeps only UN members (true) or non members (false), null for both
+     * @param percentiles the comma separated percentiles to compute, for example 25,75,90
+     * @return the statistics per group
+     */
+    CountryStatisticsResponseDto getCountryStatistics(String groupBy, Boolean landlocked, Boolean unMember, String percentiles);
+
+
+    /**
+     * Gets the countries closest to a point, either the k nearest or all within a radius.
+     *
+     * @param lat      the latitude in degrees
+     * @param lng      the longitude in degrees
+     * @param k        the maximum number of countries, null for the default or, with a radius, for no limit
+     * @param radiusKm the great-circle radius in kilometres, null for a k nearest search
+     * @param by       country to measure to the country position, capital to measure to the capital
+     * @return the countries, closest first
+     */
+    List<NearestCountryResponseDto> getNearestCountries(double lat, double lng, Integer k, Double radiusKm, String by);
+
+
+    /**
+     * Searches the countries by name, alternative spelling or translation, ignoring case and accents.
+     *
+     * @param query the words the names must start with, for example "rep czech"
+     * @param limit the maximum number of countries, null for the default
+     * @return the matching countries, best match first
+     */
+    List<SearchResultResponseDto> searchCountries(String query, Integer limit);
+
+
+    /**
+     * Gets many countries by code, encoded as JSON.
+     * The body is an object with the found countries in request order ({@code countries}), the codes matching no
+     * country ({@code notFound}) and whether the upstream lookup of the local misses failed ({@code partial}).
+     *
+     * @param codes  the cca2, cca3, ccn3 or cioc codes, case-insensitive
+     * @param fields the comma separated field paths to keep, null for the complete countries
+     * @return the JSON encoded batch result
+     */
+    byte[] getCountriesByCodesJson(List<String> codes, String fields);
+
+
+
+    /**
+     * Gets the shortest land route between two countries, crossing the fewest borders.
+     *
+     * @param from the cca2, cca3, ccn3 or cioc code of the first country
+     * @param to   the cca2, cca3, ccn3 or cioc code of the second country
+     * @return the route, not reachable if no land route connects the countries
+     */
+    LandRouteResponseDto getLandRoute(String from, String to);
+
+
+    /**
+     * Gets the groups of countries connected by land.
+     *
+     * @param minSize the minimum number of countries of a group, 1 to include the countries without land border
+     * @return the groups ordered by size descending
+     */
+    List<LandComponentResponseDto> getLandComponents(int minSize);
+
+
+    /**
+     * Gets the landlocked countries with the most borders to cross to reach a country with a coast.
+     *
+     * @param top the maximum number of countries
+     * @return the countries ordered by depth descending
+     */
+    List<LandlockedDepthResponseDto> getLandlockedDepths(int top);
+
 }
@@ -1,20 +1,60 @@
 package com.acc.countries.services.impl;
 
-import com.acc.countries.constants.AppConstants;
 import com.acc.countries.exceptions.CountryNotFoundException;
+import com.acc.countries.exceptions.StaleCursorException;
+import com.acc.countries.payload.BorderCountResponseDto;
+import com.acc.countries.payload.CountryPage;
 import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.payload.CountryStatisticsResponseDto;
+import com.acc.countries.payload.DataVersion;
+import com.acc.countries.payload.LandComponentResponseDto;
+import com.acc.countries.payload.LandRouteResponseDto;
+import com.acc.countries.payload.LandlockedDepthResponseDto;
+import com.acc.countries.payload.NearestCountryResponseDto;
+import com.acc.countries.payload.SearchResultResponseDto;
+import com.acc.countries.projection.FieldProjection;
+import com.acc.countries.projection.FieldProjectionCache;
 import com.acc.countries.services.CountryService;
+import com.acc.countries.snapshot.BorderGraph;
+import com.acc.countries.snapshot.CodeIndex;
+import com.acc.countries.snapshot.CountryColumns;
+import com.acc.countries.snapshot.CountryRecordParser;
+import com.acc.countries.snapshot.CountryRecord;
+import com.acc.countries.snapshot.CountrySnapshot;
+import com.acc.countries.snapshot.CountrySnapshotStore;
+import com.acc.countries.snapshot.CountryStatistics;
+import com.acc.countries.snapshot.DensityRanking;
+import com.acc.countries.snapshot.LandRoutes;
+import com.acc.countries.snapshot.SearchIndex;
+import com.acc.countries.snapshot.SpatialIndex;
+import com.acc.countries.streaming.CountryStream;
+import com.acc.countries.utils.PageCursor;
 import com.acc.countries.utils.RestApiRequestHelper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import org.springframework.util.CollectionUtils;
-
-import java.util.*;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 
@@ -24,43 +64,150 @@ import java.util.stream.Collectors;
 @Slf4j
 @Service
 public class CountryServiceImpl implements CountryService {
-    @Value("${external.api.countriesApiUrl}")
-    private String countriesApiUrl;
+    @Value("${country.region.asia}")
+    private String countryRegionAsia;
 
-    @Value("${external.api.countriesByRegionApiUrl}")
-    private String countriesByRegionApiUrl;
+    @Value("${country.paging.max-limit:250}")
+    private int maxPageLimit;
 
-    @Value("${external.api.countriesByCodeApiUrl}")
-    private String countriesByCodeApiUrl;
+    @Value("${country.stats.parallel-threshold:4096}")
+    private int statsParallelThreshold;
 
-    @Value("${country.region.asia}")
-    private String countryRegionAsia;
+    @Value("${country.nearest.default-k:5}")
+    private int nearestDefaultK;
+
+    @Value("${country.nearest.max-k:50}")
+    private int nearestMaxK;
+
+    @Value("${country.search.default-limit:10}")
+    private int searchDefaultLimit;
+
+    @Value("${country.search.max-limit:50}")
+    private int searchMaxLimit;
+
+    @Value("${country.batch.max-codes:100}")
+    private int batchMaxCodes;
+
+    @Value("${external.api.countriesByCodesApiUrl}")
+    private String countriesByCodesApiUrl;
+
+    @Autowired
+    private CountrySnapshotStore countrySnapshotStore;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private FieldProjectionCache fieldProjectionCache;
 
     @Autowired
     private RestApiRequestHelper restApiRequestHelper;
 
+    @Autowired
+    private CountryRecordParser countryRecordParser;
+
+
+    /**
+     * This method gets the version of the current snapshot, without building any response
+     *
+     * @return the DataVersion
+     */
+    @Override
+    public DataVersion getDataVersion() {
+        return dataVersionOf(countrySnapshotStore.getSnapshot());
+    }
+
 
     /**
-     * This method gets the sorted countries list by population density
+     * This method gets the version of a snapshot with the freshness of the data held by the store
      *
-     * @return the list of type CountryResponseDto
+     * @param snapshot the snapshot
+     * @return the DataVersion
+     */
+    private DataVersion dataVersionOf(CountrySnapshot snapshot) {
+        return new DataVersion(snapshot.getVersion(), snapshot.getFetchedAt(), countrySnapshotStore.getLastVerifiedAt(), countrySnapshotStore.isStale());
+    }
+
+
+    /**
+     * This method gets one page of the sorted countries list by population density as encoded JSON.
+     * A page is a slice of the ranking precomputed for the snapshot, so no page request sorts.
+     * Follow-up pages are read from the snapshot version named by the cursor, a page never mixes two versions.
+     *
+     * @param fields the fields to keep, null for the complete countries
+     * @param limit  the maximum number of countries, null for all remaining countries
+     * @param offset the rank of the first country, ignored when a cursor is given
+     * @param cursor the cursor returned with the previous page, null for the first page
+     * @return the CountryPage
+     * @throws StaleCursorException if the cursor refers to a snapshot version no longer held
      */
     @Override
-    public List<CountryResponseDto> getSortedCountriesByPopulationDensity() {
-        log.info("Entering getSortedCountriesByPopulationDensity method");
+    public CountryPage getSortedCountriesByPopulationDensityPage(String fields, Integer limit, int offset, String cursor) {
+        log.info("Entering getSortedCountriesByPopulationDensityPage method");
 
-        // Retrieved all countries from an external API
-        CountryResponseDto[] allCountriesInfo = getAllCountriesDetails();
+        if (limit != null && (limit < 1 || limit > maxPageLimit)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageLimit);
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset must not be negative");
+        }
 
-        List<CountryResponseDto> sortedCountriesList = Arrays.stream(allCountriesInfo).filter(Objects::nonNull).sorted(Comparator.comparing(CountryResponseDto::getPopulation).reversed()).collect(Collectors.toList());
+        CountrySnapshot snapshot;
+        if (cursor == null || cursor.isBlank()) {
+            snapshot = countrySnapshotStore.getSnapshot();
+        } else {
+            PageCursor pageCursor = PageCursor.decode(cursor);
+            snapshot = countrySnapshotStore.getSnapshot(pageCursor.version());
+            if (snapshot == null) {
+                throw new StaleCursorException("Cursor refers to data version " + pageCursor.version() + " which is no longer available");
+            }
+            offset = pageCursor.offset();
+        }
 
-        if (CollectionUtils.isEmpty(sortedCountriesList)) {
-            log.error("Sorted countries list is empty or null: {}", sortedCountriesList);
+        DensityRanking densityRanking = snapshot.getDensityRanking();
+        List<CountryRecord> rankedCountries = densityRanking.getRankedCountries();
+        if (CollectionUtils.isEmpty(rankedCountries)) {
+            log.error("Sorted countries list is empty or null: {}", rankedCountries);
             throw new CountryNotFoundException("Country not found");
         }
 
-        log.debug("Sorted countries list: {}", sortedCountriesList);
-        return sortedCountriesList;
+        int total = rankedCountries.size();
+        int from = Math.min(offset, total);
+        int to = limit == null ? total : (int) Math.min((long) from + limit, total);
+        String nextCursor = to < total ? new PageCursor(snapshot.getVersion(), to).encode() : null;
+
+        FieldProjection projection = fieldProjectionCache.get(fields);
+        byte[] json;
+        if (projection == null) {
+            json = densityRanking.getJson(from, to);
+        } else {
+            json = projection.projectCountries(objectMapper.getFactory(), rankedCountries.subList(from, to));
+        }
+
+        log.debug("Sorted countries page [{}, {}) of {} for version {}", from, to, total, snapshot.getVersion());
+        return new CountryPage(json, dataVersionOf(snapshot), total, nextCursor);
+    }
+
+
+    /**
+     * This method opens a stream over the ranking of the current snapshot.
+     * The field projection is compiled here, so invalid fields are reported before anything is streamed.
+     *
+     * @param fields the fields to keep, null for the complete countries
+     * @return the CountryStream
+     * @throws CountryNotFoundException if no country is available
+     */
+    @Override
+    public CountryStream getSortedCountriesByPopulationDensityStream(String fields) {
+        log.info("Entering getSortedCountriesByPopulationDensityStream method");
+
+        FieldProjection projection = fieldProjectionCache.get(fields);
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+        if (snapshot.isEmpty()) {
+            log.error("No countries available for streaming");
+            throw new CountryNotFoundException("Country not found");
+        }
+        return new CountryStream(snapshot.getDensityRanking(), projection, objectMapper.getFactory(), dataVersionOf(snapshot));
     }
 
 
@@ -73,104 +220,424 @@ public class CountryServiceImpl implements CountryService {
     public CountryResponseDto getAsianCountryWithMostNonAsianBorders() {
         log.info("Entering getAsianCountryWithMostNonAsianBorders method");
 
-        // Map containing the parameters for filtering countries by 'Asia' region
-        Map<String, String> regionFilterParamsMap = new HashMap<>();
-        regionFilterParamsMap.put(AppConstants.REGION, countryRegionAsia);
+        CountryRecord asianCountry = findAsianCountryWithMostNonAsianBorders();
+        return asianCountry == null ? new CountryResponseDto() : asianCountry.toDto(objectMapper);
+    }
 
-        // Retrieved all Asian countries details
-        CountryResponseDto[] asianCountriesInfo = restApiRequestHelper.fetchCountryDetails(countriesByRegionApiUrl, HttpMethod.GET, regionFilterParamsMap);
 
-        if (ArrayUtils.isEmpty(asianCountriesInfo)) {
-            log.debug("asianCountriesInfo array is null or empty");
-            return new CountryResponseDto();
+    /**
+     * This method retrieves the Asian country with most non-asian region borders as encoded JSON
+     *
+     * @param fields the fields to keep, null for the complete country
+     * @return the JSON bytes of the country
+     */
+    @Override
+    public byte[] getAsianCountryWithMostNonAsianBordersJson(String fields) {
+        log.info("Entering getAsianCountryWithMostNonAsianBordersJson method");
+
+        CountryRecord asianCountry = findAsianCountryWithMostNonAsianBorders();
+        byte[] json;
+        try {
+            json = asianCountry == null ? objectMapper.writeValueAsBytes(new CountryResponseDto()) : asianCountry.getJson();
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to encode an empty country", ex);
         }
 
-        log.debug("Retrieved list of asianCountries {}", asianCountriesInfo.length);
+        FieldProjection projection = fieldProjectionCache.get(fields);
+        return projection == null ? json : projection.project(objectMapper.getFactory(), json);
+    }
+
+
+    /**
+     * This method finds the Asian country with most non-asian region borders in the current snapshot
+     *
+     * @return the CountryRecord, or null if no Asian country has borders
+     * @throws CountryNotFoundException if no Asian country has a non-asian border
+     */
+    private CountryRecord findAsianCountryWithMostNonAsianBorders() {
+        // Border graph precomputed for the current snapshot
+        BorderGraph borderGraph = countrySnapshotStore.getSnapshot().getBorderGraph();
+
+        int asiaRegionId = borderGraph.regionIdOf(countryRegionAsia);
+        if (asiaRegionId < 0) {
+            log.debug("No Asian country in the current snapshot");
+            return null;
+        }
 
-        // Creating a Map of Asian countries and their bordering countries
-        Map<String, List<String>> asianCountryBordersMap = Arrays.stream(asianCountriesInfo).filter(Objects::nonNull).filter(country -> !CollectionUtils.isEmpty(country.getBorders())).collect(Collectors.toMap(CountryResponseDto::getCca3, CountryResponseDto::getBorders));
+        if (!borderGraph.regionHasBorders(asiaRegionId)) {
+            log.debug("No Asian country with borders in the current snapshot");
+            return null;
+        }
 
-        if (asianCountryBordersMap.isEmpty()) {
-            log.debug("asianCountryBordersMap is empty");
-            return new CountryResponseDto();
+        List<BorderCountResponseDto> mostForeignBorders = borderGraph.mostForeignBorders(asiaRegionId, 1);
+        if (mostForeignBorders.isEmpty()) {
+            throw new CountryNotFoundException("Country not found");
         }
 
-        log.debug("Map created with key as Asian country code and value as its borders: {}", asianCountryBordersMap);
+        log.debug("Asian Country with the most non-asian borders: {}", mostForeignBorders.get(0));
+        return borderGraph.countryOf(borderGraph.idOf(mostForeignBorders.get(0).getCca3()));
+    }
+
 
-        // Creating a Map of Asian countries and the count of their non-Asian borders
-        Map<String, Integer> asianCountryNonAsianBordersCountMap = getAsianCountryNonAsianBordersCountMap(asianCountryBordersMap);
+    /**
+     * This method retrieves the countries of a region with the most borders to other regions
+     *
+     * @param region the region name
+     * @param top    the maximum number of countries
+     * @return the list of type BorderCountResponseDto
+     */
+    @Override
+    public List<BorderCountResponseDto> getCountriesWithMostForeignBorders(String region, int top) {
+        log.info("Entering getCountriesWithMostForeignBorders method");
 
-        // Retrieved specific country details on the basis of 'country code'
-        CountryResponseDto[] specificCountryInfo = getSpecificCountryDetails(asianCountryNonAsianBordersCountMap);
-        if (ArrayUtils.isNotEmpty(specificCountryInfo)) return specificCountryInfo[0];
+        if (top < 1) {
+            throw new IllegalArgumentException("top must be greater than 0");
+        }
 
-        throw new CountryNotFoundException("Country not found");
+        BorderGraph borderGraph = countrySnapshotStore.getSnapshot().getBorderGraph();
 
+        int regionId = borderGraph.regionIdOf(region);
+        if (regionId < 0) {
+            throw new CountryNotFoundException("Region not found: " + region);
+        }
+        return borderGraph.mostForeignBorders(regionId, top);
     }
 
 
     /**
-     * This method fetches the specific country details on the basis of country code
+     * This method aggregates the columns of the current snapshot per region or subregion
      *
-     * @return An array of CountryResponseDto objects
+     * @param groupBy     region, subregion or none
+     * @param landlocked  the landlocked filter, null for none
+     * @param unMember    the UN membership filter, null for none
+     * @param percentiles the comma separated percentiles
+     * @return the CountryStatisticsResponseDto
+     * @throws CountryNotFoundException if no country is available
+     */
+    @Override
+    public CountryStatisticsResponseDto getCountryStatistics(String groupBy, Boolean landlocked, Boolean unMember, String percentiles) {
+        log.info("Entering getCountryStatistics method");
+
+        CountryStatistics.Grouping grouping = CountryStatistics.Grouping.of(groupBy);
+        double[] percentileValues = CountryStatistics.parsePercentiles(percentiles);
+        int requiredFlags = 0;
+        int excludedFlags = 0;
+        if (landlocked != null) {
+            requiredFlags |= landlocked ? CountryColumns.LANDLOCKED : 0;
+            excludedFlags |= landlocked ? 0 : CountryColumns.LANDLOCKED;
+        }
+        if (unMember != null) {
+            requiredFlags |= unMember ? CountryColumns.UN_MEMBER : 0;
+            excludedFlags |= unMember ? 0 : CountryColumns.UN_MEMBER;
+        }
+
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+        if (snapshot.isEmpty()) {
+            log.error("No countries available for statistics");
+            throw new CountryNotFoundException("Country not found");
+        }
+        return CountryStatistics.aggregate(snapshot.getCountryColumns(), grouping, requiredFlags, excludedFlags, percentileValues, statsParallelThreshold);
+    }
+
+
+    /**
+     * This method finds the countries closest to a point in the spatial index of the current snapshot
      *
-     * @see RestApiRequestHelper
-     * @see CountryResponseDto
+     * @param lat      the latitude in degrees
+     * @param lng      the longitude in degrees
+     * @param k        the maximum number of countries
+     * @param radiusKm the radius in kilometres, null for a k nearest search
+     * @param by       country or capital
+     * @return the list of type NearestCountryResponseDto
+     * @throws CountryNotFoundException if no country is available
      */
-    private CountryResponseDto[] getSpecificCountryDetails(Map<String, Integer> asianCountryNonAsianBordersCountMap) {
-        String countryCode = asianCountryNonAsianBordersCountMap.entrySet().stream().sorted(Map.Entry.comparingByValue(Comparator.reverseOrder())).map(Map.Entry::getKey).findFirst().orElse(null);
-        log.debug("Asian Country code with the most non-asian borders: {}", countryCode);
+    @Override
+    public List<NearestCountryResponseDto> getNearestCountries(double lat, double lng, Integer k, Double radiusKm, String by) {
+        log.info("Entering getNearestCountries method");
 
-        // Map containing the parameters for retrieving country details by country code
-        Map<String, String> countryCodeParamsMap = new HashMap<>();
-        countryCodeParamsMap.put(AppConstants.CODE, countryCode);
+        if (!(lat >= -90d && lat <= 90d) || !(lng >= -180d && lng <= 180d)) {
+            throw new IllegalArgumentException("lat must be between -90 and 90 and lng between -180 and 180");
+        }
+        if (k != null && (k < 1 || k > nearestMaxK)) {
+            throw new IllegalArgumentException("k must be between 1 and " + nearestMaxK);
+        }
+        if (radiusKm != null && !(radiusKm > 0d)) {
+            throw new IllegalArgumentException("radiusKm must be greater than 0");
+        }
 
-        // Retrieved specific country details on the basis of 'country code'
-        CountryResponseDto[] specificCountryInfo = restApiRequestHelper.fetchCountryDetails(countriesByCodeApiUrl, HttpMethod.GET, countryCodeParamsMap);
-        return specificCountryInfo;
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+        if (snapshot.isEmpty()) {
+            log.error("No countries available for a nearest search");
+            throw new CountryNotFoundException("Country not found");
+        }
+        SpatialIndex spatialIndex = switch (by == null ? "country" : by.toLowerCase(Locale.ROOT)) {
+            case "country" -> snapshot.getCountryLocations();
+            case "capital" -> snapshot.getCapitalLocations();
+            default -> throw new IllegalArgumentException("by must be country or capital");
+        };
+
+        List<SpatialIndex.Neighbour> neighbours;
+        if (radiusKm == null) {
+            neighbours = spatialIndex.nearest(lat, lng, k == null ? nearestDefaultK : k);
+        } else {
+            neighbours = spatialIndex.withinRadius(lat, lng, radiusKm);
+            if (k != null && neighbours.size() > k) {
+                neighbours = neighbours.subList(0, k);
+            }
+        }
+        return neighbours.stream()
+                .map(neighbour -> new NearestCountryResponseDto(neighbour.country().getCca3(), neighbour.country().getNameCommon(),
+                        neighbour.country().getRegion(), neighbour.distanceKm()))
+                .collect(Collectors.toList());
     }
 
 
     /**
-     * This method retrieves details of all countries by making a request to an external API
+     * This method searches the name index of the current snapshot
      *
-     * @return An array of CountryResponseDto objects representing the response retrieved from the external API
-     * @see HttpHeaders
-     * @see RestApiRequestHelper
-     * @see CountryResponseDto
+     * @param query the query
+     * @param limit the maximum number of countries
+     * @return the list of type SearchResultResponseDto
      */
-    private CountryResponseDto[] getAllCountriesDetails() {
-        HttpHeaders httpHeaders = new HttpHeaders();
+    @Override
+    public List<SearchResultResponseDto> searchCountries(String query, Integer limit) {
+        log.info("Entering searchCountries method");
 
-        // Retrieved all countries from an external API
-        CountryResponseDto[] allCountriesInfo = restApiRequestHelper.getCustomResponseEntityArray(countriesApiUrl, httpHeaders, CountryResponseDto[].class);
-        log.debug("No. of countries received in response from the {} {}", countriesApiUrl, allCountriesInfo.length);
-        return allCountriesInfo;
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("q must not be blank");
+        }
+        if (limit != null && (limit < 1 || limit > searchMaxLimit)) {
+            throw new IllegalArgumentException("limit must be between 1 and " + searchMaxLimit);
+        }
+
+        List<SearchIndex.Hit> hits = countrySnapshotStore.getSnapshot().getSearchIndex().search(query, limit == null ? searchDefaultLimit : limit);
+        return hits.stream()
+                .map(hit -> new SearchResultResponseDto(hit.country().getCca3(), hit.country().getNameCommon(), hit.country().getRegion(),
+                        hit.field().getPath(), hit.score()))
+                .collect(Collectors.toList());
     }
 
 
     /**
-     * This method retrieves the Asian country and its NonAsianBordersCount Map
+     * This method resolves many codes against the code index of the current snapshot.
+     * The codes missing locally are fetched from the upstream API in a single call.
      *
-     * @return the Map<String,Integer>
+     * @param codes  the codes
+     * @param fields the fields to keep, null for the complete countries
+     * @return the JSON bytes of the batch result
      */
-    private Map<String, Integer> getAsianCountryNonAsianBordersCountMap(Map<String, List<String>> asianCountryBordersMap) {
-        // Creating a Map of Asian countries and the count of their non-Asian borders
-        Map<String, Integer> asianCountryNonAsianBordersCountMap = new HashMap<>();
+    @Override
+    public byte[] getCountriesByCodesJson(List<String> codes, String fields) {
+        log.info("Entering getCountriesByCodesJson method");
+
+        if (CollectionUtils.isEmpty(codes)) {
+            throw new IllegalArgumentException("codes must not be empty");
+        }
+        Map<String, CountryRecord> resolved = new LinkedHashMap<>();
+        for (String code : codes) {
+            if (!CodeIndex.isValidCode(code)) {
+                throw new IllegalArgumentException("Invalid country code: " + code);
+            }
+            resolved.put(CodeIndex.normalize(code), null);
+        }
+        if (resolved.size() > batchMaxCodes) {
+            throw new IllegalArgumentException("At most " + batchMaxCodes + " codes can be requested at once");
+        }
 
-        asianCountryBordersMap.entrySet().forEach(entry -> {
-            Optional.ofNullable(entry.getValue()).ifPresent(borderList -> {
-                borderList.forEach(border -> {
-                    if (!asianCountryBordersMap.containsKey(border)) {
-                        asianCountryNonAsianBordersCountMap.put(entry.getKey(), asianCountryNonAsianBordersCountMap.getOrDefault(entry.getKey(), 0) + 1);
-                    }
-                });
-            });
+        CodeIndex codeIndex = countrySnapshotStore.getSnapshot().getCodeIndex();
+        List<String> misses = new ArrayList<>();
+        for (Map.Entry<String, CountryRecord> entry : resolved.entrySet()) {
+            entry.setValue(codeIndex.find(entry.getKey()));
+            if (entry.getValue() == null) {
+                misses.add(entry.getKey());
+            }
+        }
+
+        boolean partial = false;
+        if (!misses.isEmpty()) {
+            log.debug("Fetching {} codes missing from the snapshot: {}", misses.size(), misses);
+            try {
+                CodeIndex fetched = new CodeIndex(fetchCountriesByCodes(misses));
+                misses.forEach(code -> resolved.put(code, fetched.find(code)));
+            } catch (RestClientException | IOException ex) {
+                log.error("Failed to fetch countries {} from upstream", misses, ex);
+                partial = true;
+            }
+        }
 
+        // Codes of the same country are answered once, in the order of the first one
+        Set<CountryRecord> countries = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<CountryRecord> found = new ArrayList<>();
+        List<String> notFound = new ArrayList<>();
+        resolved.forEach((code, country) -> {
+            if (country == null) {
+                notFound.add(code);
+            } else if (countries.add(country)) {
+                found.add(country);
+            }
         });
 
-        log.debug("New Map created with key as Asian country code and value as the count of its non-asian borders: {}", asianCountryNonAsianBordersCountMap);
-        return asianCountryNonAsianBordersCountMap;
+        FieldProjection projection = fieldProjectionCache.get(fields);
+        byte[] countriesJson = projection == null ? DensityRanking.toJsonArray(found) : projection.projectCountries(objectMapper.getFactory(), found);
+        try {
+            ByteArrayOutputStream json = new ByteArrayOutputStream(countriesJson.length + 64);
+            json.writeBytes("{\"countries\":".getBytes(StandardCharsets.US_ASCII));
+            json.writeBytes(countriesJson);
+            json.writeBytes(",\"notFound\":".getBytes(StandardCharsets.US_ASCII));
+            json.writeBytes(objectMapper.writeValueAsBytes(notFound));
+            json.writeBytes((",\"partial\":" + partial + "}").getBytes(StandardCharsets.US_ASCII));
+            return json.toByteArray();
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("Unable to encode the codes not found", ex);
+        }
+    }
+
+
+    /**
+     * This method reconstructs the shortest land route between two countries from the hop matrix of the current snapshot
+     *
+     * @param from the code of the first country
+     * @param to   the code of the second country
+     * @return the LandRouteResponseDto
+     * @throws CountryNotFoundException if a code matches no country
+     */
+    @Override
+    public LandRouteResponseDto getLandRoute(String from, String to) {
+        log.info("Entering getLandRoute method");
+
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+        BorderGraph borderGraph = snapshot.getBorderGraph();
+        int fromId = borderGraph.idOf(findCountryByCode(snapshot, from).getCca3());
+        int toId = borderGraph.idOf(findCountryByCode(snapshot, to).getCca3());
+        if (fromId < 0 || toId < 0) {
+            log.error("Country without cca3 code requested for a land route: {} {}", from, to);
+            throw new CountryNotFoundException("Country not found");
+        }
+
+        LandRoutes landRoutes = snapshot.getLandRoutes();
+        int borderCrossings = landRoutes.hopsBetween(fromId, toId);
+        List<String> path = new ArrayList<>();
+        for (int id : landRoutes.route(fromId, toId)) {
+            path.add(borderGraph.countryOf(id).getCca3());
+        }
+        boolean reachable = borderCrossings != LandRoutes.UNREACHABLE;
+        return new LandRouteResponseDto(borderGraph.countryOf(fromId).getCca3(), borderGraph.countryOf(toId).getCca3(), reachable,
+                reachable ? borderCrossings : null, path);
+    }
+
+
+    /**
+     * This method lists the connected components of the border graph of the current snapshot
+     *
+     * @param minSize the minimum number of countries of a component
+     * @return the list of type LandComponentResponseDto
+     * @throws CountryNotFoundException if no country is available
+     */
+    @Override
+    public List<LandComponentResponseDto> getLandComponents(int minSize) {
+        log.info("Entering getLandComponents method");
+
+        if (minSize < 1) {
+            throw new IllegalArgumentException("minSize must be greater than 0");
+        }
+
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+        if (snapshot.isEmpty()) {
+            log.error("No countries available for land components");
+            throw new CountryNotFoundException("Country not found");
+        }
+        BorderGraph borderGraph = snapshot.getBorderGraph();
+        List<LandComponentResponseDto> components = new ArrayList<>();
+        for (int[] component : snapshot.getLandRoutes().components()) {
+            if (component.length >= minSize) {
+                List<String> countries = new ArrayList<>(component.length);
+                for (int id : component) {
+                    countries.add(borderGraph.countryOf(id).getCca3());
+                }
+                countries.sort(Comparator.nullsLast(Comparator.naturalOrder()));
+                components.add(new LandComponentResponseDto(component.length, countries));
+            }
+        }
+        components.sort(Comparator.comparingInt(LandComponentResponseDto::getSize).reversed()
+                .thenComparing(component -> String.valueOf(component.getCountries().get(0))));
+        return components;
+    }
+
+
+    /**
+     * This method ranks the landlocked countries of the current snapshot by the borders to cross to reach a coast
+     *
+     * @param top the maximum number of countries
+     * @return the list of type LandlockedDepthResponseDto
+     * @throws CountryNotFoundException if no country is available
+     */
+    @Override
+    public List<LandlockedDepthResponseDto> getLandlockedDepths(int top) {
+        log.info("Entering getLandlockedDepths method");
+
+        if (top < 1) {
+            throw new IllegalArgumentException("top must be greater than 0");
+        }
+
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+        if (snapshot.isEmpty()) {
+            log.error("No countries available for landlocked depths");
+            throw new CountryNotFoundException("Country not found");
+        }
+        BorderGraph borderGraph = snapshot.getBorderGraph();
+        LandRoutes landRoutes = snapshot.getLandRoutes();
+        // Landlocked countries without a land route to a coast have no depth and are not ranked
+        List<LandlockedDepthResponseDto> depths = new ArrayList<>();
+        for (int id = 0; id < borderGraph.size(); id++) {
+            int depth = landRoutes.landlockedDepthOf(id);
+            if (depth > 0) {
+                CountryRecord country = borderGraph.countryOf(id);
+                depths.add(new LandlockedDepthResponseDto(country.getCca3(), country.getNameCommon(), country.getRegion(), depth));
+            }
+        }
+        depths.sort(Comparator.comparingInt(LandlockedDepthResponseDto::getDepth).reversed()
+                .thenComparing(depth -> String.valueOf(depth.getCca3())));
+        return depths.size() > top ? depths.subList(0, top) : depths;
+    }
+
+
+    /**
+     * This method resolves a code against the code index of the current snapshot
+     *
+     * @param snapshot the snapshot
+     * @param code     the cca2, cca3, ccn3 or cioc code
+     * @return the CountryRecord
+     * @throws CountryNotFoundException if the code matches no country
+     */
+    private CountryRecord findCountryByCode(CountrySnapshot snapshot, String code) {
+        if (!CodeIndex.isValidCode(code)) {
+            throw new IllegalArgumentException("Invalid country code: " + code);
+        }
+        CountryRecord country = snapshot.getCodeIndex().find(code);
+        if (country == null) {
+            throw new CountryNotFoundException("Country not found: " + code);
+        }
+        return country;
+    }
+
+
+    /**
+     * This method fetches countries by code from the upstream API in one call
+     *
+     * @param codes the normalized codes
+     * @return the countries found, none if the upstream API knows none of the codes
+     * @throws IOException if the upstream response is not a JSON array
+     */
+    private List<CountryRecord> fetchCountriesByCodes(List<String> codes) throws IOException {
+        String url = UriComponentsBuilder.fromUriString(countriesByCodesApiUrl).buildAndExpand(String.join(",", codes)).toUriString();
+        ResponseEntity<byte[]> response;
+        try {
+            response = restApiRequestHelper.fetchRawResponse(url, new HttpHeaders());
+        } catch (HttpClientErrorException.NotFound ex) {
+            return List.of();
+        }
+        byte[] payload = response == null ? null : response.getBody();
+        return payload == null || payload.length == 0 ? List.of() : countryRecordParser.parse(payload);
     }
 
 }
@@ -0,0 +1,275 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.payload.BorderCountResponseDto;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+
+/**
+ * The Class BorderGraph
+ * Compact land border graph built once per snapshot.
+ * Countries are mapped to int ids (their position in the snapshot), adjacency is stored in CSR form
+ * ({@code offsets}/{@code targets}) and every node carries a byte region id.
+ * The per region rankings of foreign borders are precomputed so queries only slice them.
+ */
+public final class BorderGraph {
+    private final List<CountryRecord> nodes;
+
+    private final Map<String, Integer> idsByCca3;
+
+    private final int[] offsets;
+
+    private final int[] targets;
+
+    private final byte[] regionIds;
+
+    private final String[] regionNames;
+
+    private final Map<String, Byte> regionIdsByName;
+
+    /**
+     * Number of borders leading out of the node's region, borders to countries missing from the snapshot included
+     */
+    private final int[] foreignBorderCounts;
+
+    private final boolean[] regionHasBorders;
+
+    private final List<List<BorderCountResponseDto>> foreignBorderRankings;
+
+    /**
+     * Instantiates a new BorderGraph
+     *
+     * @param countries the snapshot countries, their positions become the node ids
+     */
+    public BorderGraph(List<CountryRecord> countries) {
+        int size = countries.size();
+        this.nodes = countries;
+
+        Map<String, Integer> ids = new HashMap<>(size * 2);
+        for (int id = 0; id < size; id++) {
+            String cca3 = countries.get(id).getCca3();
+            if (cca3 != null) {
+                ids.putIfAbsent(cca3, id);
+            }
+        }
+        this.idsByCca3 = Collections.unmodifiableMap(ids);
+
+        // Region dictionary, ids are assigned in order of first appearance, names compare case-insensitively
+        Map<String, Byte> regionDictionary = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        List<String> names = new ArrayList<>();
+        this.regionIds = new byte[size];
+        for (int id = 0; id < size; id++) {
+            String region = countries.get(id).getRegion();
+            String key = region == null ? "" : region;
+            Byte regionId = regionDictionary.get(key);
+            if (regionId == null) {
+                if (names.size() > Byte.MAX_VALUE) {
+                    throw new IllegalStateException("Too many regions for a byte region id: " + names.size());
+                }
+                regionId = (byte) names.size();
+                regionDictionary.put(key, regionId);
+                names.add(region == null ? "" : region);
+            }
+            this.regionIds[id] = regionId;
+        }
+        this.regionNames = names.toArray(new String[0]);
+        this.regionIdsByName = Collections.unmodifiableMap(regionDictionary);
+
+        // CSR adjacency over the known countries, counting foreign borders on the way
+        this.offsets = new int[size + 1];
+        this.foreignBorderCounts = new int[size];
+        this.regionHasBorders = new boolean[regionNames.length];
+        int[] edges = new int[16];
+        int edgeCount = 0;
+        for (int id = 0; id < size; id++) {
+            offsets[id] = edgeCount;
+            String[] borders = countries.get(id).getBorders();
+            if (borders.length == 0) {
+                continue;
+            }
+            regionHasBorders[regionIds[id]] = true;
+            for (String border : borders) {
+                Integer target = ids.get(border);
+                if (target == null || regionIds[target] != regionIds[id]) {
+                    foreignBorderCounts[id]++;
+                }
+                if (target != null) {
+                    if (edgeCount == edges.length) {
+                        edges = Arrays.copyOf(edges, edges.length * 2);
+                    }
+                    edges[edgeCount++] = target;
+                }
+            }
+        }
+        offsets[size] = edgeCount;
+        this.targets = Arrays.copyOf(edges, edgeCount);
+
+        this.foreignBorderRankings = buildForeignBorderRankings();
+    }
+
+    private BorderGraph(BorderGraph graph, List<CountryRecord> countries) {
+        this.nodes = countries;
+        this.idsByCca3 = graph.idsByCca3;
+        this.offsets = graph.offsets;
+        this.targets = graph.targets;
+        this.regionIds = graph.regionIds;
+        this.regionNames = graph.regionNames;
+        this.regionIdsByName = graph.regionIdsByName;
+        this.foreignBorderCounts = graph.foreignBorderCounts;
+        this.regionHasBorders = graph.regionHasBorders;
+        this.foreignBorderRankings = graph.foreignBorderRankings;
+    }
+
+    /**
+     * Gets this graph over new records of the same countries, with the same borders, regions and names.
+     *
+     * @param countries the countries, in the order of the nodes
+     * @return the BorderGraph sharing the adjacency and rankings of this one
+     */
+    BorderGraph withCountries(List<CountryRecord> countries) {
+        return new BorderGraph(this, countries);
+    }
+
+    /**
+     * Gets the number of nodes.
+     *
+     * @return the node count
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Gets the node id of a country.
+     *
+     * @param cca3 the cca3 code
+     * @return the node id, or -1 if the country is not part of the graph
+     */
+    public int idOf(String cca3) {
+        Integer id = cca3 == null ? null : idsByCca3.get(cca3);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the country of a node.
+     *
+     * @param id the node id
+     * @return the CountryRecord
+     */
+    public CountryRecord countryOf(int id) {
+        return nodes.get(id);
+    }
+
+    /**
+     * Gets the region id of a region name, case-insensitive without allocating a lowercase copy.
+     *
+     * @param region the region name
+     * @return the region id, or -1 if no country belongs to the region
+     */
+    public int regionIdOf(String region) {
+        Byte regionId = region == null ? null : regionIdsByName.get(region);
+        return regionId == null ? -1 : regionId;
+    }
+
+    /**
+     * Gets the region id of a node.
+     *
+     * @param id the node id
+     * @return the region id
+     */
+    public byte regionOf(int id) {
+        return regionIds[id];
+    }
+
+    /**
+     * Gets the first index of the node's neighbours in the CSR targets.
+     *
+     * @param id the node id
+     * @return the start offset, inclusive
+     */
+    public int neighboursStart(int id) {
+        return offsets[id];
+    }
+
+    /**
+     * Gets the end index of the node's neighbours in the CSR targets.
+     *
+     * @param id the node id
+     * @return the end offset, exclusive
+     */
+    public int neighboursEnd(int id) {
+        return offsets[id + 1];
+    }
+
+    /**
+     * Gets the neighbour at a CSR position.
+     *
+     * @param position the position between {@link #neighboursStart(int)} and {@link #neighboursEnd(int)}
+     * @return the neighbour node id
+     */
+    public int neighbourAt(int position) {
+        return targets[position];
+    }
+
+    /**
+     * Gets the number of borders of a node leading out of its region.
+     *
+     * @param id the node id
+     * @return the foreign border count
+     */
+    public int foreignBorderCountOf(int id) {
+        return foreignBorderCounts[id];
+    }
+
+    /**
+     * Checks whether any country of the region has at least one border.
+     *
+     * @param regionId the region id
+     * @return true if the region has borders
+     */
+    public boolean regionHasBorders(int regionId) {
+        return regionHasBorders[regionId];
+    }
+
+    /**
+     * Gets the countries of a region with at least one foreign border, ordered by foreign border count descending.
+     * The returned list is precomputed and shared, callers must not modify it.
+     *
+     * @param regionId the region id
+     * @param top      the maximum number of countries
+     * @return the ranked countries
+     */
+    public List<BorderCountResponseDto> mostForeignBorders(int regionId, int top) {
+        List<BorderCountResponseDto> ranking = foreignBorderRankings.get(regionId);
+        return top >= ranking.size() ? ranking : ranking.subList(0, top);
+    }
+
+    private List<List<BorderCountResponseDto>> buildForeignBorderRankings() {
+        List<List<BorderCountResponseDto>> rankings = new ArrayList<>(regionNames.length);
+        for (int regionId = 0; regionId < regionNames.length; regionId++) {
+            final int region = regionId;
+            Integer[] ranked = IntStream.range(0, nodes.size())
+                    .filter(id -> regionIds[id] == region && foreignBorderCounts[id] > 0)
+                    .boxed()
+                    .sorted((left, right) -> foreignBorderCounts[left] != foreignBorderCounts[right]
+                            ? Integer.compare(foreignBorderCounts[right], foreignBorderCounts[left])
+                            : String.valueOf(nodes.get(left).getCca3()).compareTo(String.valueOf(nodes.get(right).getCca3())))
+                    .toArray(Integer[]::new);
+
+            List<BorderCountResponseDto> ranking = new ArrayList<>(ranked.length);
+            for (int id : ranked) {
+                CountryRecord country = nodes.get(id);
+                ranking.add(new BorderCountResponseDto(country.getCca3(), country.getNameCommon(), country.getRegion(), foreignBorderCounts[id]));
+            }
+            rankings.add(Collections.unmodifiableList(ranking));
+        }
+        return rankings;
+    }
+}
@@ -0,0 +1,102 @@
+package com.acc.countries.snapshot;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+
+/**
+ * The Class CodeIndex
+ * Hash indexes of the countries by each of their codes: cca2, cca3, ccn3 and cioc.
+ * A code is resolved by its shape, 2 letters are cca2, 3 digits are ccn3, 3 letters are cca3 and then cioc,
+ * the same rules as the upstream {@code /alpha} endpoint.
+ */
+public final class CodeIndex {
+    private static final Pattern CODE = Pattern.compile("[A-Za-z]{2,3}|[0-9]{3}");
+
+    private final Map<String, CountryRecord> byCca2;
+
+    private final Map<String, CountryRecord> byCca3;
+
+    private final Map<String, CountryRecord> byCcn3;
+
+    private final Map<String, CountryRecord> byCioc;
+
+    /**
+     * Instantiates a new CodeIndex
+     *
+     * @param countries the countries, the first country of a duplicated code wins
+     */
+    public CodeIndex(List<CountryRecord> countries) {
+        this.byCca2 = indexBy(countries, CountryRecord::getCca2);
+        this.byCca3 = indexBy(countries, CountryRecord::getCca3);
+        this.byCcn3 = indexBy(countries, CountryRecord::getCcn3);
+        this.byCioc = indexBy(countries, CountryRecord::getCioc);
+    }
+
+    private static Map<String, CountryRecord> indexBy(List<CountryRecord> countries, Function<CountryRecord, String> code) {
+        Map<String, CountryRecord> index = new HashMap<>(countries.size() * 2);
+        for (CountryRecord country : countries) {
+            String value = code.apply(country);
+            if (value != null && !value.isEmpty()) {
+                index.putIfAbsent(normalize(value), country);
+            }
+        }
+        return Collections.unmodifiableMap(index);
+    }
+
+    /**
+     * Checks whether a text has the shape of a country code.
+     *
+     * @param code the code
+     * @return true if the code is 2 or 3 letters or 3 digits
+     */
+    public static boolean isValidCode(String code) {
+        return code != null && CODE.matcher(code.trim()).matches();
+    }
+
+    /**
+     * Normalizes a code for lookups.
+     *
+     * @param code the code
+     * @return the trimmed, upper case code
+     */
+    public static String normalize(String code) {
+        return code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Finds a country by any of its codes.
+     *
+     * @param code the cca2, cca3, ccn3 or cioc code, case-insensitive
+     * @return the CountryRecord, or null if absent
+     */
+    public CountryRecord find(String code) {
+        if (!isValidCode(code)) {
+            return null;
+        }
+        String normalized = normalize(code);
+        if (normalized.length() == 2) {
+            return byCca2.get(normalized);
+        }
+        if (Character.isDigit(normalized.charAt(0))) {
+            return byCcn3.get(normalized);
+        }
+        CountryRecord country = byCca3.get(normalized);
+        return country != null ? country : byCioc.get(normalized);
+    }
+
+    /**
+     * Finds a country by its cca3 code.
+     *
+     * @param cca3 the cca3 code, case-sensitive
+     * @return the CountryRecord, or null if absent
+     */
+    public CountryRecord findByCca3(String cca3) {
+        return cca3 == null ? null : byCca3.get(cca3);
+    }
+}
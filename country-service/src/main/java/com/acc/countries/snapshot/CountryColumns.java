@@ -0,0 +1,180 @@
+package com.acc.countries.snapshot;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+
+/**
+ * The Class CountryColumns
+ * Columnar view of the numeric and categorical country fields, built once per snapshot.
+ * Row {@code i} is the country at position {@code i} of the snapshot. Regions and subregions are dictionary
+ * encoded as byte and short ids, boolean fields are packed as bit flags, so aggregations run in tight loops
+ * over primitive arrays without touching a {@link CountryRecord}.
+ */
+public final class CountryColumns {
+    public static final byte INDEPENDENT = 1;
+
+    public static final byte UN_MEMBER = 1 << 1;
+
+    public static final byte LANDLOCKED = 1 << 2;
+
+    private final long[] population;
+
+    private final double[] area;
+
+    private final byte[] regionIds;
+
+    private final short[] subregionIds;
+
+    private final byte[] flags;
+
+    private final String[] regionNames;
+
+    private final String[] subregionNames;
+
+    /**
+     * Instantiates a new CountryColumns
+     *
+     * @param countries the snapshot countries, their positions become the row numbers
+     */
+    public CountryColumns(List<CountryRecord> countries) {
+        int size = countries.size();
+        this.population = new long[size];
+        this.area = new double[size];
+        this.regionIds = new byte[size];
+        this.subregionIds = new short[size];
+        this.flags = new byte[size];
+
+        // Dictionaries, ids are assigned in order of first appearance
+        Map<String, Integer> regionDictionary = new HashMap<>();
+        List<String> regions = new ArrayList<>();
+        Map<String, Integer> subregionDictionary = new HashMap<>();
+        List<String> subregions = new ArrayList<>();
+        for (int row = 0; row < size; row++) {
+            CountryRecord country = countries.get(row);
+            population[row] = country.getPopulation();
+            area[row] = country.getArea();
+            regionIds[row] = (byte) idOf(country.getRegion(), regionDictionary, regions, Byte.MAX_VALUE);
+            subregionIds[row] = (short) idOf(country.getSubregion(), subregionDictionary, subregions, Short.MAX_VALUE);
+            flags[row] = (byte) ((country.isIndependent() ? INDEPENDENT : 0)
+                    | (country.isUnMember() ? UN_MEMBER : 0)
+                    | (country.isLandlocked() ? LANDLOCKED : 0));
+        }
+        this.regionNames = regions.toArray(new String[0]);
+        this.subregionNames = subregions.toArray(new String[0]);
+    }
+
+    private static int idOf(String value, Map<String, Integer> dictionary, List<String> names, int maxId) {
+        String name = value == null ? "" : value;
+        return dictionary.computeIfAbsent(name.toLowerCase(Locale.ROOT), key -> {
+            if (names.size() > maxId) {
+                throw new IllegalStateException("Too many distinct values for the column dictionary: " + names.size());
+            }
+            names.add(name);
+            return names.size() - 1;
+        });
+    }
+
+    /**
+     * Gets the number of rows.
+     *
+     * @return the row count
+     */
+    public int size() {
+        return population.length;
+    }
+
+    /**
+     * Gets the population of a row.
+     *
+     * @param row the row
+     * @return the population
+     */
+    public long populationOf(int row) {
+        return population[row];
+    }
+
+    /**
+     * Gets the area of a row.
+     *
+     * @param row the row
+     * @return the area in square kilometres, 0 if unknown
+     */
+    public double areaOf(int row) {
+        return area[row];
+    }
+
+    /**
+     * Gets the region id of a row.
+     *
+     * @param row the row
+     * @return the region id
+     */
+    public int regionOf(int row) {
+        return regionIds[row];
+    }
+
+    /**
+     * Gets the subregion id of a row.
+     *
+     * @param row the row
+     * @return the subregion id
+     */
+    public int subregionOf(int row) {
+        return subregionIds[row];
+    }
+
+    /**
+     * Checks the flags of a row.
+     *
+     * @param row      the row
+     * @param required the flags that must be set
+     * @param excluded the flags that must not be set
+     * @return true if the row matches
+     */
+    public boolean matches(int row, int required, int excluded) {
+        int rowFlags = flags[row];
+        return (rowFlags & required) == required && (rowFlags & excluded) == 0;
+    }
+
+    /**
+     * Gets the number of distinct regions.
+     *
+     * @return the region count
+     */
+    public int regionCount() {
+        return regionNames.length;
+    }
+
+    /**
+     * Gets the name of a region id.
+     *
+     * @param regionId the region id
+     * @return the region name, empty for countries without region
+     */
+    public String regionName(int regionId) {
+        return regionNames[regionId];
+    }
+
+    /**
+     * Gets the number of distinct subregions.
+     *
+     * @return the subregion count
+     */
+    public int subregionCount() {
+        return subregionNames.length;
+    }
+
+    /**
+     * Gets the name of a subregion id.
+     *
+     * @param subregionId the subregion id
+     * @return the subregion name, empty for countries without subregion
+     */
+    public String subregionName(int subregionId) {
+        return subregionNames[subregionId];
+    }
+}
@@ -0,0 +1,155 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.payload.CountryResponseDto;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AccessLevel;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+
+/**
+ * The Class CountryRecord
+ * Compact internal view of a country holding only the fields the snapshot indexes.
+ * The complete country, heavy sub-objects such as translations, demonyms, maps, flags and coatOfArms included,
+ * is kept as its compact upstream JSON and only decoded when a client asks for the full country.
+ * Within a snapshot that JSON is a slice of one shared buffer, see {@link DensityRanking}, so the bytes of a country
+ * are held once. Strings repeated across countries are shared through a {@link StringPool}.
+ */
+@Getter
+@Builder(toBuilder = true)
+public final class CountryRecord {
+    private static final String[] NO_BORDERS = new String[0];
+
+    private static final double[] NO_COORDINATES = new double[0];
+
+    private final String cca2;
+
+    private final String ccn3;
+
+    private final String cca3;
+
+    private final String cioc;
+
+    private final String nameCommon;
+
+    private final String nameOfficial;
+
+    private final String region;
+
+    private final String subregion;
+
+    private final long population;
+
+    private final double area;
+
+    private final boolean independent;
+
+    private final boolean unMember;
+
+    private final boolean landlocked;
+
+    @Builder.Default
+    private final String[] borders = NO_BORDERS;
+
+    /**
+     * Latitude and longitude of the country, empty if unknown
+     */
+    @Builder.Default
+    private final double[] latlng = NO_COORDINATES;
+
+    /**
+     * Latitude and longitude of the capital, empty if unknown
+     */
+    @Builder.Default
+    private final double[] capitalLatlng = NO_COORDINATES;
+
+    /**
+     * The buffer holding the complete country as compact upstream JSON, shared and never modified
+     */
+    @Getter(AccessLevel.NONE)
+    private final byte[] jsonBuffer;
+
+    @Getter(AccessLevel.NONE)
+    private final int jsonOffset;
+
+    private final int jsonLength;
+
+    /**
+     * Gets the complete country as compact upstream JSON.
+     *
+     * @return the JSON bytes, a copy when the record is a slice of a shared buffer
+     */
+    public byte[] getJson() {
+        if (jsonOffset == 0 && jsonLength == jsonBuffer.length) {
+            return jsonBuffer;
+        }
+        return Arrays.copyOfRange(jsonBuffer, jsonOffset, jsonOffset + jsonLength);
+    }
+
+    /**
+     * Gets a read-only view of the complete country JSON, without copying it.
+     *
+     * @return the ByteBuffer
+     */
+    public ByteBuffer jsonBuffer() {
+        return ByteBuffer.wrap(jsonBuffer, jsonOffset, jsonLength).slice().asReadOnlyBuffer();
+    }
+
+    /**
+     * Creates a parser over the complete country JSON, without copying it.
+     *
+     * @param jsonFactory the json factory
+     * @return the JsonParser
+     * @throws IOException if the parser cannot be created
+     */
+    public JsonParser createJsonParser(JsonFactory jsonFactory) throws IOException {
+        return jsonFactory.createParser(jsonBuffer, jsonOffset, jsonLength);
+    }
+
+    /**
+     * Gets a copy of this record whose JSON is a slice of another buffer holding the same bytes.
+     *
+     * @param buffer the buffer
+     * @param offset the offset of the country JSON in the buffer
+     * @return the CountryRecord
+     */
+    CountryRecord withJsonIn(byte[] buffer, int offset) {
+        return toBuilder().jsonBuffer(buffer).jsonOffset(offset).build();
+    }
+
+    /**
+     * Decodes the complete country into the public DTO.
+     *
+     * @param objectMapper the object mapper
+     * @return the CountryResponseDto
+     */
+    public CountryResponseDto toDto(ObjectMapper objectMapper) {
+        try {
+            return objectMapper.readValue(jsonBuffer, jsonOffset, jsonLength, CountryResponseDto.class);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to decode country " + cca3, ex);
+        }
+    }
+
+    /**
+     * The Builder class of CountryRecord
+     */
+    public static class CountryRecordBuilder {
+        /**
+         * Sets the complete country JSON.
+         *
+         * @param json the compact JSON bytes, owned by the record from now on
+         * @return the CountryRecordBuilder
+         */
+        public CountryRecordBuilder json(byte[] json) {
+            return jsonBuffer(json).jsonOffset(0).jsonLength(json.length);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.acc.countries.snapshot;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+
+/**
+ * The Class CountryRecordParser
+ * Streaming ingest of the upstream country array. The payload is read token by token, the indexed fields are
+ * picked into a {@link CountryRecord} and every country is copied as compact JSON, without binding the
+ * complete {@code CountryResponseDto} object trees. The strings repeated across countries are deduplicated
+ * through one {@link StringPool} per payload.
+ */
+@Component
+public class CountryRecordParser {
+    private static final String[] NO_TEXTS = new String[0];
+
+    private static final double[] NO_COORDINATES = new double[0];
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * Parses a JSON array of countries.
+     *
+     * @param payload the upstream payload
+     * @return the list of CountryRecord in payload order
+     * @throws IOException if the payload is not a JSON array of countries
+     */
+    public List<CountryRecord> parse(byte[] payload) throws IOException {
+        JsonFactory jsonFactory = objectMapper.getFactory();
+        List<CountryRecord> countries = new ArrayList<>(256);
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        StringPool stringPool = new StringPool();
+
+        try (JsonParser parser = jsonFactory.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new IOException("Expected a JSON array of countries");
+            }
+
+            JsonToken token;
+            while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+                if (token == null) {
+                    throw new IOException("Unexpected end of the countries array");
+                }
+                if (token != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                buffer.reset();
+                countries.add(parseCountry(parser, jsonFactory, buffer, stringPool));
+            }
+        }
+        return countries;
+    }
+
+    /**
+     * Parses one compact country object, as kept in {@link CountryRecord#getJson()}.
+     *
+     * @param json       the country JSON object
+     * @param stringPool the pool shared by the countries of the snapshot
+     * @return the CountryRecord
+     * @throws IOException if the payload is not a JSON object
+     */
+    public CountryRecord parseCountry(byte[] json, StringPool stringPool) throws IOException {
+        JsonFactory jsonFactory = objectMapper.getFactory();
+        try (JsonParser parser = jsonFactory.createParser(json)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Expected a JSON country object");
+            }
+            return parseCountry(parser, jsonFactory, new ByteArrayOutputStream(json.length), stringPool);
+        }
+    }
+
+    /**
+     * Parses one country object, the parser is positioned on its START_OBJECT token.
+     */
+    private CountryRecord parseCountry(JsonParser parser, JsonFactory jsonFactory, ByteArrayOutputStream buffer, StringPool stringPool) throws IOException {
+        CountryRecord.CountryRecordBuilder country = CountryRecord.builder();
+
+        try (JsonGenerator generator = jsonFactory.createGenerator(buffer)) {
+            generator.writeStartObject();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                generator.writeFieldName(field);
+                JsonToken value = parser.nextToken();
+
+                switch (field) {
+                    case "name" -> {
+                        JsonNode name = copyTree(parser, generator);
+                        country.nameCommon(textOf(name.get("common")));
+                        country.nameOfficial(textOf(name.get("official")));
+                    }
+                    case "cca2" -> country.cca2(copyText(parser, generator, value));
+                    case "ccn3" -> country.ccn3(copyText(parser, generator, value));
+                    case "cca3" -> country.cca3(stringPool.intern(copyText(parser, generator, value)));
+                    case "cioc" -> country.cioc(stringPool.intern(copyText(parser, generator, value)));
+                    case "region" -> country.region(stringPool.intern(copyText(parser, generator, value)));
+                    case "subregion" -> country.subregion(stringPool.intern(copyText(parser, generator, value)));
+                    case "population" -> {
+                        if (value.isNumeric()) {
+                            country.population(parser.getLongValue());
+                        }
+                        generator.copyCurrentStructure(parser);
+                    }
+                    case "area" -> {
+                        if (value.isNumeric()) {
+                            country.area(parser.getDoubleValue());
+                        }
+                        generator.copyCurrentStructure(parser);
+                    }
+                    case "independent" -> country.independent(copyBoolean(parser, generator, value));
+                    case "unMember" -> country.unMember(copyBoolean(parser, generator, value));
+                    case "landlocked" -> country.landlocked(copyBoolean(parser, generator, value));
+                    case "borders" -> country.borders(textsOf(copyTree(parser, generator), stringPool));
+                    case "latlng" -> country.latlng(coordinatesOf(copyTree(parser, generator)));
+                    case "capitalInfo" -> country.capitalLatlng(coordinatesOf(copyTree(parser, generator).get("latlng")));
+                    default -> generator.copyCurrentStructure(parser);
+                }
+            }
+            generator.writeEndObject();
+        }
+        return country.json(buffer.toByteArray()).build();
+    }
+
+    private JsonNode copyTree(JsonParser parser, JsonGenerator generator) throws IOException {
+        JsonNode node = parser.currentToken() == JsonToken.VALUE_NULL ? objectMapper.nullNode() : objectMapper.readTree(parser);
+        generator.writeTree(node);
+        return node;
+    }
+
+    private static String copyText(JsonParser parser, JsonGenerator generator, JsonToken value) throws IOException {
+        String text = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+        generator.copyCurrentStructure(parser);
+        return text;
+    }
+
+    private static boolean copyBoolean(JsonParser parser, JsonGenerator generator, JsonToken value) throws IOException {
+        boolean flag = value == JsonToken.VALUE_TRUE;
+        generator.copyCurrentStructure(parser);
+        return flag;
+    }
+
+    private static String textOf(JsonNode node) {
+        return node == null || !node.isTextual() ? null : node.textValue();
+    }
+
+    private static String[] textsOf(JsonNode node, StringPool stringPool) {
+        if (node == null || !node.isArray() || node.isEmpty()) {
+            return NO_TEXTS;
+        }
+        String[] texts = new String[node.size()];
+        for (int i = 0; i < texts.length; i++) {
+            texts[i] = stringPool.intern(node.get(i).asText());
+        }
+        return texts;
+    }
+
+    private static double[] coordinatesOf(JsonNode node) {
+        if (node == null || !node.isArray() || node.size() < 2 || !node.get(0).isNumber() || !node.get(1).isNumber()) {
+            return NO_COORDINATES;
+        }
+        return new double[]{node.get(0).doubleValue(), node.get(1).doubleValue()};
+    }
+}
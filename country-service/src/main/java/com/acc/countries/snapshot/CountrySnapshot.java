@@ -0,0 +1,221 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.utils.ContentHash;
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+
+/**
+ * The Class CountrySnapshot
+ * Immutable, versioned view of all countries as returned by the upstream API.
+ * A snapshot is never modified after creation, it is replaced as a whole by {@link CountrySnapshotStore}.
+ * A snapshot updated from its predecessor only rebuilds the derived structures fed by the changed fields,
+ * the other ones are carried over and rebound to the new records.
+ */
+@Getter
+public final class CountrySnapshot {
+    private static final CountrySnapshot EMPTY = new CountrySnapshot(0L, Instant.EPOCH, List.of());
+
+    /**
+     * The Enum Structure, the derived structures of a snapshot with the top-level country fields they are built from
+     */
+    public enum Structure {
+        DENSITY_ORDER("population", "area"),
+        BORDER_GRAPH("borders", "region", "name"),
+        LAND_ROUTES("borders", "landlocked"),
+        COLUMNS("population", "area", "region", "subregion", "independent", "unMember", "landlocked"),
+        COUNTRY_LOCATIONS("latlng"),
+        CAPITAL_LOCATIONS("capitalInfo"),
+        SEARCH_INDEX("name", "altSpellings", "translations");
+
+        private final Set<String> sourceFields;
+
+        Structure(String... sourceFields) {
+            this.sourceFields = Set.of(sourceFields);
+        }
+
+        public Set<String> getSourceFields() {
+            return sourceFields;
+        }
+    }
+
+    /**
+     * Monotonically increasing version, derived from the fetch time in epoch millis
+     */
+    private final long version;
+
+    private final Instant fetchedAt;
+
+    private final List<CountryRecord> countries;
+
+    private final CodeIndex codeIndex;
+
+    private final DensityRanking densityRanking;
+
+    private final BorderGraph borderGraph;
+
+    /**
+     * All-pairs border crossing distances over the border graph
+     */
+    private final LandRoutes landRoutes;
+
+    private final CountryColumns countryColumns;
+
+    /**
+     * Nearest neighbour index over the country positions ({@code latlng})
+     */
+    private final SpatialIndex countryLocations;
+
+    /**
+     * Nearest neighbour index over the capital positions ({@code capitalInfo.latlng})
+     */
+    private final SpatialIndex capitalLocations;
+
+    private final SearchIndex searchIndex;
+
+    /**
+     * Content hash of every country, in the order of {@link #countries}
+     */
+    @Getter(AccessLevel.NONE)
+    private final long[] contentHashes;
+
+    /**
+     * The structures built for this snapshot, the others were carried over from the previous one
+     */
+    private final Set<Structure> rebuiltStructures;
+
+    /**
+     * Instantiates a new CountrySnapshot
+     *
+     * @param version   the version
+     * @param fetchedAt the time the data was fetched from upstream
+     * @param countries the countries
+     */
+    public CountrySnapshot(long version, Instant fetchedAt, List<CountryRecord> countries) {
+        this(version, fetchedAt, countries, null, null);
+    }
+
+    private CountrySnapshot(long version, Instant fetchedAt, List<CountryRecord> countries, CountrySnapshot previous, SnapshotDiff diff) {
+        this.version = version;
+        this.fetchedAt = fetchedAt;
+        // Row based structures can only be carried over when the rows hold the same countries
+        EnumSet<Structure> rebuilt = EnumSet.allOf(Structure.class);
+        if (previous != null && diff.isAligned()) {
+            rebuilt.removeIf(structure -> !diff.affects(structure.getSourceFields()));
+        }
+        this.rebuiltStructures = Collections.unmodifiableSet(rebuilt);
+
+        this.densityRanking = rebuilt.contains(Structure.DENSITY_ORDER) ? DensityRanking.of(countries)
+                : DensityRanking.of(countries, previous.densityRanking.getOrder());
+        // The ranking holds the only copy of the country JSON, every index refers to its re-homed records
+        this.countries = densityRanking.getCountries();
+        this.contentHashes = diff != null ? diff.getContentHashes() : hashesOf(this.countries);
+
+        this.codeIndex = new CodeIndex(this.countries);
+        this.borderGraph = rebuilt.contains(Structure.BORDER_GRAPH) ? new BorderGraph(this.countries)
+                : previous.borderGraph.withCountries(this.countries);
+        this.landRoutes = rebuilt.contains(Structure.LAND_ROUTES) ? new LandRoutes(borderGraph)
+                : previous.landRoutes.withBorderGraph(borderGraph);
+        this.countryColumns = rebuilt.contains(Structure.COLUMNS) ? new CountryColumns(this.countries) : previous.countryColumns;
+        this.countryLocations = rebuilt.contains(Structure.COUNTRY_LOCATIONS) ? new SpatialIndex(this.countries, CountryRecord::getLatlng)
+                : previous.countryLocations.withCountries(this.countries);
+        this.capitalLocations = rebuilt.contains(Structure.CAPITAL_LOCATIONS) ? new SpatialIndex(this.countries, CountryRecord::getCapitalLatlng)
+                : previous.capitalLocations.withCountries(this.countries);
+        this.searchIndex = rebuilt.contains(Structure.SEARCH_INDEX) ? new SearchIndex(this.countries)
+                : previous.searchIndex.withCountries(this.countries);
+    }
+
+    /**
+     * Builds the successor of a snapshot, rebuilding only the structures fed by the fields the diff changed.
+     * The density ranking JSON and the code index are always rebuilt, they hold the country bytes and records.
+     *
+     * @param previous  the snapshot the diff was computed against
+     * @param version   the version
+     * @param fetchedAt the time the data was fetched from upstream
+     * @param countries the fetched countries
+     * @param diff      the diff between the previous snapshot and the countries
+     * @return the CountrySnapshot
+     */
+    public static CountrySnapshot update(CountrySnapshot previous, long version, Instant fetchedAt, List<CountryRecord> countries, SnapshotDiff diff) {
+        return new CountrySnapshot(version, fetchedAt, countries, previous.isEmpty() ? null : previous, diff);
+    }
+
+    /**
+     * Gets the same data under another version, every structure is shared and nothing is rebuilt.
+     *
+     * @param version   the version
+     * @param fetchedAt the time the data was fetched from upstream
+     * @return the CountrySnapshot
+     */
+    public CountrySnapshot withVersion(long version, Instant fetchedAt) {
+        return new CountrySnapshot(this, version, fetchedAt);
+    }
+
+    private CountrySnapshot(CountrySnapshot snapshot, long version, Instant fetchedAt) {
+        this.version = version;
+        this.fetchedAt = fetchedAt;
+        this.rebuiltStructures = Collections.emptySet();
+        this.densityRanking = snapshot.densityRanking;
+        this.countries = snapshot.countries;
+        this.contentHashes = snapshot.contentHashes;
+        this.codeIndex = snapshot.codeIndex;
+        this.borderGraph = snapshot.borderGraph;
+        this.landRoutes = snapshot.landRoutes;
+        this.countryColumns = snapshot.countryColumns;
+        this.countryLocations = snapshot.countryLocations;
+        this.capitalLocations = snapshot.capitalLocations;
+        this.searchIndex = snapshot.searchIndex;
+    }
+
+    private static long[] hashesOf(List<CountryRecord> countries) {
+        long[] hashes = new long[countries.size()];
+        for (int row = 0; row < hashes.length; row++) {
+            hashes[row] = ContentHash.of(countries.get(row).jsonBuffer());
+        }
+        return hashes;
+    }
+
+    /**
+     * Gets the content hash of a country.
+     *
+     * @param row the position of the country in {@link #getCountries()}
+     * @return the hash of its JSON
+     */
+    public long contentHashOf(int row) {
+        return contentHashes[row];
+    }
+
+    /**
+     * Gets the empty snapshot used before the first successful load.
+     *
+     * @return the empty CountrySnapshot
+     */
+    public static CountrySnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Checks whether this snapshot contains any country.
+     *
+     * @return true if no country is present
+     */
+    public boolean isEmpty() {
+        return countries.isEmpty();
+    }
+
+    /**
+     * Finds a country by its cca3 code.
+     *
+     * @param cca3 the cca3 code
+     * @return the CountryRecord or null if absent
+     */
+    public CountryRecord findByCca3(String cca3) {
+        return codeIndex.findByCca3(cca3);
+    }
+}
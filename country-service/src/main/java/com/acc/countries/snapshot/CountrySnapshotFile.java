@@ -0,0 +1,213 @@
+package com.acc.countries.snapshot;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+
+/**
+ * The Class CountrySnapshotFile
+ * Persists a {@link CountrySnapshot} to a compact binary file and loads it back through a {@link MappedByteBuffer},
+ * so a restarted replica serves the last known data before the upstream API answers.
+ * The same layout is served to the other replicas by {@code /internal/snapshot}, see {@link PeerSnapshotClient}.
+ * <p>
+ * Layout, big endian:
+ * <pre>
+ * int   magic 'CSNP'
+ * short format version
+ * long  snapshot version
+ * long  fetchedAt, epoch millis
+ * int   country count
+ * int   CRC32 of the header fields above and the body
+ * body: per country an int length followed by the compact country JSON
+ * </pre>
+ * Format version 1 files, whose checksum only covered the body, are rejected and the data is fetched again.
+ */
+@Slf4j
+@Component
+public class CountrySnapshotFile {
+    static final int MAGIC = 0x43534E50;
+
+    static final short FORMAT_VERSION = 2;
+
+    static final int CHECKSUM_OFFSET = 4 + 2 + 8 + 8 + 4;
+
+    static final int HEADER_SIZE = CHECKSUM_OFFSET + 4;
+
+    @Value("${country.snapshot.file:}")
+    private String snapshotFile;
+
+    @Autowired
+    private CountryRecordParser countryRecordParser;
+
+    /**
+     * Checks whether a snapshot file is configured.
+     *
+     * @return true if snapshots are persisted
+     */
+    public boolean isEnabled() {
+        return snapshotFile != null && !snapshotFile.isBlank();
+    }
+
+    /**
+     * Writes the snapshot, replacing the previous file atomically.
+     *
+     * @param snapshot the snapshot
+     * @throws IOException if the file cannot be written
+     */
+    public void save(CountrySnapshot snapshot) throws IOException {
+        Path path = Path.of(snapshotFile);
+        Path directory = path.toAbsolutePath().getParent();
+        Files.createDirectories(directory);
+
+        Path temporary = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            Files.write(temporary, encode(snapshot));
+            try {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        log.debug("Saved country snapshot version {} to {}", snapshot.getVersion(), path);
+    }
+
+    /**
+     * Loads the snapshot file.
+     *
+     * @return the CountrySnapshot, or null if no file exists
+     * @throws IOException if the file is unreadable, of another format or corrupted
+     */
+    public CountrySnapshot load() throws IOException {
+        Path path = Path.of(snapshotFile);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buffer);
+        }
+    }
+
+    /**
+     * Encodes a snapshot in the file layout.
+     *
+     * @param snapshot the snapshot
+     * @return the file bytes
+     */
+    public static byte[] encode(CountrySnapshot snapshot) {
+        List<CountryRecord> countries = snapshot.getCountries();
+        int bodySize = 0;
+        for (CountryRecord country : countries) {
+            bodySize += 4 + country.getJsonLength();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + bodySize);
+        buffer.position(HEADER_SIZE);
+        for (CountryRecord country : countries) {
+            buffer.putInt(country.getJsonLength()).put(country.jsonBuffer());
+        }
+
+        buffer.putInt(0, MAGIC)
+                .putShort(4, FORMAT_VERSION)
+                .putLong(6, snapshot.getVersion())
+                .putLong(14, snapshot.getFetchedAt().toEpochMilli())
+                .putInt(22, countries.size());
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, CHECKSUM_OFFSET);
+        crc.update(buffer.array(), HEADER_SIZE, bodySize);
+        buffer.putInt(CHECKSUM_OFFSET, (int) crc.getValue());
+        return buffer.array();
+    }
+
+    /**
+     * Decodes a snapshot from the file layout, validating the header and checksum first.
+     *
+     * @param buffer the file content
+     * @return the CountrySnapshot
+     * @throws IOException if the content is of another format or corrupted
+     */
+    CountrySnapshot decode(ByteBuffer buffer) throws IOException {
+        Contents contents = decodeContents(buffer);
+        return new CountrySnapshot(contents.version(), contents.fetchedAt(), contents.countries());
+    }
+
+    /**
+     * Decodes the countries of a snapshot from the file layout without building its indexes, so they can be diffed
+     * against the current snapshot first. The header and checksum are validated first.
+     *
+     * @param buffer the file content
+     * @return the Contents
+     * @throws IOException if the content is of another format or corrupted
+     */
+    public Contents decodeContents(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a country snapshot file");
+        }
+        short formatVersion = buffer.getShort(4);
+        if (formatVersion != FORMAT_VERSION) {
+            throw new IOException("Unsupported country snapshot format version " + formatVersion);
+        }
+        long version = buffer.getLong(6);
+        Instant fetchedAt = Instant.ofEpochMilli(buffer.getLong(14));
+        int count = buffer.getInt(22);
+        int checksum = buffer.getInt(CHECKSUM_OFFSET);
+        // Every country takes at least its length prefix, a larger count cannot come from the encoder
+        if (count < 0 || count > (buffer.limit() - HEADER_SIZE) / 4) {
+            throw new IOException("Invalid country count " + count);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, CHECKSUM_OFFSET));
+        crc.update(buffer.slice(HEADER_SIZE, buffer.limit() - HEADER_SIZE));
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("Country snapshot file checksum mismatch");
+        }
+
+        List<CountryRecord> countries = new ArrayList<>(count);
+        StringPool stringPool = new StringPool();
+        buffer.position(HEADER_SIZE);
+        for (int i = 0; i < count; i++) {
+            if (buffer.remaining() < 4) {
+                throw new IOException("Truncated country snapshot file");
+            }
+            int length = buffer.getInt();
+            if (length < 0 || length > buffer.remaining()) {
+                throw new IOException("Truncated country snapshot file");
+            }
+            byte[] json = new byte[length];
+            buffer.get(json);
+            countries.add(countryRecordParser.parseCountry(json, stringPool));
+        }
+        return new Contents(version, fetchedAt, countries);
+    }
+
+    /**
+     * The decoded content of a snapshot file
+     *
+     * @param version   the snapshot version
+     * @param fetchedAt the time the countries were fetched from the upstream API
+     * @param countries the countries, in snapshot order
+     */
+    public record Contents(long version, Instant fetchedAt, List<CountryRecord> countries) {
+    }
+}
@@ -0,0 +1,352 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.events.CountrySnapshotChangedEvent;
+import com.acc.countries.utils.RestApiRequestHelper;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+
+/**
+ * The Class CountrySnapshotStore
+ * Holds the current {@link CountrySnapshot} and refreshes it from the upstream API on a fixed schedule.
+ * Readers never wait on upstream I/O, a new snapshot is built off the request path and swapped in atomically.
+ * Every installed snapshot is persisted through {@link CountrySnapshotFile} and reloaded at startup.
+ * Refreshes are conditional requests, an unchanged upstream answers 304 and nothing is parsed.
+ * Fetched countries are diffed against the current snapshot: identical data keeps the current version, otherwise
+ * the new snapshot rebuilds only the structures the changed fields feed and a {@link CountrySnapshotChangedEvent}
+ * lists the changed countries.
+ * With peers configured a refresh first asks the other replicas through {@link PeerSnapshotClient}, a newer peer
+ * snapshot is installed under the peer's version and the upstream API is only called when no peer holds one.
+ * A peer snapshot holding the same data only lends its version to the current snapshot, and a peer at the current
+ * version which had it confirmed by the upstream API within {@code country.snapshot.refresh-interval} spares the
+ * upstream call, so unchanged data costs one upstream call per interval for all the replicas.
+ * When refreshes fail the last good snapshot keeps being served, it is reported stale once it was not confirmed
+ * by the upstream API for {@code country.snapshot.stale-after} or while the upstream circuit is open.
+ */
+@Slf4j
+@Component
+public class CountrySnapshotStore {
+    @Value("${external.api.countriesApiUrl}")
+    private String countriesApiUrl;
+
+    @Value("${country.snapshot.stale-after:PT2H}")
+    private Duration staleAfter;
+
+    @Value("${country.snapshot.refresh-interval:PT1H}")
+    private Duration refreshInterval;
+
+    @Autowired
+    private RestApiRequestHelper restApiRequestHelper;
+
+    @Autowired
+    private CountryRecordParser countryRecordParser;
+
+    @Autowired
+    private CountrySnapshotFile countrySnapshotFile;
+
+    @Autowired
+    private ApplicationEventPublisher applicationEventPublisher;
+
+    @Autowired
+    private PeerSnapshotClient peerSnapshotClient;
+
+    private final AtomicReference<CountrySnapshot> currentSnapshot = new AtomicReference<>(CountrySnapshot.empty());
+
+    private final AtomicLong lastPayloadSize = new AtomicLong();
+
+    /**
+     * Last time the upstream API confirmed the current snapshot, by sending it or by answering 304, to this replica
+     * or to the peer the snapshot was received from
+     */
+    private volatile Instant lastVerifiedAt = Instant.EPOCH;
+
+    /**
+     * Validators of the upstream response the current snapshot was built from
+     */
+    private volatile UpstreamValidators upstreamValidators;
+
+    /**
+     * The snapshot replaced by the last refresh, kept so paging cursors survive one refresh
+     */
+    private final AtomicReference<CountrySnapshot> previousSnapshot = new AtomicReference<>(CountrySnapshot.empty());
+
+
+    /**
+     * Gets the current snapshot. Never null, an empty snapshot is returned until the first load succeeds.
+     *
+     * @return the current CountrySnapshot
+     */
+    public CountrySnapshot getSnapshot() {
+        return currentSnapshot.get();
+    }
+
+
+    /**
+     * Gets the snapshot of a given version, either the current one or the one it replaced.
+     *
+     * @param version the snapshot version
+     * @return the CountrySnapshot, or null if that version is no longer held
+     */
+    public CountrySnapshot getSnapshot(long version) {
+        CountrySnapshot current = currentSnapshot.get();
+        if (current.getVersion() == version) {
+            return current;
+        }
+        CountrySnapshot previous = previousSnapshot.get();
+        return previous.getVersion() == version && !previous.isEmpty() ? previous : null;
+    }
+
+
+    /**
+     * Gets the size of the last payload received from the upstream API.
+     *
+     * @return the payload size in bytes, 0 until the first refresh
+     */
+    public long getLastPayloadSize() {
+        return lastPayloadSize.get();
+    }
+
+
+    /**
+     * Gets the last time the upstream API confirmed the current snapshot.
+     *
+     * @return the verification time, the fetch time for a snapshot loaded from disk
+     */
+    public Instant getLastVerifiedAt() {
+        return lastVerifiedAt;
+    }
+
+
+    /**
+     * Checks whether the current snapshot may be outdated: it was not confirmed by the upstream API for the
+     * configured time, or the upstream circuit is open so no refresh can confirm it.
+     *
+     * @return true if a snapshot is loaded and it is stale
+     */
+    public boolean isStale() {
+        if (currentSnapshot.get().isEmpty()) {
+            return false;
+        }
+        return lastVerifiedAt.plus(staleAfter).isBefore(Instant.now()) || restApiRequestHelper.isCircuitOpen();
+    }
+
+
+    /**
+     * Loads the snapshot persisted by a previous run, so requests are served before the first upstream refresh.
+     * A missing or corrupted file is ignored, the scheduled refresh then performs the first load.
+     */
+    @PostConstruct
+    public void loadPersistedSnapshot() {
+        if (countrySnapshotFile == null || !countrySnapshotFile.isEnabled()) {
+            return;
+        }
+
+        try {
+            CountrySnapshot snapshot = countrySnapshotFile.load();
+            if (snapshot == null || snapshot.isEmpty()) {
+                log.info("No persisted country snapshot found");
+                return;
+            }
+            if (currentSnapshot.compareAndSet(CountrySnapshot.empty(), snapshot)) {
+                lastVerifiedAt = snapshot.getFetchedAt();
+                log.info("Loaded persisted country snapshot version {} fetched at {} with {} countries",
+                        snapshot.getVersion(), snapshot.getFetchedAt(), snapshot.getCountries().size());
+            }
+        } catch (IOException | RuntimeException ex) {
+            log.warn("Ignoring unreadable persisted country snapshot", ex);
+        }
+    }
+
+
+    /**
+     * Refreshes the snapshot on the configured schedule, the first run happens right after startup.
+     */
+    @Scheduled(initialDelayString = "${country.snapshot.initial-delay}", fixedDelayString = "${country.snapshot.refresh-interval}")
+    public void scheduledRefresh() {
+        refresh();
+    }
+
+
+    /**
+     * This method fetches all countries from the external API and swaps in a new snapshot.
+     * A newer snapshot held by a peer is installed instead, without calling the external API.
+     * The current snapshot is kept when the upstream call fails or returns no data.
+     * Refreshes run one at a time, a startup preload waits for a scheduled refresh in progress then only revalidates it.
+     *
+     * @return true if a new snapshot was installed
+     */
+    public synchronized boolean refresh() {
+        if (peerSnapshotClient != null && peerSnapshotClient.isEnabled()) {
+            PeerRefresh peerRefresh = refreshFromPeers();
+            if (peerRefresh != PeerRefresh.NONE) {
+                return peerRefresh == PeerRefresh.INSTALLED;
+            }
+        }
+
+        log.info("Refreshing country snapshot from {}", countriesApiUrl);
+
+        UpstreamValidators validators = upstreamValidators;
+        HttpHeaders requestHeaders = new HttpHeaders();
+        if (validators != null && !currentSnapshot.get().isEmpty()) {
+            validators.applyTo(requestHeaders);
+        }
+
+        List<CountryRecord> allCountriesInfo;
+        UpstreamValidators responseValidators;
+        try {
+            ResponseEntity<byte[]> response = restApiRequestHelper.fetchRawResponse(countriesApiUrl, requestHeaders);
+            if (response != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+                log.info("Countries unchanged upstream, keeping version {}", currentSnapshot.get().getVersion());
+                lastVerifiedAt = Instant.now();
+                return false;
+            }
+            byte[] payload = response == null ? null : response.getBody();
+            if (ArrayUtils.isEmpty(payload)) {
+                log.error("No countries received from {}, keeping version {}", countriesApiUrl, currentSnapshot.get().getVersion());
+                return false;
+            }
+            lastPayloadSize.set(payload.length);
+            allCountriesInfo = countryRecordParser.parse(payload);
+            responseValidators = UpstreamValidators.of(response.getHeaders());
+        } catch (RestClientException | IOException ex) {
+            log.error("Failed to refresh country snapshot, keeping version {}", currentSnapshot.get().getVersion(), ex);
+            return false;
+        }
+
+        if (allCountriesInfo.isEmpty()) {
+            log.error("No countries received from {}, keeping version {}", countriesApiUrl, currentSnapshot.get().getVersion());
+            return false;
+        }
+
+        CountrySnapshot previous = currentSnapshot.get();
+        SnapshotDiff diff = SnapshotDiff.between(previous, allCountriesInfo);
+        if (diff.isEmpty() && !previous.isEmpty()) {
+            log.info("Countries unchanged upstream, keeping version {}", previous.getVersion());
+            upstreamValidators = responseValidators;
+            lastVerifiedAt = Instant.now();
+            return false;
+        }
+
+        long version = Math.max(System.currentTimeMillis(), previous.getVersion() + 1);
+        CountrySnapshot snapshot = install(previous, version, Instant.ofEpochMilli(version), allCountriesInfo, diff);
+        upstreamValidators = responseValidators;
+        lastVerifiedAt = snapshot.getFetchedAt();
+        persist(snapshot);
+        return true;
+    }
+
+
+    /**
+     * This method installs the newest snapshot held by a peer, keeping its version.
+     * The upstream validators are dropped, they belong to the response the peer's snapshot was not built from.
+     * When the peer holds the same data, the current snapshot only takes the peer's version, so the next refresh
+     * does not receive it again. Nothing is rebuilt and no change event is published, like an unchanged upstream response.
+     * When no peer holds a newer snapshot but one holding the current version had it confirmed by the upstream API
+     * within the refresh interval, that confirmation is taken over instead of asking the upstream API again.
+     *
+     * @return whether a peer snapshot was installed, adopted, verified or not received
+     */
+    private PeerRefresh refreshFromPeers() {
+        CountrySnapshot previous = currentSnapshot.get();
+        PeerSnapshotClient.PeerPoll peerPoll = peerSnapshotClient.fetchNewerThan(previous.getVersion());
+        PeerSnapshotClient.PeerSnapshot peerSnapshot = peerPoll.newest();
+        if (peerSnapshot == null || peerSnapshot.countries().isEmpty()) {
+            Instant verifiedAt = peerPoll.verifiedAt();
+            if (previous.isEmpty() || verifiedAt == null || verifiedAt.isBefore(Instant.now().minus(refreshInterval))) {
+                return PeerRefresh.NONE;
+            }
+            if (verifiedAt.isAfter(lastVerifiedAt)) {
+                lastVerifiedAt = verifiedAt;
+            }
+            log.info("Version {} confirmed upstream by a peer at {}, skipping the upstream call", previous.getVersion(), verifiedAt);
+            return PeerRefresh.VERIFIED;
+        }
+
+        SnapshotDiff diff = SnapshotDiff.between(previous, peerSnapshot.countries());
+        if (diff.isEmpty() && !previous.isEmpty()) {
+            CountrySnapshot adopted = previous.withVersion(peerSnapshot.version(), peerSnapshot.fetchedAt());
+            previousSnapshot.set(previous);
+            currentSnapshot.set(adopted);
+            if (peerSnapshot.verifiedAt().isAfter(lastVerifiedAt)) {
+                lastVerifiedAt = peerSnapshot.verifiedAt();
+            }
+            log.info("Countries unchanged on peer {}, adopting its version {}", peerSnapshot.peer(), adopted.getVersion());
+            persist(adopted);
+            return PeerRefresh.ADOPTED;
+        }
+
+        CountrySnapshot snapshot = install(previous, peerSnapshot.version(), peerSnapshot.fetchedAt(), peerSnapshot.countries(), diff);
+        upstreamValidators = null;
+        lastVerifiedAt = peerSnapshot.verifiedAt();
+        log.info("Installed country snapshot version {} from peer {}", snapshot.getVersion(), peerSnapshot.peer());
+        persist(snapshot);
+        return PeerRefresh.INSTALLED;
+    }
+
+    private CountrySnapshot install(CountrySnapshot previous, long version, Instant fetchedAt, List<CountryRecord> countries, SnapshotDiff diff) {
+        CountrySnapshot snapshot = CountrySnapshot.update(previous, version, fetchedAt, countries, diff);
+        previousSnapshot.set(previous);
+        currentSnapshot.set(snapshot);
+
+        log.debug("Installed country snapshot version {} with {} countries, {} changes, rebuilt {}",
+                version, snapshot.getCountries().size(), diff.getChanges().size(), snapshot.getRebuiltStructures());
+        if (applicationEventPublisher != null) {
+            applicationEventPublisher.publishEvent(new CountrySnapshotChangedEvent(previous.getVersion(), version, diff.getChanges()));
+        }
+        return snapshot;
+    }
+
+    private void persist(CountrySnapshot snapshot) {
+        if (countrySnapshotFile != null && countrySnapshotFile.isEnabled()) {
+            try {
+                countrySnapshotFile.save(snapshot);
+            } catch (IOException ex) {
+                log.warn("Failed to persist country snapshot version {}", snapshot.getVersion(), ex);
+            }
+        }
+    }
+
+    /**
+     * The outcome of a refresh from the peers
+     */
+    private enum PeerRefresh {
+        NONE, INSTALLED, ADOPTED, VERIFIED
+    }
+
+    /**
+     * The ETag and Last-Modified validators returned by the upstream API
+     */
+    private record UpstreamValidators(String etag, String lastModified) {
+        static UpstreamValidators of(HttpHeaders headers) {
+            String etag = headers.getETag();
+            String lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+            return etag == null && lastModified == null ? null : new UpstreamValidators(etag, lastModified);
+        }
+
+        void applyTo(HttpHeaders headers) {
+            if (etag != null) {
+                headers.setIfNoneMatch(etag);
+            }
+            if (lastModified != null) {
+                headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+            }
+        }
+    }
+}
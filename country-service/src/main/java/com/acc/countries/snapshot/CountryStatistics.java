@@ -0,0 +1,207 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.payload.CountryStatisticsResponseDto;
+import com.acc.countries.payload.GroupStatisticsDto;
+import com.acc.countries.payload.MetricStatisticsDto;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+
+/**
+ * The Class CountryStatistics
+ * Aggregates population, area and density over the {@link CountryColumns} of a snapshot, grouped by region or subregion.
+ * Matching rows are bucketed per group with a counting sort, then every group gathers its values into primitive
+ * arrays, sums them in one loop and sorts them once for the median and percentiles.
+ * Groupings over at least {@code parallelThreshold} rows aggregate their groups in parallel.
+ */
+public final class CountryStatistics {
+    /**
+     * The Enum Grouping
+     */
+    public enum Grouping {
+        REGION, SUBREGION, NONE;
+
+        /**
+         * Parses a grouping name, case-insensitive.
+         *
+         * @param name the name, null for REGION
+         * @return the Grouping
+         * @throws IllegalArgumentException if the name is unknown
+         */
+        public static Grouping of(String name) {
+            if (name == null || name.isBlank()) {
+                return REGION;
+            }
+            try {
+                return valueOf(name.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("groupBy must be one of region, subregion or none", ex);
+            }
+        }
+    }
+
+    private static final String ALL_COUNTRIES = "all";
+
+    private CountryStatistics() {
+    }
+
+    /**
+     * Aggregates the matching rows.
+     *
+     * @param columns           the columns
+     * @param grouping          the grouping
+     * @param requiredFlags     the {@link CountryColumns} flags a row must have
+     * @param excludedFlags     the {@link CountryColumns} flags a row must not have
+     * @param percentiles       the percentiles to compute, between 0 and 100
+     * @param parallelThreshold the number of matching rows from which groups are aggregated in parallel
+     * @return the CountryStatisticsResponseDto, groups ordered by name
+     */
+    public static CountryStatisticsResponseDto aggregate(CountryColumns columns, Grouping grouping, int requiredFlags, int excludedFlags,
+                                                         double[] percentiles, int parallelThreshold) {
+        int groupCount = switch (grouping) {
+            case REGION -> columns.regionCount();
+            case SUBREGION -> columns.subregionCount();
+            case NONE -> 1;
+        };
+
+        // Counting sort of the matching rows by group
+        int[] groupOfRow = new int[columns.size()];
+        int[] starts = new int[groupCount + 1];
+        int matching = 0;
+        for (int row = 0; row < columns.size(); row++) {
+            if (!columns.matches(row, requiredFlags, excludedFlags)) {
+                groupOfRow[row] = -1;
+                continue;
+            }
+            int group = switch (grouping) {
+                case REGION -> columns.regionOf(row);
+                case SUBREGION -> columns.subregionOf(row);
+                case NONE -> 0;
+            };
+            groupOfRow[row] = group;
+            starts[group + 1]++;
+            matching++;
+        }
+        for (int group = 0; group < groupCount; group++) {
+            starts[group + 1] += starts[group];
+        }
+        int[] rows = new int[matching];
+        int[] next = Arrays.copyOf(starts, groupCount);
+        for (int row = 0; row < groupOfRow.length; row++) {
+            if (groupOfRow[row] >= 0) {
+                rows[next[groupOfRow[row]]++] = row;
+            }
+        }
+
+        boolean parallel = matching >= parallelThreshold;
+        IntStream groups = IntStream.range(0, groupCount).filter(group -> starts[group + 1] > starts[group]);
+        if (parallel) {
+            groups = groups.parallel();
+        }
+        List<GroupStatisticsDto> groupStatistics = groups
+                .mapToObj(group -> aggregateGroup(columns, nameOf(columns, grouping, group), rows, starts[group], starts[group + 1], percentiles, parallel))
+                .sorted(Comparator.comparing(GroupStatisticsDto::getGroup))
+                .collect(Collectors.toList());
+        return new CountryStatisticsResponseDto(grouping.name().toLowerCase(Locale.ROOT), groupStatistics);
+    }
+
+    private static String nameOf(CountryColumns columns, Grouping grouping, int group) {
+        return switch (grouping) {
+            case REGION -> columns.regionName(group);
+            case SUBREGION -> columns.subregionName(group);
+            case NONE -> ALL_COUNTRIES;
+        };
+    }
+
+    private static GroupStatisticsDto aggregateGroup(CountryColumns columns, String name, int[] rows, int from, int to,
+                                                     double[] percentiles, boolean parallel) {
+        int size = to - from;
+        double[] population = new double[size];
+        double[] area = new double[size];
+        double[] density = new double[size];
+        int withArea = 0;
+        for (int i = 0; i < size; i++) {
+            int row = rows[from + i];
+            population[i] = columns.populationOf(row);
+            double rowArea = columns.areaOf(row);
+            if (rowArea > 0d) {
+                area[withArea] = rowArea;
+                density[withArea] = population[i] / rowArea;
+                withArea++;
+            }
+        }
+        return new GroupStatisticsDto(name, size,
+                summarize(population, size, percentiles, parallel),
+                summarize(area, withArea, percentiles, parallel),
+                summarize(density, withArea, percentiles, parallel));
+    }
+
+    /**
+     * Summarizes the first {@code count} values, sorting them in place.
+     */
+    static MetricStatisticsDto summarize(double[] values, int count, double[] percentiles, boolean parallel) {
+        if (count == 0) {
+            return new MetricStatisticsDto(0, 0d, 0d, 0d, 0d, 0d, Map.of());
+        }
+        double sum = 0d;
+        for (int i = 0; i < count; i++) {
+            sum += values[i];
+        }
+        if (parallel) {
+            Arrays.parallelSort(values, 0, count);
+        } else {
+            Arrays.sort(values, 0, count);
+        }
+
+        Map<String, Double> percentileValues = new LinkedHashMap<>();
+        for (double percentile : percentiles) {
+            percentileValues.put(percentileName(percentile), percentile(values, count, percentile));
+        }
+        return new MetricStatisticsDto(count, sum, sum / count, values[0], values[count - 1], percentile(values, count, 50d), percentileValues);
+    }
+
+    /**
+     * Gets a percentile of sorted values, linearly interpolated between the closest ranks.
+     */
+    static double percentile(double[] sorted, int count, double percentile) {
+        double rank = percentile / 100d * (count - 1);
+        int lower = (int) Math.floor(rank);
+        int upper = (int) Math.ceil(rank);
+        return sorted[lower] + (sorted[upper] - sorted[lower]) * (rank - lower);
+    }
+
+    private static String percentileName(double percentile) {
+        return "p" + (percentile == Math.rint(percentile) ? String.valueOf((long) percentile) : String.valueOf(percentile));
+    }
+
+    /**
+     * Parses a comma separated list of percentiles.
+     *
+     * @param percentiles the percentiles, for example {@code 25,75,99.9}
+     * @return the percentiles
+     * @throws IllegalArgumentException if a value is not a number between 0 and 100
+     */
+    public static double[] parsePercentiles(String percentiles) {
+        Objects.requireNonNull(percentiles, "percentiles");
+        try {
+            double[] values = Arrays.stream(percentiles.split(",")).map(String::trim).filter(value -> !value.isEmpty())
+                    .mapToDouble(Double::parseDouble).distinct().sorted().toArray();
+            for (double value : values) {
+                if (!(value >= 0d && value <= 100d)) {
+                    throw new IllegalArgumentException("percentiles must be between 0 and 100: " + percentiles);
+                }
+            }
+            return values;
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("Invalid percentiles: " + percentiles, ex);
+        }
+    }
+}
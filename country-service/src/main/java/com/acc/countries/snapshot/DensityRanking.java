@@ -0,0 +1,181 @@
+package com.acc.countries.snapshot;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+
+/**
+ * The Class DensityRanking
+ * Countries ranked by population density (population / area) in descending order, computed once per snapshot.
+ * Countries without a positive area have no defined density, they are ranked after all others by population.
+ * The ranking is also kept as encoded JSON so the hot endpoint can write it to the socket as is.
+ * That JSON is the only copy of the country bytes, the ranked records are slices of it.
+ */
+@Getter
+public final class DensityRanking {
+    /**
+     * Orders countries with a defined density first, by density descending, then the rest by population descending
+     */
+    static final Comparator<CountryRecord> DENSITY_ORDER = Comparator
+            .comparing((CountryRecord country) -> !hasDensity(country))
+            .thenComparing(Comparator.comparingDouble(DensityRanking::densityOf).reversed())
+            .thenComparing(Comparator.comparingLong(CountryRecord::getPopulation).reversed());
+
+    private final List<CountryRecord> rankedCountries;
+
+    private final byte[] json;
+
+    /**
+     * The given countries in their original order, re-homed into the ranking JSON
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final List<CountryRecord> countries;
+
+    /**
+     * Offset of each ranked country in the ranking JSON
+     */
+    @Getter(AccessLevel.NONE)
+    private final int[] offsets;
+
+    /**
+     * Position in the given countries of each ranked country
+     */
+    @Getter(AccessLevel.PACKAGE)
+    private final int[] order;
+
+    private DensityRanking(List<CountryRecord> rankedCountries, byte[] json, List<CountryRecord> countries, int[] offsets, int[] order) {
+        this.rankedCountries = rankedCountries;
+        this.json = json;
+        this.countries = countries;
+        this.offsets = offsets;
+        this.order = order;
+    }
+
+    /**
+     * Ranks the given countries and encodes the ranking as a JSON array of the complete countries.
+     * The ranked countries are copies of the given ones whose JSON is a slice of that array.
+     *
+     * @param countries the countries
+     * @return the DensityRanking
+     */
+    public static DensityRanking of(List<CountryRecord> countries) {
+        Integer[] sorted = new Integer[countries.size()];
+        Arrays.setAll(sorted, i -> i);
+        Arrays.sort(sorted, Comparator.comparing(countries::get, DENSITY_ORDER));
+        return of(countries, Arrays.stream(sorted).mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * Encodes countries in a known rank order, used when the fields the order depends on did not change.
+     *
+     * @param countries the countries
+     * @param order     the position in the countries of each rank
+     * @return the DensityRanking
+     */
+    static DensityRanking of(List<CountryRecord> countries, int[] order) {
+        int size = 2 + Math.max(0, countries.size() - 1);
+        for (CountryRecord country : countries) {
+            size += country.getJsonLength();
+        }
+        byte[] json = new byte[size];
+        int[] offsets = new int[countries.size()];
+        CountryRecord[] ranked = new CountryRecord[countries.size()];
+        CountryRecord[] rehomed = new CountryRecord[countries.size()];
+
+        int position = 0;
+        json[position++] = '[';
+        for (int rank = 0; rank < order.length; rank++) {
+            if (rank > 0) {
+                json[position++] = ',';
+            }
+            CountryRecord country = countries.get(order[rank]);
+            country.jsonBuffer().get(json, position, country.getJsonLength());
+            offsets[rank] = position;
+            ranked[rank] = country.withJsonIn(json, position);
+            rehomed[order[rank]] = ranked[rank];
+            position += country.getJsonLength();
+        }
+        json[position] = ']';
+        return new DensityRanking(List.of(ranked), json, List.of(rehomed), offsets, order);
+    }
+
+    /**
+     * Gets a range of the ranking as a JSON array, copied from the ranking JSON without re-encoding.
+     *
+     * @param from the first rank, inclusive
+     * @param to   the last rank, exclusive
+     * @return the JSON array bytes
+     */
+    public byte[] getJson(int from, int to) {
+        if (from == 0 && to == offsets.length) {
+            return json;
+        }
+        if (from >= to) {
+            return new byte[]{'[', ']'};
+        }
+        int start = offsets[from];
+        int end = offsets[to - 1] + rankedCountries.get(to - 1).getJsonLength();
+        byte[] page = new byte[end - start + 2];
+        page[0] = '[';
+        System.arraycopy(json, start, page, 1, end - start);
+        page[page.length - 1] = ']';
+        return page;
+    }
+
+    /**
+     * Writes the JSON of one ranked country, copied from the ranking JSON without re-encoding.
+     *
+     * @param rank the rank, from 0
+     * @param out  the output stream
+     * @throws IOException if the output stream fails
+     */
+    public void writeJson(int rank, OutputStream out) throws IOException {
+        out.write(json, offsets[rank], rankedCountries.get(rank).getJsonLength());
+    }
+
+    /**
+     * Gets the population density of a country.
+     *
+     * @param country the country
+     * @return the population per square kilometre, or 0 if the country has no positive area
+     */
+    public static double densityOf(CountryRecord country) {
+        return hasDensity(country) ? country.getPopulation() / country.getArea() : 0d;
+    }
+
+    /**
+     * Joins the compact JSON of the countries into a JSON array.
+     *
+     * @param countries the countries
+     * @return the JSON array bytes
+     */
+    public static byte[] toJsonArray(List<CountryRecord> countries) {
+        int size = 2 + Math.max(0, countries.size() - 1);
+        for (CountryRecord country : countries) {
+            size += country.getJsonLength();
+        }
+        byte[] json = new byte[size];
+        int position = 0;
+        json[position++] = '[';
+        for (int i = 0; i < countries.size(); i++) {
+            if (i > 0) {
+                json[position++] = ',';
+            }
+            CountryRecord country = countries.get(i);
+            country.jsonBuffer().get(json, position, country.getJsonLength());
+            position += country.getJsonLength();
+        }
+        json[position] = ']';
+        return json;
+    }
+
+    private static boolean hasDensity(CountryRecord country) {
+        return country.getArea() > 0d;
+    }
+}
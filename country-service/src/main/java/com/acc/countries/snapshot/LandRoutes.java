@@ -0,0 +1,224 @@
+package com.acc.countries.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+
+/**
+ * The Class LandRoutes
+ * All-pairs land border distances over the {@link BorderGraph}, built once per snapshot.
+ * The number of border crossings between every two countries is kept in one flat {@code byte[]} matrix,
+ * filled by one breadth-first search per country, the searches running in parallel.
+ * Shortest routes are rebuilt from the matrix by stepping to any neighbour one crossing closer to the destination,
+ * connected components and landlocked depths are derived from it as well.
+ */
+public final class LandRoutes {
+    /**
+     * Distance of two countries without land route
+     */
+    public static final int UNREACHABLE = -1;
+
+    private static final byte NOT_VISITED = (byte) 0xFF;
+
+    private final BorderGraph borderGraph;
+
+    private final int size;
+
+    /**
+     * Border crossings from row to column, {@link #NOT_VISITED} without land route
+     */
+    private final byte[] hops;
+
+    private final int[] componentIds;
+
+    private final int componentCount;
+
+    /**
+     * Border crossings to the nearest country with a coast, 0 for coastal countries
+     */
+    private final int[] landlockedDepths;
+
+    /**
+     * Instantiates a new LandRoutes
+     *
+     * @param borderGraph the border graph of the snapshot
+     */
+    public LandRoutes(BorderGraph borderGraph) {
+        this.borderGraph = borderGraph;
+        this.size = borderGraph.size();
+        this.hops = new byte[size * size];
+        Arrays.fill(hops, NOT_VISITED);
+        IntStream.range(0, size).parallel().forEach(this::breadthFirstSearch);
+
+        // Components, numbered in order of their first country
+        this.componentIds = new int[size];
+        Arrays.fill(componentIds, -1);
+        int components = 0;
+        for (int id = 0; id < size; id++) {
+            if (componentIds[id] < 0) {
+                int offset = id * size;
+                for (int other = id; other < size; other++) {
+                    if (hops[offset + other] != NOT_VISITED) {
+                        componentIds[other] = components;
+                    }
+                }
+                components++;
+            }
+        }
+        this.componentCount = components;
+
+        this.landlockedDepths = new int[size];
+        for (int id = 0; id < size; id++) {
+            landlockedDepths[id] = borderGraph.countryOf(id).isLandlocked() ? depthOf(id) : 0;
+        }
+    }
+
+    private LandRoutes(LandRoutes routes, BorderGraph borderGraph) {
+        this.borderGraph = borderGraph;
+        this.size = routes.size;
+        this.hops = routes.hops;
+        this.componentIds = routes.componentIds;
+        this.componentCount = routes.componentCount;
+        this.landlockedDepths = routes.landlockedDepths;
+    }
+
+    /**
+     * Gets these routes over a graph with the same borders and landlocked countries.
+     *
+     * @param borderGraph the border graph
+     * @return the LandRoutes sharing the distance matrix of this one
+     */
+    LandRoutes withBorderGraph(BorderGraph borderGraph) {
+        return new LandRoutes(this, borderGraph);
+    }
+
+    private void breadthFirstSearch(int source) {
+        int offset = source * size;
+        int[] queue = new int[size];
+        int head = 0;
+        int tail = 0;
+        hops[offset + source] = 0;
+        queue[tail++] = source;
+        while (head < tail) {
+            int node = queue[head++];
+            int distance = hops[offset + node];
+            if (distance == Byte.MAX_VALUE) {
+                throw new IllegalStateException("Land route longer than " + Byte.MAX_VALUE + " border crossings");
+            }
+            for (int position = borderGraph.neighboursStart(node); position < borderGraph.neighboursEnd(node); position++) {
+                int neighbour = borderGraph.neighbourAt(position);
+                if (hops[offset + neighbour] == NOT_VISITED) {
+                    hops[offset + neighbour] = (byte) (distance + 1);
+                    queue[tail++] = neighbour;
+                }
+            }
+        }
+    }
+
+    private int depthOf(int id) {
+        int offset = id * size;
+        int depth = UNREACHABLE;
+        for (int other = 0; other < size; other++) {
+            int distance = hops[offset + other];
+            if (distance > 0 && !borderGraph.countryOf(other).isLandlocked() && (depth == UNREACHABLE || distance < depth)) {
+                depth = distance;
+            }
+        }
+        return depth;
+    }
+
+    /**
+     * Gets the number of border crossings between two countries.
+     *
+     * @param from the node id of the first country
+     * @param to   the node id of the second country
+     * @return the border crossings, {@link #UNREACHABLE} without land route
+     */
+    public int hopsBetween(int from, int to) {
+        byte distance = hops[from * size + to];
+        return distance == NOT_VISITED ? UNREACHABLE : distance;
+    }
+
+    /**
+     * Gets a shortest land route between two countries.
+     *
+     * @param from the node id of the first country
+     * @param to   the node id of the second country
+     * @return the node ids from the first to the second country, empty without land route
+     */
+    public int[] route(int from, int to) {
+        int distance = hopsBetween(from, to);
+        if (distance == UNREACHABLE) {
+            return new int[0];
+        }
+        int[] route = new int[distance + 1];
+        route[0] = from;
+        int current = from;
+        for (int step = 1; step <= distance; step++) {
+            int remaining = distance - step;
+            int next = -1;
+            for (int position = borderGraph.neighboursStart(current); next < 0 && position < borderGraph.neighboursEnd(current); position++) {
+                int neighbour = borderGraph.neighbourAt(position);
+                if (hopsBetween(neighbour, to) == remaining) {
+                    next = neighbour;
+                }
+            }
+            route[step] = next;
+            current = next;
+        }
+        return route;
+    }
+
+    /**
+     * Gets the number of connected components, a country without land border is a component of its own.
+     *
+     * @return the component count
+     */
+    public int componentCount() {
+        return componentCount;
+    }
+
+    /**
+     * Gets the component of a country.
+     *
+     * @param id the node id
+     * @return the component id
+     */
+    public int componentOf(int id) {
+        return componentIds[id];
+    }
+
+    /**
+     * Gets the countries of every component.
+     *
+     * @return the node ids per component id
+     */
+    public List<int[]> components() {
+        int[] sizes = new int[componentCount];
+        for (int id = 0; id < size; id++) {
+            sizes[componentIds[id]]++;
+        }
+        List<int[]> components = new ArrayList<>(componentCount);
+        for (int component = 0; component < componentCount; component++) {
+            components.add(new int[sizes[component]]);
+        }
+        int[] filled = new int[componentCount];
+        for (int id = 0; id < size; id++) {
+            int component = componentIds[id];
+            components.get(component)[filled[component]++] = id;
+        }
+        return components;
+    }
+
+    /**
+     * Gets the number of border crossings from a country to the nearest country with a coast.
+     *
+     * @param id the node id
+     * @return 0 for a coastal country, {@link #UNREACHABLE} for a landlocked country without coastal neighbour by land
+     */
+    public int landlockedDepthOf(int id) {
+        return landlockedDepths[id];
+    }
+}
@@ -0,0 +1,239 @@
+package com.acc.countries.snapshot;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.ArrayUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestTemplate;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The Class PeerSnapshotClient
+ * Pulls the binary snapshot of the other replicas from their {@code /internal/snapshot} endpoint, so one upstream
+ * fetch is shared by the replicas instead of each of them asking the upstream API.
+ * Peers are asked in parallel with the local version, a peer holding nothing newer answers an empty 304,
+ * and the newest snapshot received within {@code country.peers.timeout} is returned, slower peers are left out. A peer at the local version sends the time the upstream API last confirmed
+ * it, so a replica skips its own upstream call when another one just made it. Unreachable peers are skipped, the calls bypass the upstream
+ * circuit breaker and bulkhead and are bounded by {@code country.peers.timeout}.
+ * With {@code country.peers.resolve-all-addresses} every address of a peer host is asked, so a single headless
+ * Service name stands for all the pods behind it.
+ */
+@Slf4j
+@Component
+public class PeerSnapshotClient {
+    public static final String SNAPSHOT_PATH = "/internal/snapshot";
+
+    public static final String SNAPSHOT_VERSION_HEADER = "X-Snapshot-Version";
+
+    public static final String SNAPSHOT_VERIFIED_AT_HEADER = "X-Snapshot-Verified-At";
+
+    public static final MediaType SNAPSHOT_MEDIA_TYPE = MediaType.APPLICATION_OCTET_STREAM;
+
+    @Value("${country.peers.urls:}")
+    private String peerUrls;
+
+    @Value("${country.peers.resolve-all-addresses:false}")
+    private boolean resolveAllAddresses;
+
+    @Value("${country.peers.timeout:PT2S}")
+    private Duration timeout;
+
+    @Autowired
+    private RestTemplateBuilder restTemplateBuilder;
+
+    @Autowired
+    private CountrySnapshotFile countrySnapshotFile;
+
+    @Autowired
+    private ExecutorService upstreamExecutor;
+
+    private RestTemplate restTemplate;
+
+    private final AtomicLong receivedCount = new AtomicLong();
+
+    private final AtomicLong failedCount = new AtomicLong();
+
+
+    @PostConstruct
+    public void init() {
+        restTemplate = restTemplateBuilder.setConnectTimeout(timeout).setReadTimeout(timeout).build();
+    }
+
+
+    /**
+     * Checks whether peers are configured.
+     *
+     * @return true if snapshots are pulled from peers
+     */
+    public boolean isEnabled() {
+        return peerUrls != null && !peerUrls.isBlank();
+    }
+
+
+    /**
+     * This method asks every peer at once for a snapshot newer than the given version.
+     * The whole poll is bounded by the peer timeout, so a refresh never waits for the peers one after the other.
+     *
+     * @param version the local snapshot version
+     * @return the PeerPoll with the newest snapshot and the last verification of the local version by a peer
+     */
+    public PeerPoll fetchNewerThan(long version) {
+        List<CompletableFuture<PeerSnapshot>> answers = new ArrayList<>();
+        for (String peer : peers()) {
+            answers.add(CompletableFuture.supplyAsync(() -> fetch(peer, version), upstreamExecutor));
+        }
+        try {
+            CompletableFuture.allOf(answers.toArray(CompletableFuture[]::new)).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException ex) {
+            log.warn("Not every peer answered within {}, using the answers received", timeout);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        PeerSnapshot newest = null;
+        Instant verifiedAt = null;
+        for (CompletableFuture<PeerSnapshot> answer : answers) {
+            if (!answer.isDone() || answer.isCompletedExceptionally()) {
+                // A late call goes on until its own timeout and is counted as failed then
+                continue;
+            }
+            PeerSnapshot snapshot = answer.join();
+            if (snapshot == null) {
+                continue;
+            }
+            if (snapshot.version() > version) {
+                if (newest == null || snapshot.version() > newest.version()) {
+                    newest = snapshot;
+                }
+            } else if (verifiedAt == null || snapshot.verifiedAt().isAfter(verifiedAt)) {
+                verifiedAt = snapshot.verifiedAt();
+            }
+        }
+        return new PeerPoll(newest, verifiedAt);
+    }
+
+
+    /**
+     * Gets the number of snapshots received from peers.
+     *
+     * @return the received count
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+
+    /**
+     * Gets the number of peer calls which failed or returned an unreadable snapshot.
+     *
+     * @return the failed count
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+
+    private PeerSnapshot fetch(String peer, long newerThan) {
+        String url = UriComponentsBuilder.fromHttpUrl(peer).path(SNAPSHOT_PATH)
+                .queryParam("newerThan", newerThan).toUriString();
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(SNAPSHOT_MEDIA_TYPE));
+        try {
+            ResponseEntity<byte[]> response = restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+            String verifiedAt = response.getHeaders().getFirst(SNAPSHOT_VERIFIED_AT_HEADER);
+            if (response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED) || ArrayUtils.isEmpty(response.getBody())) {
+                log.debug("Peer {} holds no snapshot newer than version {}", peer, newerThan);
+                String peerVersion = response.getHeaders().getFirst(SNAPSHOT_VERSION_HEADER);
+                if (peerVersion == null || verifiedAt == null || Long.parseLong(peerVersion) != newerThan) {
+                    return null;
+                }
+                return new PeerSnapshot(peer, newerThan, null, Instant.parse(verifiedAt), List.of());
+            }
+            CountrySnapshotFile.Contents contents = countrySnapshotFile.decodeContents(ByteBuffer.wrap(response.getBody()));
+            receivedCount.incrementAndGet();
+            log.info("Received country snapshot version {} with {} countries from peer {}", contents.version(), contents.countries().size(), peer);
+            return new PeerSnapshot(peer, contents.version(), contents.fetchedAt(),
+                    verifiedAt == null ? contents.fetchedAt() : Instant.parse(verifiedAt), contents.countries());
+        } catch (IOException | RuntimeException ex) {
+            failedCount.incrementAndGet();
+            log.warn("Failed to fetch the country snapshot from peer {}: {}", peer, ex.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Gets the base URL of every peer, hosts expanded to each of their addresses when configured.
+     */
+    private List<String> peers() {
+        Set<String> peers = new LinkedHashSet<>();
+        for (String peerUrl : peerUrls.split(",")) {
+            String peer = peerUrl.trim();
+            if (peer.isEmpty()) {
+                continue;
+            }
+            if (!resolveAllAddresses) {
+                peers.add(peer);
+                continue;
+            }
+            UriComponents uri = UriComponentsBuilder.fromHttpUrl(peer).build();
+            try {
+                for (InetAddress address : InetAddress.getAllByName(uri.getHost())) {
+                    String host = address.getHostAddress().indexOf(':') >= 0 ? "[" + address.getHostAddress() + "]" : address.getHostAddress();
+                    peers.add(UriComponentsBuilder.newInstance().uriComponents(uri).host(host).toUriString());
+                }
+            } catch (UnknownHostException ex) {
+                log.warn("Unable to resolve peer {}: {}", peer, ex.getMessage());
+            }
+        }
+        return new ArrayList<>(peers);
+    }
+
+    /**
+     * The answers of the peers to one poll
+     *
+     * @param newest     the newest snapshot received, null if no reachable peer holds a newer one
+     * @param verifiedAt the last time the upstream API confirmed the local version to a peer holding it, null if none does
+     */
+    public record PeerPoll(PeerSnapshot newest, Instant verifiedAt) {
+    }
+
+    /**
+     * A snapshot received from a peer, or only its version and verification time when the peer holds the polled version
+     *
+     * @param peer       the peer base URL
+     * @param version    the snapshot version, kept as is so every replica answers with the same ETags and cursors
+     * @param fetchedAt  the time the peer fetched the countries from the upstream API, null when only the version was received
+     * @param verifiedAt the last time the upstream API confirmed the countries to the peer
+     * @param countries  the countries, in snapshot order, empty when only the version was received
+     */
+    public record PeerSnapshot(String peer, long version, Instant fetchedAt, Instant verifiedAt, List<CountryRecord> countries) {
+    }
+}
@@ -0,0 +1,361 @@
+package com.acc.countries.snapshot;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+
+/**
+ * The Class SearchIndex
+ * Prefix index over the country names, built once per snapshot.
+ * Every name of a country (common, official, native, alternative spellings and translations) is folded to lower case
+ * without accents and appended to one character corpus. The positions where a word starts are sorted by the text
+ * that follows them, a word-level suffix array, so all words starting with a prefix form one contiguous range found
+ * by binary search. Multi-word queries match countries having every query word, in any of their names.
+ */
+public final class SearchIndex {
+    /**
+     * The Enum Field, the weight ranks matches on main names before matches on translations
+     */
+    public enum Field {
+        NAME_COMMON("name.common", 60),
+        NAME_OFFICIAL("name.official", 50),
+        NATIVE_NAME("name.nativeName", 40),
+        ALT_SPELLING("altSpellings", 40),
+        TRANSLATION("translations", 30);
+
+        private final String path;
+
+        private final int weight;
+
+        Field(String path, int weight) {
+            this.path = path;
+            this.weight = weight;
+        }
+
+        public String getPath() {
+            return path;
+        }
+    }
+
+    /**
+     * A country matching a query
+     *
+     * @param country the country
+     * @param field   the field of the best match
+     * @param score   the score, higher is better
+     */
+    public record Hit(CountryRecord country, Field field, int score) {
+    }
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private static final Set<String> INDEXED_FIELDS = Set.of("name", "altSpellings", "translations");
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+
+    private static final Field[] FIELDS = Field.values();
+
+    private static final char END_OF_TERM = '\0';
+
+    private final List<CountryRecord> countries;
+
+    /**
+     * Folded terms, each followed by {@link #END_OF_TERM}
+     */
+    private final char[] corpus;
+
+    private final int[] termStarts;
+
+    private final int[] termRows;
+
+    private final byte[] termFields;
+
+    /**
+     * Corpus positions of every word start, ordered by the text that follows them
+     */
+    private final int[] suffixes;
+
+    /**
+     * Instantiates a new SearchIndex
+     *
+     * @param countries the snapshot countries
+     */
+    public SearchIndex(List<CountryRecord> countries) {
+        this.countries = countries;
+
+        StringBuilder text = new StringBuilder();
+        List<Integer> starts = new ArrayList<>();
+        List<Integer> rows = new ArrayList<>();
+        List<Field> fields = new ArrayList<>();
+        List<Integer> words = new ArrayList<>();
+        for (int row = 0; row < countries.size(); row++) {
+            for (Map.Entry<String, Field> term : termsOf(countries.get(row)).entrySet()) {
+                starts.add(text.length());
+                rows.add(row);
+                fields.add(term.getValue());
+                words.add(text.length());
+                String folded = term.getKey();
+                for (int i = 0; i < folded.length(); i++) {
+                    if (folded.charAt(i) == ' ') {
+                        words.add(text.length() + i + 1);
+                    }
+                }
+                text.append(folded).append(END_OF_TERM);
+            }
+        }
+
+        this.corpus = new char[text.length()];
+        text.getChars(0, text.length(), corpus, 0);
+        this.termStarts = starts.stream().mapToInt(Integer::intValue).toArray();
+        this.termRows = rows.stream().mapToInt(Integer::intValue).toArray();
+        this.termFields = new byte[fields.size()];
+        for (int term = 0; term < fields.size(); term++) {
+            termFields[term] = (byte) fields.get(term).ordinal();
+        }
+        this.suffixes = words.stream().sorted(this::compareSuffixes).mapToInt(Integer::intValue).toArray();
+    }
+
+    private SearchIndex(SearchIndex index, List<CountryRecord> countries) {
+        this.countries = countries;
+        this.corpus = index.corpus;
+        this.termStarts = index.termStarts;
+        this.termRows = index.termRows;
+        this.termFields = index.termFields;
+        this.suffixes = index.suffixes;
+    }
+
+    /**
+     * Gets this index over new records of the same countries, with the same names.
+     *
+     * @param countries the countries, in the order of the indexed ones
+     * @return the SearchIndex sharing the corpus and suffixes of this one
+     */
+    SearchIndex withCountries(List<CountryRecord> countries) {
+        return new SearchIndex(this, countries);
+    }
+
+    /**
+     * Gets the number of indexed words.
+     *
+     * @return the word count
+     */
+    public int size() {
+        return suffixes.length;
+    }
+
+    /**
+     * Finds the countries whose names contain words starting with every word of the query.
+     *
+     * @param query the query, case and accents are ignored
+     * @param limit the maximum number of countries
+     * @return the countries, best match first
+     */
+    public List<Hit> search(String query, int limit) {
+        String[] tokens = fold(query).split(" ");
+        if (tokens.length == 0 || tokens[0].isEmpty()) {
+            return List.of();
+        }
+
+        int[] scores = new int[countries.size()];
+        byte[] bestFields = new byte[countries.size()];
+        int[] tokenScores = new int[countries.size()];
+        for (int token = 0; token < tokens.length; token++) {
+            Arrays.fill(tokenScores, 0);
+            scoreToken(tokens[token], tokenScores, token == 0 ? bestFields : null);
+            for (int row = 0; row < scores.length; row++) {
+                // A country must match every word of the query
+                boolean matchedSoFar = token == 0 || scores[row] > 0;
+                scores[row] = matchedSoFar && tokenScores[row] > 0 ? scores[row] + tokenScores[row] : 0;
+            }
+        }
+
+        List<Hit> hits = new ArrayList<>();
+        for (int row = 0; row < scores.length; row++) {
+            if (scores[row] > 0) {
+                hits.add(new Hit(countries.get(row), FIELDS[bestFields[row]], scores[row]));
+            }
+        }
+        hits.sort(Comparator.comparingInt(Hit::score).reversed()
+                .thenComparing(Comparator.comparingLong((Hit hit) -> hit.country().getPopulation()).reversed())
+                .thenComparing(hit -> String.valueOf(hit.country().getNameCommon())));
+        return hits.size() > limit ? hits.subList(0, limit) : hits;
+    }
+
+    /**
+     * Folds a text for matching: lower case, accents removed, any run of other characters than letters and digits
+     * turned into a single space.
+     *
+     * @param text the text
+     * @return the folded text
+     */
+    public static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        boolean space = true;
+        for (int i = 0; i < decomposed.length(); ) {
+            int codePoint = decomposed.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (Character.isLetterOrDigit(codePoint)) {
+                String replacement = switch (codePoint) {
+                    case 'ß' -> "ss";
+                    case 'æ', 'Æ' -> "ae";
+                    case 'œ', 'Œ' -> "oe";
+                    case 'ø', 'Ø' -> "o";
+                    case 'đ', 'Đ' -> "d";
+                    case 'ł', 'Ł' -> "l";
+                    case 'ı' -> "i";
+                    default -> null;
+                };
+                if (replacement != null) {
+                    folded.append(replacement);
+                } else {
+                    folded.appendCodePoint(Character.toLowerCase(codePoint));
+                }
+                space = false;
+            } else if (!space) {
+                folded.append(' ');
+                space = true;
+            }
+        }
+        int length = folded.length();
+        return length > 0 && folded.charAt(length - 1) == ' ' ? folded.substring(0, length - 1) : folded.toString();
+    }
+
+    /**
+     * Scores the countries having a word starting with the token: the field weight, plus 30 when the token is the whole
+     * term, 20 when it starts the term and 10 when it starts another word of the term.
+     */
+    private void scoreToken(String token, int[] tokenScores, byte[] bestFields) {
+        for (int i = lowerBound(token); i < suffixes.length && startsWith(suffixes[i], token); i++) {
+            int position = suffixes[i];
+            int term = termOf(position);
+            int score = FIELDS[termFields[term]].weight;
+            if (position == termStarts[term]) {
+                score += corpus[position + token.length()] == END_OF_TERM ? 30 : 20;
+            } else {
+                score += 10;
+            }
+            int row = termRows[term];
+            if (score > tokenScores[row]) {
+                tokenScores[row] = score;
+                if (bestFields != null) {
+                    bestFields[row] = termFields[term];
+                }
+            }
+        }
+    }
+
+    private int lowerBound(String token) {
+        int low = 0;
+        int high = suffixes.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareToToken(suffixes[middle], token) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares the text at a corpus position with a token, a text starting with the token compares equal.
+     */
+    private int compareToToken(int position, String token) {
+        for (int i = 0; i < token.length(); i++) {
+            char c = corpus[position + i];
+            if (c != token.charAt(i)) {
+                return c == END_OF_TERM ? -1 : Character.compare(c, token.charAt(i));
+            }
+        }
+        return 0;
+    }
+
+    private boolean startsWith(int position, String token) {
+        return compareToToken(position, token) == 0;
+    }
+
+    private int compareSuffixes(int left, int right) {
+        while (true) {
+            char l = corpus[left++];
+            char r = corpus[right++];
+            if (l != r || l == END_OF_TERM) {
+                return Character.compare(l, r);
+            }
+        }
+    }
+
+    private int termOf(int position) {
+        int term = Arrays.binarySearch(termStarts, position);
+        return term >= 0 ? term : -term - 2;
+    }
+
+    /**
+     * Collects the distinct folded names of a country with the best field they appear in.
+     */
+    private static Map<String, Field> termsOf(CountryRecord country) {
+        // Only the name fields are read into trees, the rest of the country is skipped while streaming
+        ObjectNode json = OBJECT_MAPPER.createObjectNode();
+        try (JsonParser parser = country.createJsonParser(OBJECT_MAPPER.getFactory())) {
+            if (parser.nextToken() == JsonToken.START_OBJECT) {
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String field = parser.currentName();
+                    parser.nextToken();
+                    if (INDEXED_FIELDS.contains(field)) {
+                        json.set(field, OBJECT_MAPPER.readTree(parser));
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to index country " + country.getCca3(), ex);
+        }
+
+        // Fields are visited by decreasing weight, the first field of a term is its best one
+        Map<String, Field> terms = new LinkedHashMap<>();
+        JsonNode name = json.path("name");
+        addTerm(terms, name.path("common"), Field.NAME_COMMON);
+        addTerm(terms, name.path("official"), Field.NAME_OFFICIAL);
+        for (JsonNode nativeName : name.path("nativeName")) {
+            addTerm(terms, nativeName.path("common"), Field.NATIVE_NAME);
+            addTerm(terms, nativeName.path("official"), Field.NATIVE_NAME);
+        }
+        for (JsonNode altSpelling : json.path("altSpellings")) {
+            addTerm(terms, altSpelling, Field.ALT_SPELLING);
+        }
+        for (JsonNode translation : json.path("translations")) {
+            addTerm(terms, translation.path("common"), Field.TRANSLATION);
+            addTerm(terms, translation.path("official"), Field.TRANSLATION);
+        }
+        return terms;
+    }
+
+    private static void addTerm(Map<String, Field> terms, JsonNode value, Field field) {
+        if (value.isTextual()) {
+            String folded = fold(value.asText());
+            if (!folded.isEmpty()) {
+                terms.putIfAbsent(folded, field);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.events.CountryChange;
+import com.acc.countries.utils.ContentHash;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+
+/**
+ * The Class SnapshotDiff
+ * Differences between a snapshot and freshly fetched countries, matched by cca3 code.
+ * Every fetched country is hashed ({@link ContentHash}) and compared with the hash kept by the snapshot, only countries
+ * whose hashes differ are decoded to find the top-level fields that changed.
+ * The diff is aligned when both sides hold the same countries in the same order, the snapshot indexes are row based
+ * so only then can a structure untouched by the changed fields be carried over, see {@link CountrySnapshot#update}.
+ */
+public final class SnapshotDiff {
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final List<CountryChange> changes;
+
+    /**
+     * Content hash of every fetched country, in fetch order
+     */
+    private final long[] contentHashes;
+
+    private final boolean aligned;
+
+    private SnapshotDiff(List<CountryChange> changes, long[] contentHashes, boolean aligned) {
+        this.changes = changes;
+        this.contentHashes = contentHashes;
+        this.aligned = aligned;
+    }
+
+    /**
+     * Compares a snapshot with freshly fetched countries.
+     *
+     * @param previous  the current snapshot, possibly empty
+     * @param countries the fetched countries
+     * @return the SnapshotDiff
+     */
+    public static SnapshotDiff between(CountrySnapshot previous, List<CountryRecord> countries) {
+        List<CountryRecord> previousCountries = previous.getCountries();
+        Map<String, Integer> previousRows = new HashMap<>(previousCountries.size() * 2);
+        for (int row = 0; row < previousCountries.size(); row++) {
+            previousRows.putIfAbsent(keyOf(previousCountries.get(row)), row);
+        }
+
+        long[] contentHashes = new long[countries.size()];
+        boolean aligned = countries.size() == previousCountries.size() && previousRows.size() == previousCountries.size();
+        List<CountryChange> changes = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (int row = 0; row < countries.size(); row++) {
+            CountryRecord country = countries.get(row);
+            String key = keyOf(country);
+            contentHashes[row] = ContentHash.of(country.jsonBuffer());
+            Integer previousRow = previousRows.get(key);
+            boolean firstOccurrence = seen.add(key);
+            aligned &= firstOccurrence && previousRow != null && previousRow == row;
+            if (previousRow == null) {
+                changes.add(new CountryChange(CountryChange.Type.ADDED, key, fieldsOf(treeOf(country))));
+            } else if (previous.contentHashOf(previousRow) != contentHashes[row]) {
+                changes.add(new CountryChange(CountryChange.Type.CHANGED, key,
+                        changedFields(treeOf(previousCountries.get(previousRow)), treeOf(country))));
+            }
+        }
+        for (CountryRecord country : previousCountries) {
+            String key = keyOf(country);
+            if (!seen.contains(key)) {
+                changes.add(new CountryChange(CountryChange.Type.REMOVED, key, fieldsOf(treeOf(country))));
+            }
+        }
+        return new SnapshotDiff(Collections.unmodifiableList(changes), contentHashes, aligned);
+    }
+
+    /**
+     * Gets the added, removed and changed countries.
+     *
+     * @return the changes, fetched countries first in fetch order, then the removed ones
+     */
+    public List<CountryChange> getChanges() {
+        return changes;
+    }
+
+    /**
+     * Checks whether the fetched countries are the countries of the snapshot, in any order.
+     *
+     * @return true if no country was added, removed or changed
+     */
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    /**
+     * Checks whether the fetched countries are the countries of the snapshot, row by row.
+     *
+     * @return true if both hold the same cca3 codes in the same order
+     */
+    public boolean isAligned() {
+        return aligned;
+    }
+
+    /**
+     * Checks whether any change touches the given fields.
+     *
+     * @param fields the top-level field names
+     * @return true if a country was added or removed, or one of the fields changed
+     */
+    public boolean affects(Set<String> fields) {
+        for (CountryChange change : changes) {
+            if (change.affects(fields)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long[] getContentHashes() {
+        return contentHashes;
+    }
+
+    /**
+     * Gets the key of a country, countries without cca3 code never match.
+     */
+    private static String keyOf(CountryRecord country) {
+        return country.getCca3() != null ? country.getCca3() : "#" + System.identityHashCode(country);
+    }
+
+    private static JsonNode treeOf(CountryRecord country) {
+        try (JsonParser parser = country.createJsonParser(OBJECT_MAPPER.getFactory())) {
+            return OBJECT_MAPPER.readTree(parser);
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Unable to decode country " + country.getCca3(), ex);
+        }
+    }
+
+    private static Set<String> fieldsOf(JsonNode country) {
+        Set<String> fields = new LinkedHashSet<>();
+        country.fieldNames().forEachRemaining(fields::add);
+        return Collections.unmodifiableSet(fields);
+    }
+
+    private static Set<String> changedFields(JsonNode before, JsonNode after) {
+        Set<String> fields = new LinkedHashSet<>();
+        for (Iterator<String> names = before.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!Objects.equals(before.get(name), after.get(name))) {
+                fields.add(name);
+            }
+        }
+        for (Iterator<String> names = after.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!before.has(name)) {
+                fields.add(name);
+            }
+        }
+        return Collections.unmodifiableSet(fields);
+    }
+}
@@ -0,0 +1,330 @@
+package com.acc.countries.snapshot;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+
+
+/**
+ * The Class SpatialIndex
+ * Static k-d tree over the positions of the countries, built once per snapshot.
+ * Positions are projected on the unit sphere as 3D vectors, so the straight line (chord) distance between two
+ * vectors grows with the great-circle distance and the tree prunes with plain axis comparisons, without
+ * special cases at the poles or the antimeridian. Distances are reported as great-circle kilometres.
+ * The tree is implicit: the node of a range is its middle element, its children are the two halves.
+ */
+public final class SpatialIndex {
+    /**
+     * Mean earth radius in kilometres
+     */
+    public static final double EARTH_RADIUS_KM = 6371.0088;
+
+    private final List<CountryRecord> countries;
+
+    private final int[] rows;
+
+    private final double[] xs;
+
+    private final double[] ys;
+
+    private final double[] zs;
+
+    /**
+     * A country found by a query
+     *
+     * @param country    the country
+     * @param distanceKm the great-circle distance to the queried point
+     */
+    public record Neighbour(CountryRecord country, double distanceKm) {
+    }
+
+    /**
+     * Instantiates a new SpatialIndex
+     *
+     * @param countries the snapshot countries
+     * @param position  gets the latitude and longitude of a country, countries with less than 2 coordinates are skipped
+     */
+    public SpatialIndex(List<CountryRecord> countries, Function<CountryRecord, double[]> position) {
+        this.countries = countries;
+
+        int[] indexed = new int[countries.size()];
+        double[][] points = new double[countries.size()][];
+        int size = 0;
+        for (int row = 0; row < countries.size(); row++) {
+            double[] latlng = position.apply(countries.get(row));
+            if (latlng != null && latlng.length >= 2) {
+                indexed[size] = row;
+                points[size] = toVector(latlng[0], latlng[1]);
+                size++;
+            }
+        }
+        this.rows = Arrays.copyOf(indexed, size);
+        double[][] vectors = Arrays.copyOf(points, size);
+        build(vectors, 0, size, 0);
+
+        this.xs = new double[size];
+        this.ys = new double[size];
+        this.zs = new double[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = vectors[i][0];
+            ys[i] = vectors[i][1];
+            zs[i] = vectors[i][2];
+        }
+    }
+
+    private SpatialIndex(SpatialIndex index, List<CountryRecord> countries) {
+        this.countries = countries;
+        this.rows = index.rows;
+        this.xs = index.xs;
+        this.ys = index.ys;
+        this.zs = index.zs;
+    }
+
+    /**
+     * Gets this index over new records of the same countries, at the same positions.
+     *
+     * @param countries the countries, in the order of the indexed ones
+     * @return the SpatialIndex sharing the tree of this one
+     */
+    SpatialIndex withCountries(List<CountryRecord> countries) {
+        return new SpatialIndex(this, countries);
+    }
+
+    /**
+     * Gets the number of indexed countries.
+     *
+     * @return the size
+     */
+    public int size() {
+        return rows.length;
+    }
+
+    /**
+     * Finds the k countries closest to a point.
+     *
+     * @param lat the latitude in degrees
+     * @param lng the longitude in degrees
+     * @param k   the maximum number of countries
+     * @return the countries, closest first
+     */
+    public List<Neighbour> nearest(double lat, double lng, int k) {
+        double[] query = toVector(lat, lng);
+        int capacity = Math.min(k, rows.length);
+        if (capacity <= 0) {
+            return List.of();
+        }
+        // Bounded max-heap of the best candidates, the worst one at the root
+        int[] heap = new int[capacity];
+        double[] heapDistances = new double[capacity];
+        int found = searchNearest(query, 0, rows.length, 0, heap, heapDistances, 0);
+
+        Integer[] order = new Integer[found];
+        for (int i = 0; i < found; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (left, right) -> Double.compare(heapDistances[left], heapDistances[right]));
+        List<Neighbour> neighbours = new ArrayList<>(found);
+        for (int i : order) {
+            neighbours.add(neighbour(heap[i], heapDistances[i]));
+        }
+        return neighbours;
+    }
+
+    /**
+     * Finds the countries within a great-circle distance of a point.
+     *
+     * @param lat      the latitude in degrees
+     * @param lng      the longitude in degrees
+     * @param radiusKm the radius in kilometres
+     * @return the countries, closest first
+     */
+    public List<Neighbour> withinRadius(double lat, double lng, double radiusKm) {
+        double[] query = toVector(lat, lng);
+        double chord = 2d * Math.sin(Math.min(radiusKm / EARTH_RADIUS_KM, Math.PI) / 2d);
+        List<Neighbour> neighbours = new ArrayList<>();
+        searchRadius(query, chord * chord, 0, rows.length, 0, neighbours);
+        neighbours.sort((left, right) -> Double.compare(left.distanceKm(), right.distanceKm()));
+        return neighbours;
+    }
+
+    /**
+     * Gets the great-circle distance between two points.
+     *
+     * @param lat1 the latitude of the first point
+     * @param lng1 the longitude of the first point
+     * @param lat2 the latitude of the second point
+     * @param lng2 the longitude of the second point
+     * @return the distance in kilometres
+     */
+    public static double distanceKm(double lat1, double lng1, double lat2, double lng2) {
+        double[] from = toVector(lat1, lng1);
+        double[] to = toVector(lat2, lng2);
+        return chordToKm(squaredDistance(from, to[0], to[1], to[2]));
+    }
+
+    private int searchNearest(double[] query, int from, int to, int depth, int[] heap, double[] heapDistances, int found) {
+        if (from >= to) {
+            return found;
+        }
+        int node = (from + to) >>> 1;
+        double distance = squaredDistance(query, xs[node], ys[node], zs[node]);
+        if (found < heap.length) {
+            heap[found] = node;
+            heapDistances[found] = distance;
+            siftUp(heap, heapDistances, found);
+            found++;
+        } else if (distance < heapDistances[0]) {
+            heap[0] = node;
+            heapDistances[0] = distance;
+            siftDown(heap, heapDistances, found);
+        }
+
+        double delta = query[depth % 3] - coordinate(node, depth % 3);
+        boolean leftFirst = delta < 0d;
+        found = leftFirst ? searchNearest(query, from, node, depth + 1, heap, heapDistances, found)
+                : searchNearest(query, node + 1, to, depth + 1, heap, heapDistances, found);
+        if (found < heap.length || delta * delta < heapDistances[0]) {
+            found = leftFirst ? searchNearest(query, node + 1, to, depth + 1, heap, heapDistances, found)
+                    : searchNearest(query, from, node, depth + 1, heap, heapDistances, found);
+        }
+        return found;
+    }
+
+    private void searchRadius(double[] query, double squaredChord, int from, int to, int depth, List<Neighbour> neighbours) {
+        if (from >= to) {
+            return;
+        }
+        int node = (from + to) >>> 1;
+        double distance = squaredDistance(query, xs[node], ys[node], zs[node]);
+        if (distance <= squaredChord) {
+            neighbours.add(neighbour(node, distance));
+        }
+        double delta = query[depth % 3] - coordinate(node, depth % 3);
+        if (delta < 0d || delta * delta <= squaredChord) {
+            searchRadius(query, squaredChord, from, node, depth + 1, neighbours);
+        }
+        if (delta >= 0d || delta * delta <= squaredChord) {
+            searchRadius(query, squaredChord, node + 1, to, depth + 1, neighbours);
+        }
+    }
+
+    private Neighbour neighbour(int node, double squaredChord) {
+        return new Neighbour(countries.get(rows[node]), chordToKm(squaredChord));
+    }
+
+    private double coordinate(int node, int axis) {
+        return axis == 0 ? xs[node] : axis == 1 ? ys[node] : zs[node];
+    }
+
+    /**
+     * Orders the range so its middle element splits it on the axis of the depth, then recurses into both halves.
+     */
+    private void build(double[][] vectors, int from, int to, int depth) {
+        if (to - from <= 1) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        select(vectors, from, to - 1, middle, depth % 3);
+        build(vectors, from, middle, depth + 1);
+        build(vectors, middle + 1, to, depth + 1);
+    }
+
+    /**
+     * Quickselect, moves the k-th smallest element of the range on the axis to position k.
+     */
+    private void select(double[][] vectors, int left, int right, int k, int axis) {
+        while (left < right) {
+            double pivot = vectors[(left + right) >>> 1][axis];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (vectors[i][axis] < pivot) {
+                    i++;
+                }
+                while (vectors[j][axis] > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    swap(vectors, i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private void swap(double[][] vectors, int i, int j) {
+        double[] vector = vectors[i];
+        vectors[i] = vectors[j];
+        vectors[j] = vector;
+        int row = rows[i];
+        rows[i] = rows[j];
+        rows[j] = row;
+    }
+
+    private static void siftUp(int[] heap, double[] distances, int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (distances[parent] >= distances[index]) {
+                return;
+            }
+            swapHeap(heap, distances, parent, index);
+            index = parent;
+        }
+    }
+
+    private static void siftDown(int[] heap, double[] distances, int size) {
+        int index = 0;
+        while (true) {
+            int largest = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && distances[left] > distances[largest]) {
+                largest = left;
+            }
+            if (right < size && distances[right] > distances[largest]) {
+                largest = right;
+            }
+            if (largest == index) {
+                return;
+            }
+            swapHeap(heap, distances, largest, index);
+            index = largest;
+        }
+    }
+
+    private static void swapHeap(int[] heap, double[] distances, int i, int j) {
+        int node = heap[i];
+        heap[i] = heap[j];
+        heap[j] = node;
+        double distance = distances[i];
+        distances[i] = distances[j];
+        distances[j] = distance;
+    }
+
+    private static double[] toVector(double lat, double lng) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lng);
+        double cosPhi = Math.cos(phi);
+        return new double[]{cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    private static double squaredDistance(double[] query, double x, double y, double z) {
+        double dx = query[0] - x;
+        double dy = query[1] - y;
+        double dz = query[2] - z;
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    private static double chordToKm(double squaredChord) {
+        return 2d * EARTH_RADIUS_KM * Math.asin(Math.min(1d, Math.sqrt(squaredChord) / 2d));
+    }
+}
@@ -0,0 +1,38 @@
+package com.acc.countries.snapshot;
+
+import java.util.HashMap;
+import java.util.Map;
+
+
+/**
+ * The Class StringPool
+ * Deduplicates the strings repeated across the countries of one snapshot, such as regions, subregions
+ * and the cca3 codes listed in every neighbour's borders, so each distinct value is held once.
+ * Unlike {@link String#intern()} the pool is dropped with its snapshot. Not thread safe, one pool per ingest.
+ */
+public final class StringPool {
+    private final Map<String, String> strings = new HashMap<>(1024);
+
+    /**
+     * Gets the pooled instance of a string.
+     *
+     * @param value the string, may be null
+     * @return the pooled instance equal to the value, or null
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String pooled = strings.putIfAbsent(value, value);
+        return pooled == null ? value : pooled;
+    }
+
+    /**
+     * Gets the number of distinct strings in the pool.
+     *
+     * @return the size
+     */
+    public int size() {
+        return strings.size();
+    }
+}
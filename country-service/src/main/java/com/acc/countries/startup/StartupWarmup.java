@@ -0,0 +1,126 @@
+package com.acc.countries.startup;
+
+import com.acc.countries.snapshot.CountrySnapshotStore;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * The Class StartupWarmup
+ * Preloads the country data and exercises the endpoints over loopback before the replica reports ready, so the first
+ * requests routed to a new pod neither wait for the upstream API nor run in the interpreter.
+ * Application runners complete before Spring Boot publishes the ACCEPTING_TRAFFIC readiness state, so
+ * {@code /actuator/health/readiness} only turns UP once the warm-up is over.
+ * The data is preloaded from the persisted snapshot file when present, otherwise by a refresh from the peers or
+ * the upstream API. Without data the warm-up is skipped, the endpoints would only exercise their fallbacks.
+ * Enabled with {@code country.warmup.enabled}, the property is read at run time so it also applies to an AOT
+ * processed build.
+ */
+@Slf4j
+@Component
+public class StartupWarmup implements ApplicationRunner {
+    private static final String API = "/api/v1/countries";
+
+    @Value("${country.warmup.enabled:false}")
+    private boolean enabled;
+
+    @Value("${country.warmup.iterations:40}")
+    private int iterations;
+
+    @Value("${country.warmup.max-duration:PT10S}")
+    private Duration maxDuration;
+
+    @Autowired
+    private CountrySnapshotStore countrySnapshotStore;
+
+    @Autowired
+    private Environment environment;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (!enabled) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        if (countrySnapshotStore.getSnapshot().isEmpty()) {
+            countrySnapshotStore.refresh();
+        }
+        if (countrySnapshotStore.getSnapshot().isEmpty()) {
+            log.warn("No country data could be preloaded, skipping the warm-up");
+            return;
+        }
+        Duration preload = Duration.ofNanos(System.nanoTime() - start);
+
+        String port = environment.getProperty("local.server.port");
+        if (port == null) {
+            log.warn("No local server port, skipping the warm-up");
+            return;
+        }
+        warmUp(requests("http://127.0.0.1:" + port + API));
+        log.info("Preloaded country snapshot version {} in {} ms, warmed up with {} requests in {} ms",
+                countrySnapshotStore.getSnapshot().getVersion(), preload.toMillis(), requestCount.get(),
+                Duration.ofNanos(System.nanoTime() - start).minus(preload).toMillis());
+    }
+
+
+    /**
+     * Gets the number of warm-up requests sent.
+     *
+     * @return the request count
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+
+
+    /**
+     * The warm-up requests: both original endpoints, plus the gzip encoded ranking.
+     */
+    private static List<HttpRequest> requests(String baseUrl) {
+        return List.of(
+                HttpRequest.newBuilder(URI.create(baseUrl + "/getByPopulationDensity")).GET().build(),
+                HttpRequest.newBuilder(URI.create(baseUrl + "/getByPopulationDensity")).header("Accept-Encoding", "gzip").GET().build(),
+                HttpRequest.newBuilder(URI.create(baseUrl + "/getAsianCountryWithMostNonAsianBorders")).GET().build());
+    }
+
+    private void warmUp(List<HttpRequest> requests) {
+        HttpClient httpClient = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build();
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        for (int i = 0; i < iterations && System.nanoTime() < deadline; i++) {
+            for (HttpRequest request : requests) {
+                try {
+                    int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    requestCount.incrementAndGet();
+                    if (status != 200) {
+                        log.warn("Warm-up request {} answered {}, stopping the warm-up", request.uri(), status);
+                        return;
+                    }
+                } catch (IOException ex) {
+                    log.warn("Warm-up request {} failed, stopping the warm-up: {}", request.uri(), ex.getMessage());
+                    return;
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.acc.countries.streaming;
+
+import com.acc.countries.payload.DataVersion;
+import com.acc.countries.projection.FieldProjection;
+import com.acc.countries.snapshot.DensityRanking;
+import com.fasterxml.jackson.core.JsonFactory;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+
+/**
+ * The Class CountryStream
+ * The density ranking of one snapshot, written to a client country by country instead of as one JSON array.
+ * Complete countries are copied from the ranking JSON as is, projected countries are filtered one at a time,
+ * so the serialized body is never held in memory. Writes block while the client is not reading, which throttles
+ * the stream to the pace of the client, and the output is flushed every {@code flushEvery} countries so the first
+ * countries reach the client right away.
+ */
+public final class CountryStream {
+    private final DensityRanking densityRanking;
+
+    private final FieldProjection projection;
+
+    private final JsonFactory jsonFactory;
+
+    private final DataVersion dataVersion;
+
+    /**
+     * Instantiates a new CountryStream
+     *
+     * @param densityRanking the ranking to stream, held so a refresh during the stream does not change it
+     * @param projection     the fields to keep, null for the complete countries
+     * @param jsonFactory    the json factory used for projections
+     * @param dataVersion    the version of the snapshot the ranking belongs to
+     */
+    public CountryStream(DensityRanking densityRanking, FieldProjection projection, JsonFactory jsonFactory, DataVersion dataVersion) {
+        this.densityRanking = densityRanking;
+        this.projection = projection;
+        this.jsonFactory = jsonFactory;
+        this.dataVersion = dataVersion;
+    }
+
+    /**
+     * Gets the version of the streamed data.
+     *
+     * @return the DataVersion
+     */
+    public DataVersion getDataVersion() {
+        return dataVersion;
+    }
+
+    /**
+     * Gets the number of countries in the stream.
+     *
+     * @return the country count
+     */
+    public int size() {
+        return densityRanking.getRankedCountries().size();
+    }
+
+    /**
+     * Writes the countries in rank order.
+     *
+     * @param out        the output stream, not closed
+     * @param format     the framing of the countries
+     * @param flushEvery the number of countries written between two flushes
+     * @throws IOException if the client is gone
+     */
+    public void writeTo(OutputStream out, StreamFormat format, int flushEvery) throws IOException {
+        int size = size();
+        for (int rank = 0; rank < size; rank++) {
+            format.writeCountryStart(out, rank + 1);
+            if (projection == null) {
+                densityRanking.writeJson(rank, out);
+            } else {
+                projection.projectCountry(jsonFactory, densityRanking.getRankedCountries().get(rank), out);
+            }
+            format.writeCountryEnd(out);
+            if ((rank + 1) % flushEvery == 0) {
+                out.flush();
+            }
+        }
+        format.writeEnd(out, size, dataVersion.getVersion());
+        out.flush();
+    }
+}
@@ -0,0 +1,91 @@
+package com.acc.countries.streaming;
+
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * The Enum StreamFormat
+ * Framing of the countries in a {@link CountryStream}: NDJSON writes one country per line, Server-Sent Events write
+ * one {@code country} event per country, its id being the rank, followed by an {@code end} event with the count.
+ */
+public enum StreamFormat {
+    NDJSON(MediaType.APPLICATION_NDJSON),
+    SSE(MediaType.TEXT_EVENT_STREAM);
+
+    private static final byte[] SSE_ID = "id: ".getBytes(StandardCharsets.US_ASCII);
+
+    private static final byte[] SSE_COUNTRY = "\nevent: country\ndata: ".getBytes(StandardCharsets.US_ASCII);
+
+    private final MediaType mediaType;
+
+    StreamFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    /**
+     * Selects the format from an Accept header, NDJSON unless event streams are explicitly accepted.
+     *
+     * @param accept the Accept header, may be null
+     * @return the StreamFormat
+     */
+    public static StreamFormat of(String accept) {
+        if (accept != null) {
+            for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+                if (mediaType.equalsTypeAndSubtype(MediaType.TEXT_EVENT_STREAM)) {
+                    return SSE;
+                }
+            }
+        }
+        return NDJSON;
+    }
+
+    /**
+     * Writes what precedes the JSON of a country.
+     *
+     * @param out  the output stream
+     * @param rank the rank of the country, from 1
+     * @throws IOException if the client is gone
+     */
+    void writeCountryStart(OutputStream out, int rank) throws IOException {
+        if (this == SSE) {
+            out.write(SSE_ID);
+            out.write(Integer.toString(rank).getBytes(StandardCharsets.US_ASCII));
+            out.write(SSE_COUNTRY);
+        }
+    }
+
+    /**
+     * Writes what follows the JSON of a country.
+     *
+     * @param out the output stream
+     * @throws IOException if the client is gone
+     */
+    void writeCountryEnd(OutputStream out) throws IOException {
+        out.write('\n');
+        if (this == SSE) {
+            out.write('\n');
+        }
+    }
+
+    /**
+     * Writes the end of the stream, NDJSON has no trailer.
+     *
+     * @param out     the output stream
+     * @param count   the number of countries written
+     * @param version the data version the countries were read from
+     * @throws IOException if the client is gone
+     */
+    void writeEnd(OutputStream out, int count, long version) throws IOException {
+        if (this == SSE) {
+            out.write(("event: end\ndata: {\"count\":" + count + ",\"version\":" + version + "}\n\n").getBytes(StandardCharsets.US_ASCII));
+        }
+    }
+}
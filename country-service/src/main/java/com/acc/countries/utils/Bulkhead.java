@@ -0,0 +1,79 @@
+package com.acc.countries.utils;
+
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The Class Bulkhead
+ * Caps the number of concurrent calls to a dependency, a call waits at most {@code maxWait} for a free slot
+ * and is rejected otherwise, so a slow dependency ties up a bounded number of threads.
+ */
+public class Bulkhead {
+    private final int maxConcurrentCalls;
+
+    private final long maxWaitNanos;
+
+    private final Semaphore slots;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    /**
+     * Instantiates a new Bulkhead
+     *
+     * @param maxConcurrentCalls the maximum number of concurrent calls
+     * @param maxWait            the maximum time to wait for a free slot
+     */
+    public Bulkhead(int maxConcurrentCalls, Duration maxWait) {
+        if (maxConcurrentCalls < 1) {
+            throw new IllegalArgumentException("maxConcurrentCalls must be greater than 0");
+        }
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitNanos = maxWait.toNanos();
+        this.slots = new Semaphore(maxConcurrentCalls, true);
+    }
+
+    /**
+     * Takes a slot, waiting at most the configured time. Every acquired slot must be given back with {@link #release()}.
+     *
+     * @return true if a slot was acquired
+     */
+    public boolean tryAcquire() {
+        try {
+            if (slots.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        rejectedCount.increment();
+        return false;
+    }
+
+    /**
+     * Gives back a slot.
+     */
+    public void release() {
+        slots.release();
+    }
+
+    /**
+     * Gets the number of calls currently holding a slot.
+     *
+     * @return the active count
+     */
+    public int activeCount() {
+        return maxConcurrentCalls - slots.availablePermits();
+    }
+
+    /**
+     * Gets the number of calls rejected for lack of a free slot.
+     *
+     * @return the rejected count
+     */
+    public long rejectedCount() {
+        return rejectedCount.sum();
+    }
+}
@@ -0,0 +1,134 @@
+package com.acc.countries.utils;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+
+/**
+ * The Class CircuitBreaker
+ * Stops calling a failing dependency: after {@code failureThreshold} consecutive failures the circuit opens and
+ * calls are rejected without being attempted for {@code openDuration}. The circuit then half-opens and lets a
+ * single trial call through, its success closes the circuit, its failure opens it again.
+ */
+public class CircuitBreaker {
+    /**
+     * The Enum State
+     */
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+
+    private final long openNanos;
+
+    private final LongSupplier nanoClock;
+
+    private final LongAdder rejectedCount = new LongAdder();
+
+    private State state = State.CLOSED;
+
+    private int consecutiveFailures;
+
+    private long openedAt;
+
+    private boolean trialInFlight;
+
+    /**
+     * Instantiates a new CircuitBreaker
+     *
+     * @param failureThreshold the consecutive failures opening the circuit
+     * @param openDuration     the time calls are rejected before a trial call
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    /**
+     * Instantiates a new CircuitBreaker
+     *
+     * @param failureThreshold the consecutive failures opening the circuit
+     * @param openDuration     the time calls are rejected before a trial call
+     * @param nanoClock        the monotonic clock in nanoseconds
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be greater than 0");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Asks for the permission to make a call, every permitted call must be followed by
+     * {@link #onSuccess()} or {@link #onFailure()}.
+     *
+     * @return true if the call may be made
+     */
+    public synchronized boolean tryAcquirePermission() {
+        if (state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos) {
+            state = State.HALF_OPEN;
+        }
+        boolean permitted = switch (state) {
+            case CLOSED -> true;
+            case OPEN -> false;
+            case HALF_OPEN -> !trialInFlight;
+        };
+        if (!permitted) {
+            rejectedCount.increment();
+        } else if (state == State.HALF_OPEN) {
+            trialInFlight = true;
+        }
+        return permitted;
+    }
+
+    /**
+     * Records a successful call, closing the circuit.
+     */
+    public synchronized void onSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Records a failed call, opening the circuit on a failed trial or once the threshold is reached.
+     */
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = nanoClock.getAsLong();
+        }
+    }
+
+    /**
+     * Gets the state, an open circuit whose open duration elapsed is reported half-open.
+     *
+     * @return the State
+     */
+    public synchronized State getState() {
+        return state == State.OPEN && nanoClock.getAsLong() - openedAt >= openNanos ? State.HALF_OPEN : state;
+    }
+
+    /**
+     * Gets the time left before an open circuit lets a trial call through.
+     *
+     * @return the remaining open time, zero if the circuit is not open
+     */
+    public synchronized Duration getRemainingOpenDuration() {
+        return state == State.OPEN ? Duration.ofNanos(Math.max(0L, openNanos - (nanoClock.getAsLong() - openedAt))) : Duration.ZERO;
+    }
+
+    /**
+     * Gets the number of calls rejected without being attempted.
+     *
+     * @return the rejected count
+     */
+    public long rejectedCount() {
+        return rejectedCount.sum();
+    }
+}
@@ -0,0 +1,59 @@
+package com.acc.countries.utils;
+
+import java.nio.ByteBuffer;
+
+
+/**
+ * The Class ContentHash
+ * 64-bit FNV-1a hash of a byte range, used to tell whether a country or a response body changed between two data
+ * versions without keeping the previous bytes. With 64 bits a collision among a few hundred countries is not a
+ * practical concern, equal hashes are taken as equal content.
+ */
+public final class ContentHash {
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long PRIME = 0x100000001b3L;
+
+    private ContentHash() {
+    }
+
+    /**
+     * Hashes a byte array.
+     *
+     * @param bytes the bytes
+     * @return the hash
+     */
+    public static long of(byte[] bytes) {
+        return of(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Hashes a byte range.
+     *
+     * @param bytes  the bytes
+     * @param offset the offset of the range
+     * @param length the length of the range
+     * @return the hash
+     */
+    public static long of(byte[] bytes, int offset, int length) {
+        long hash = OFFSET_BASIS;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ (bytes[i] & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+
+    /**
+     * Hashes the remaining bytes of a buffer, without moving its position.
+     *
+     * @param buffer the buffer
+     * @return the hash
+     */
+    public static long of(ByteBuffer buffer) {
+        long hash = OFFSET_BASIS;
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            hash = (hash ^ (buffer.get(i) & 0xff)) * PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,54 @@
+package com.acc.countries.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+
+/**
+ * The Class PageCursor
+ * Opaque paging cursor tying a position in a ranking to the data version it was computed on.
+ *
+ * @param version the snapshot version
+ * @param offset  the offset of the next page
+ */
+public record PageCursor(long version, int offset) {
+    private static final String PREFIX = "v1:";
+
+    /**
+     * Encodes the cursor as an url-safe token.
+     *
+     * @return the token
+     */
+    public String encode() {
+        String cursor = PREFIX + version + ":" + offset;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * Decodes a cursor token.
+     *
+     * @param token the token
+     * @return the PageCursor
+     * @throws IllegalArgumentException if the token is not a valid cursor
+     */
+    public static PageCursor decode(String token) {
+        try {
+            String cursor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.US_ASCII);
+            if (!cursor.startsWith(PREFIX)) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            String[] parts = cursor.substring(PREFIX.length()).split(":");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            int offset = Integer.parseInt(parts[1]);
+            if (offset < 0) {
+                throw new IllegalArgumentException("Invalid cursor: " + token);
+            }
+            return new PageCursor(Long.parseLong(parts[0]), offset);
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException and invalid Base64 are both IllegalArgumentException
+            throw new IllegalArgumentException("Invalid cursor: " + token, ex);
+        }
+    }
+}
@@ -1,62 +1,207 @@
 package com.acc.countries.utils;
 
-import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.exceptions.UpstreamUnavailableException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 
-import java.util.Map;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Supplier;
 
 
 /**
  * The Helper class RestApiRequestHelper
+ * Identical concurrent upstream calls are coalesced, callers share the result of the single call in flight.
+ * Every call is timed as {@code country.upstream.calls}, tagged by operation and outcome, including the time spent
+ * waiting on a coalesced call.
+ * Executed calls go through a {@link Bulkhead} capping the concurrent upstream calls and a {@link CircuitBreaker}:
+ * while the upstream API keeps failing, calls fail fast with an {@link UpstreamUnavailableException} instead of
+ * holding threads until the timeouts expire.
  */
 @Component
 public class RestApiRequestHelper {
     @Autowired
     private RestTemplate restTemplate;
 
+    @Autowired
+    private ExecutorService upstreamExecutor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private CircuitBreaker upstreamCircuitBreaker;
+
+    @Autowired
+    private Bulkhead upstreamBulkhead;
+
+    private final SingleFlight<UpstreamCallKey, Object> singleFlight = new SingleFlight<>();
+
+    /**
+     * Fetch the raw response of a GET request, the body is left undecoded for streaming ingest
+     *
+     * @param url     the url
+     * @param headers the headers
+     * @return the ResponseEntity with the raw body bytes, every caller gets its own copy of the body shared by the concurrent callers of the same url
+     */
+    @SuppressWarnings("unchecked")
+    public ResponseEntity<byte[]> fetchRawResponse(String url, HttpHeaders headers) {
+        UpstreamCallKey key = new UpstreamCallKey(url, copyOf(headers));
+        return timed("fetchRawResponse", () -> copyOf((ResponseEntity<byte[]>) join(singleFlight.execute(key, () -> guarded(() -> restTemplate.exchange(url, HttpMethod.GET, new HttpEntity<>(headers), byte[].class)), upstreamExecutor), ResponseEntity.class)));
+    }
+
+    /**
+     * Gets the number of upstream calls actually executed.
+     *
+     * @return the executed count
+     */
+    public long getExecutedCallCount() {
+        return singleFlight.executedCount();
+    }
+
+    /**
+     * Gets the number of upstream calls served by joining an identical call in flight.
+     *
+     * @return the coalesced count
+     */
+    public long getCoalescedCallCount() {
+        return singleFlight.coalescedCount();
+    }
+
+    /**
+     * Checks whether upstream calls are currently rejected by the open circuit.
+     *
+     * @return true if the circuit is open
+     */
+    public boolean isCircuitOpen() {
+        return upstreamCircuitBreaker.getState() == CircuitBreaker.State.OPEN;
+    }
+
     /**
-     * Create HttpEntity with http headers.
+     * Gets the circuit breaker state of the upstream calls.
      *
-     * @return HttpEntity the http entity
+     * @return the State
      */
-    public HttpEntity createHttpEntityWithHeaders() {
-        HttpHeaders headers = new HttpHeaders();
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        return entity;
+    public CircuitBreaker.State getCircuitState() {
+        return upstreamCircuitBreaker.getState();
     }
 
     /**
-     * Get custom ResponseEntity array T[]
+     * Gets the number of upstream calls rejected by the open circuit or the full bulkhead.
      *
-     * @param <T>          the type parameter
-     * @param url          the url
-     * @param headers      the headers
-     * @param responseType the response type
-     * @return the T[]
+     * @return the rejected count
      */
-    public <T> T[] getCustomResponseEntityArray(String url, HttpHeaders headers, Class<T[]> responseType) {
-        HttpEntity<String> entity = new HttpEntity<>(headers);
-        ResponseEntity<T[]> responseEntity = restTemplate.exchange(url, HttpMethod.GET, entity, responseType);
-        return responseEntity.getBody();
+    public long getRejectedCallCount() {
+        return upstreamCircuitBreaker.rejectedCount() + upstreamBulkhead.rejectedCount();
     }
 
     /**
-     * Fetch country details CountryResponseDto[]
+     * Gets the number of upstream calls currently executing.
      *
-     * @param url        the url
-     * @param httpMethod the http method
-     * @param params     the params
-     * @return the CountryResponseDto[]
-     */
-    public CountryResponseDto[] fetchCountryDetails(String url, HttpMethod httpMethod, Map<String, String> params) {
-        HttpEntity httpEntity = createHttpEntityWithHeaders();
-        ResponseEntity<CountryResponseDto[]> responseEntity = restTemplate.exchange(url, httpMethod, httpEntity, CountryResponseDto[].class, params);
-        return responseEntity.getBody();
+     * @return the active count
+     */
+    public int getActiveCallCount() {
+        return upstreamBulkhead.activeCount();
+    }
+
+    /**
+     * Runs an upstream call within the bulkhead and the circuit breaker.
+     * Client errors (4xx) prove the upstream API is up and do not count as failures.
+     */
+    private <R> R guarded(Supplier<R> call) {
+        if (!upstreamBulkhead.tryAcquire()) {
+            throw new UpstreamUnavailableException("Too many concurrent upstream calls", Duration.ZERO);
+        }
+        try {
+            if (!upstreamCircuitBreaker.tryAcquirePermission()) {
+                throw new UpstreamUnavailableException("Upstream circuit is open", upstreamCircuitBreaker.getRemainingOpenDuration());
+            }
+            try {
+                R result = call.get();
+                upstreamCircuitBreaker.onSuccess();
+                return result;
+            } catch (HttpClientErrorException ex) {
+                upstreamCircuitBreaker.onSuccess();
+                throw ex;
+            } catch (RuntimeException | Error ex) {
+                // Every permitted call is recorded, otherwise a half-open trial failing with an Error would hold the circuit half-open
+                upstreamCircuitBreaker.onFailure();
+                throw ex;
+            }
+        } finally {
+            upstreamBulkhead.release();
+        }
+    }
+
+    /**
+     * Times an upstream call as seen by its caller.
+     */
+    private <R> R timed(String operation, Supplier<R> call) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        try {
+            R result = call.get();
+            outcome = "success";
+            return result;
+        } catch (UpstreamUnavailableException ex) {
+            outcome = "rejected";
+            throw ex;
+        } finally {
+            sample.stop(Timer.builder("country.upstream.calls")
+                    .description("Upstream API calls made through RestApiRequestHelper")
+                    .tag("operation", operation)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Waits for a coalesced call and rethrows its failure as is.
+     */
+    private static <R> R join(CompletableFuture<Object> call, Class<R> responseType) {
+        try {
+            return responseType.cast(call.join());
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (ex.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    /**
+     * Copies the body of a coalesced raw response, the status and the read-only headers are shared.
+     */
+    private static ResponseEntity<byte[]> copyOf(ResponseEntity<byte[]> response) {
+        if (response == null || response.getBody() == null) {
+            return response;
+        }
+        return new ResponseEntity<>(response.getBody().clone(), response.getHeaders(), response.getStatusCode());
+    }
+
+    private static HttpHeaders copyOf(HttpHeaders headers) {
+        HttpHeaders copy = new HttpHeaders();
+        copy.putAll(headers);
+        return HttpHeaders.readOnlyHttpHeaders(copy);
+    }
+
+    /**
+     * The key identifying identical upstream calls
+     */
+    private record UpstreamCallKey(String url, HttpHeaders headers) {
     }
 }
@@ -0,0 +1,88 @@
+package com.acc.countries.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+
+/**
+ * The Class SingleFlight
+ * Coalesces concurrent calls with the same key: only one call per key is in flight at a time
+ * and every concurrent caller shares its {@link CompletableFuture}.
+ * Once the call completes the key is released, so later callers trigger a new call.
+ *
+ * @param <K> the key type
+ * @param <V> the result type
+ */
+public class SingleFlight<K, V> {
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executedCount = new LongAdder();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    /**
+     * Runs the call for the key on the executor, unless a call for the same key is already in flight.
+     *
+     * @param key      the key identifying identical calls
+     * @param call     the call
+     * @param executor the executor running the call
+     * @return the shared CompletableFuture of the call
+     */
+    public CompletableFuture<V> execute(K key, Supplier<V> call, Executor executor) {
+        CompletableFuture<V> created = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, created);
+        if (existing != null) {
+            coalescedCount.increment();
+            return existing;
+        }
+        executedCount.increment();
+
+        try {
+            executor.execute(() -> {
+                try {
+                    V result = call.get();
+                    inFlight.remove(key, created);
+                    created.complete(result);
+                } catch (Throwable ex) {
+                    inFlight.remove(key, created);
+                    created.completeExceptionally(ex);
+                }
+            });
+        } catch (RuntimeException ex) {
+            inFlight.remove(key, created);
+            created.completeExceptionally(ex);
+        }
+        return created;
+    }
+
+    /**
+     * Gets the number of calls currently in flight.
+     *
+     * @return the in flight count
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    /**
+     * Gets the number of calls actually executed.
+     *
+     * @return the executed count
+     */
+    public long executedCount() {
+        return executedCount.sum();
+    }
+
+    /**
+     * Gets the number of callers which joined a call already in flight.
+     *
+     * @return the coalesced count
+     */
+    public long coalescedCount() {
+        return coalescedCount.sum();
+    }
+}
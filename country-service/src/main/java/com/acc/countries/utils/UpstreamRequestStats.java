@@ -0,0 +1,68 @@
+package com.acc.countries.utils;
+
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * The Interceptor class UpstreamRequestStats
+ * Records the count, failures and latency of every upstream call made through the RestTemplate.
+ */
+public class UpstreamRequestStats implements ClientHttpRequestInterceptor {
+    private final LongAdder requests = new LongAdder();
+
+    private final LongAdder failures = new LongAdder();
+
+    private final LongAdder inFlight = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0L);
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        long start = System.nanoTime();
+        inFlight.increment();
+        try {
+            ClientHttpResponse response = execution.execute(request, body);
+            if (response.getStatusCode().isError()) {
+                failures.increment();
+            }
+            return response;
+        } catch (IOException | RuntimeException ex) {
+            failures.increment();
+            throw ex;
+        } finally {
+            long elapsed = System.nanoTime() - start;
+            inFlight.decrement();
+            requests.increment();
+            totalNanos.add(elapsed);
+            maxNanos.accumulate(elapsed);
+        }
+    }
+
+    /**
+     * Gets a point in time view of the recorded stats.
+     *
+     * @return the stats by name
+     */
+    public Map<String, Object> snapshot() {
+        long count = requests.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("requests", count);
+        stats.put("failures", failures.sum());
+        stats.put("inFlight", inFlight.sum());
+        stats.put("meanLatencyMs", count == 0 ? 0d : TimeUnit.NANOSECONDS.toMicros(totalNanos.sum() / count) / 1000d);
+        stats.put("maxLatencyMs", TimeUnit.NANOSECONDS.toMicros(maxNanos.get()) / 1000d);
+        return stats;
+    }
+}
@@ -0,0 +1,84 @@
+package com.acc.countries.compression;
+
+import com.acc.countries.events.CountryChange;
+import com.acc.countries.events.CountrySnapshotChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CompressedResponseCacheTest {
+
+    private static final byte[] COUNTRIES = "[{\"cca3\":\"SGP\",\"population\":5685807},{\"cca3\":\"BGD\",\"population\":164689383}]".repeat(40).getBytes(StandardCharsets.UTF_8);
+
+    private final CompressedResponseCache compressedResponseCache = new CompressedResponseCache();
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException {
+        Field maxCachedField = CompressedResponseCache.class.getDeclaredField("maxCached");
+        maxCachedField.setAccessible(true);
+        maxCachedField.set(compressedResponseCache, 2);
+
+        Field minSizeField = CompressedResponseCache.class.getDeclaredField("minSize");
+        minSizeField.setAccessible(true);
+        minSizeField.set(compressedResponseCache, 1024);
+    }
+
+
+    @Test
+    void testEncodingIsBuiltOncePerVersion() throws IOException {
+        byte[] gzip = compressedResponseCache.gzip(1L, List.of("getByPopulationDensity"), COUNTRIES);
+
+        assertArrayEquals(COUNTRIES, new GZIPInputStream(new ByteArrayInputStream(gzip)).readAllBytes());
+        assertTrue(gzip.length < COUNTRIES.length / 4);
+        assertSame(gzip, compressedResponseCache.gzip(1L, List.of("getByPopulationDensity"), COUNTRIES));
+        assertEquals(1, compressedResponseCache.hitCount());
+
+        // A new data version reuses the encoding of an unchanged body and recompresses a changed one
+        compressedResponseCache.onSnapshotChanged(new CountrySnapshotChangedEvent(1L, 2L, List.of(
+                new CountryChange(CountryChange.Type.CHANGED, "SGP", Set.of("population")))));
+        assertEquals(0, compressedResponseCache.size());
+        assertSame(gzip, compressedResponseCache.gzip(2L, List.of("getByPopulationDensity"), COUNTRIES));
+        assertEquals(1, compressedResponseCache.carriedOverCount());
+        byte[] changed = Arrays.copyOf(COUNTRIES, COUNTRIES.length);
+        changed[30] = '6';
+        assertNotSame(gzip, compressedResponseCache.gzip(3L, List.of("getByPopulationDensity"), changed));
+        assertEquals(1, compressedResponseCache.size());
+
+        // Late requests on a previous version do not evict the current one
+        compressedResponseCache.gzip(2L, List.of("getByPopulationDensity"), COUNTRIES);
+        assertEquals(1, compressedResponseCache.size());
+    }
+
+
+    @Test
+    void testCacheIsBounded() {
+        for (int i = 0; i < 5; i++) {
+            compressedResponseCache.gzip(1L, List.of("getByPopulationDensity", i), COUNTRIES);
+        }
+        assertEquals(2, compressedResponseCache.size());
+        assertFalse(compressedResponseCache.isCompressible("[]".getBytes(StandardCharsets.UTF_8)));
+    }
+
+
+    @Test
+    void testAcceptEncodingNegotiation() {
+        assertTrue(AcceptEncoding.acceptsGzip("gzip, deflate, br"));
+        assertTrue(AcceptEncoding.acceptsGzip("br;q=1.0, GZIP;q=0.5"));
+        assertTrue(AcceptEncoding.acceptsGzip("*"));
+        assertFalse(AcceptEncoding.acceptsGzip("gzip;q=0, *"));
+        assertFalse(AcceptEncoding.acceptsGzip("identity"));
+        assertFalse(AcceptEncoding.acceptsGzip(null));
+    }
+}
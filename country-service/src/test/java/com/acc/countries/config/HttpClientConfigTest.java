@@ -0,0 +1,146 @@
+package com.acc.countries.config;
+
+import com.sun.net.httpserver.HttpServer;
+import org.apache.hc.client5.http.config.Configurable;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.function.Resolver;
+import org.apache.hc.core5.util.Timeout;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.web.client.RestTemplateAutoConfiguration;
+import org.springframework.boot.context.annotation.UserConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+/**
+ * Builds the upstream RestTemplate of each engine from properties and calls a local server answering gzip.
+ */
+public class HttpClientConfigTest {
+    private static final String BODY = "[{\"cca3\":\"SGP\"}]".repeat(50);
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(RestTemplateAutoConfiguration.class))
+            .withConfiguration(UserConfigurations.of(HttpClientConfig.class))
+            .withPropertyValues("country.http-client.connect-timeout=3s", "country.http-client.read-timeout=7s",
+                    "country.http-client.connection-request-timeout=400ms", "country.http-client.max-connections-total=12",
+                    "country.http-client.max-connections-per-route=6");
+
+    private final AtomicReference<String> acceptEncoding = new AtomicReference<>();
+
+    private HttpServer server;
+
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/all", exchange -> {
+            acceptEncoding.set(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            boolean gzip = acceptEncoding.get() != null && acceptEncoding.get().contains("gzip");
+            byte[] body = gzip ? gzip(BODY.getBytes(StandardCharsets.UTF_8)) : BODY.getBytes(StandardCharsets.UTF_8);
+            if (gzip) {
+                exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+            }
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testApacheEngineIsPooledWithTheConfiguredTimeouts() {
+        contextRunner.withPropertyValues("country.http-client.engine=apache").run(context -> {
+            PoolingHttpClientConnectionManager connectionManager = context.getBean(PoolingHttpClientConnectionManager.class);
+            assertEquals(12, connectionManager.getMaxTotal());
+            assertEquals(6, connectionManager.getDefaultMaxPerRoute());
+            ConnectionConfig connectionConfig = ((Resolver<Object, ConnectionConfig>) ReflectionTestUtils.getField(connectionManager, "connectionConfigResolver")).resolve(null);
+            assertEquals(Timeout.ofSeconds(3), connectionConfig.getConnectTimeout());
+            assertEquals(Timeout.ofSeconds(7), connectionConfig.getSocketTimeout());
+
+            RestTemplate restTemplate = context.getBean(RestTemplate.class);
+            HttpComponentsClientHttpRequestFactory requestFactory = assertInstanceOf(HttpComponentsClientHttpRequestFactory.class,
+                    ReflectionTestUtils.getField(restTemplate, "requestFactory"));
+            RequestConfig requestConfig = ((Configurable) requestFactory.getHttpClient()).getConfig();
+            assertEquals(Timeout.ofMilliseconds(400), requestConfig.getConnectionRequestTimeout());
+            assertEquals(Timeout.ofSeconds(7), requestConfig.getResponseTimeout());
+
+            // The Apache engine negotiates and decodes gzip itself
+            assertEquals(BODY, restTemplate.getForObject(url(), String.class));
+            assertTrue(acceptEncoding.get().contains("gzip"));
+        });
+    }
+
+
+    @Test
+    void testJdkEngineHasTheConfiguredTimeoutsAndNegotiatesGzip() {
+        contextRunner.withPropertyValues("country.http-client.engine=jdk").run(context -> {
+            assertFalse(context.containsBean("upstreamConnectionManager"));
+
+            RestTemplate restTemplate = context.getBean(RestTemplate.class);
+            JdkClientHttpRequestFactory requestFactory = assertInstanceOf(JdkClientHttpRequestFactory.class,
+                    ReflectionTestUtils.getField(restTemplate, "requestFactory"));
+            HttpClient httpClient = (HttpClient) ReflectionTestUtils.getField(requestFactory, "httpClient");
+            assertEquals(Duration.ofSeconds(3), httpClient.connectTimeout().orElseThrow());
+            assertEquals(Duration.ofSeconds(7), ReflectionTestUtils.getField(requestFactory, "readTimeout"));
+
+            // The JDK engine has no content decoding, the GzipDecodingInterceptor negotiates and decodes gzip
+            assertEquals(BODY, restTemplate.getForObject(url(), String.class));
+            assertEquals("gzip", acceptEncoding.get());
+        });
+    }
+
+
+    @Test
+    void testGzipCanBeDisabled() {
+        contextRunner.withPropertyValues("country.http-client.engine=apache", "country.http-client.gzip=false").run(context -> {
+            assertEquals(BODY, context.getBean(RestTemplate.class).getForObject(url(), String.class));
+            assertNull(acceptEncoding.get());
+        });
+        contextRunner.withPropertyValues("country.http-client.engine=jdk", "country.http-client.gzip=false").run(context -> {
+            assertEquals(BODY, context.getBean(RestTemplate.class).getForObject(url(), String.class));
+            assertNull(acceptEncoding.get());
+        });
+    }
+
+
+    private String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/all";
+    }
+
+    private static byte[] gzip(byte[] content) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,292 @@
+package com.acc.countries.controllers;
+
+import com.acc.countries.compression.CompressedResponseCache;
+import com.acc.countries.exceptions.UpstreamUnavailableException;
+import com.acc.countries.payload.CountryPage;
+import com.acc.countries.payload.DataVersion;
+import com.acc.countries.services.CountryService;
+import com.acc.countries.snapshot.CountryRecord;
+import com.acc.countries.snapshot.DensityRanking;
+import com.acc.countries.streaming.CountryStream;
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+
+@WebMvcTest(CountryController.class)
+@Import(CompressedResponseCache.class)
+public class CountryControllerTest {
+
+    private static final byte[] COUNTRIES = "[{\"cca3\":\"SGP\"}]".getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] ALL_COUNTRIES = "[{\"cca3\":\"SGP\"},{\"cca3\":\"BGD\"}]".repeat(100).getBytes(StandardCharsets.UTF_8);
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private CountryService countryService;
+
+
+    @BeforeEach
+    public void setUp() {
+        when(countryService.getDataVersion()).thenReturn(new DataVersion(1792298458000L, Instant.ofEpochMilli(1792298458000L)));
+        when(countryService.getSortedCountriesByPopulationDensityPage(any(), any(), anyInt(), any())).thenReturn(new CountryPage(COUNTRIES, new DataVersion(1792298458000L, Instant.ofEpochMilli(1792298458000L)), 1, null));
+    }
+
+
+    @Test
+    void testUnchangedDataAnswersNotModified() throws Exception {
+        MvcResult first = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.LAST_MODIFIED))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate, public"))
+                .andExpect(content().bytes(COUNTRIES))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+        assertFalse(etag.startsWith("W/"));
+
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(new byte[0]));
+
+        // The 304 is answered without building the response
+        verify(countryService, times(1)).getSortedCountriesByPopulationDensityPage(any(), any(), anyInt(), any());
+
+        // Another representation of the same data has its own validator
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity?fields=cca3").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+
+    @Test
+    void testNewDataVersionChangesTheEtag() throws Exception {
+        String etag = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        DataVersion refreshed = new DataVersion(1792302058000L, Instant.ofEpochMilli(1792302058000L));
+        when(countryService.getDataVersion()).thenReturn(refreshed);
+        when(countryService.getSortedCountriesByPopulationDensityPage(any(), any(), anyInt(), any())).thenReturn(new CountryPage(COUNTRIES, refreshed, 1, null));
+
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(COUNTRIES));
+    }
+
+
+    @Test
+    void testValidatorsFollowTheSnapshotThePageWasReadFrom() throws Exception {
+        DataVersion previous = new DataVersion(1792298458000L, Instant.ofEpochMilli(1792298458000L));
+        String previousEtag = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").param("cursor", "c1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        // A refresh is installed, the cursor page is still read from the previous snapshot
+        when(countryService.getDataVersion()).thenReturn(new DataVersion(1792302058000L, Instant.ofEpochMilli(1792302058000L)));
+        when(countryService.getSortedCountriesByPopulationDensityPage(any(), any(), anyInt(), any())).thenReturn(new CountryPage(COUNTRIES, previous, 1, null));
+
+        MvcResult result = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").param("cursor", "c1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, previousEtag))
+                .andExpect(content().bytes(COUNTRIES))
+                .andReturn();
+        assertEquals(1, result.getResponse().getHeaders(HttpHeaders.ETAG).size());
+        assertEquals(previous.getFetchedAt().toEpochMilli(), result.getResponse().getDateHeader(HttpHeaders.LAST_MODIFIED));
+    }
+
+
+    @Test
+    void testBodyBuiltDuringARefreshIsTaggedWithTheVersionItWasBuiltFrom() throws Exception {
+        DataVersion checked = new DataVersion(1792298458000L, Instant.ofEpochMilli(1792298458000L));
+        DataVersion refreshed = new DataVersion(1792302058000L, Instant.ofEpochMilli(1792302058000L));
+        when(countryService.getLandComponents(anyInt())).thenReturn(List.of());
+        String refreshedEtag = "\"" + Long.toHexString(refreshed.getVersion()) + "-"
+                + Long.toHexString(CountryController.representationHash(Arrays.asList("components", 2))) + "\"";
+
+        // The refresh lands between the conditional check and the body, the body is built again from the new version
+        when(countryService.getDataVersion()).thenReturn(checked, refreshed, refreshed);
+
+        mockMvc.perform(get("/api/v1/countries/components"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, refreshedEtag))
+                .andExpect(header().dateValue(HttpHeaders.LAST_MODIFIED, refreshed.getFetchedAt().toEpochMilli()));
+        verify(countryService, times(2)).getLandComponents(2);
+    }
+
+
+    @Test
+    void testParametersWithEqualHashCodesHaveDistinctEtags() throws Exception {
+        // "Aa" and "BB" share their String and List hash codes
+        assertEquals(Arrays.asList("getByPopulationDensity", "Aa").hashCode(), Arrays.asList("getByPopulationDensity", "BB").hashCode());
+        assertNotEquals(CountryController.representationHash(Arrays.asList("a", null)), CountryController.representationHash(Arrays.asList(null, "a")));
+        assertNotEquals(CountryController.representationHash(List.of("a,b")), CountryController.representationHash(List.of("a", "b")));
+
+        String etag = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").param("fields", "Aa"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").param("fields", "BB").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(COUNTRIES));
+    }
+
+
+    @Test
+    void testGzipIsNegotiated() throws Exception {
+        when(countryService.getSortedCountriesByPopulationDensityPage(any(), any(), anyInt(), any())).thenReturn(new CountryPage(ALL_COUNTRIES, new DataVersion(1792298458000L, Instant.ofEpochMilli(1792298458000L)), 200, null));
+
+        MvcResult gzip = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate, br"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andReturn();
+        byte[] body = gzip.getResponse().getContentAsByteArray();
+        assertTrue(body.length < ALL_COUNTRIES.length);
+        assertArrayEquals(ALL_COUNTRIES, new GZIPInputStream(new ByteArrayInputStream(body)).readAllBytes());
+
+        MvcResult identity = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+                .andExpect(content().bytes(ALL_COUNTRIES))
+                .andReturn();
+
+        // Each encoding is a distinct representation with its own strong validator
+        assertNotEquals(gzip.getResponse().getHeader(HttpHeaders.ETAG), identity.getResponse().getHeader(HttpHeaders.ETAG));
+    }
+
+
+    @Test
+    void testBodyTooSmallToCompressHasTheIdentityEtag() throws Exception {
+        MvcResult identity = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity"))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = identity.getResponse().getHeader(HttpHeaders.ETAG);
+
+        // The client accepts gzip but the body is sent as is, so it carries the ETag of the identity encoding
+        MvcResult small = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().bytes(COUNTRIES))
+                .andReturn();
+        assertEquals(1, small.getResponse().getHeaders(HttpHeaders.ETAG).size());
+
+        // The identity copy held by the client is still current
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity").header(HttpHeaders.ACCEPT_ENCODING, "gzip").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+
+    @Test
+    void testNearestRequiresValidCoordinates() throws Exception {
+        mockMvc.perform(get("/api/v1/countries/nearest?lng=103.8"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/v1/countries/nearest?lat=north&lng=103.8"))
+                .andExpect(status().isBadRequest());
+        verify(countryService, never()).getNearestCountries(anyDouble(), anyDouble(), any(), any(), any());
+    }
+
+
+    @Test
+    void testBatchAcceptsPostedAndQueryCodes() throws Exception {
+        byte[] batch = "{\"countries\":[],\"notFound\":[],\"partial\":false}".getBytes(StandardCharsets.UTF_8);
+        when(countryService.getCountriesByCodesJson(List.of("IN", "DEU"), null)).thenReturn(batch);
+
+        mockMvc.perform(post("/api/v1/countries/batch").contentType(MediaType.APPLICATION_JSON).content("[\"IN\",\"DEU\"]"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(batch));
+        mockMvc.perform(get("/api/v1/countries?codes=IN,DEU"))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(batch));
+        verify(countryService, times(2)).getCountriesByCodesJson(List.of("IN", "DEU"), null);
+    }
+
+
+    @Test
+    void testStaleDataIsServedAndFlagged() throws Exception {
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(CountryController.DATA_AGE_HEADER))
+                .andExpect(header().doesNotExist(CountryController.DATA_STALE_HEADER))
+                .andExpect(header().doesNotExist(HttpHeaders.WARNING));
+
+        Instant verifiedAt = Instant.now().minusSeconds(7200);
+        when(countryService.getDataVersion()).thenReturn(new DataVersion(1792298458000L, Instant.ofEpochMilli(1792298458000L), verifiedAt, true));
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(CountryController.DATA_STALE_HEADER, "true"))
+                .andExpect(header().string(HttpHeaders.WARNING, "110 - \"Response is Stale\""))
+                .andExpect(content().bytes(COUNTRIES));
+        assertTrue(Long.parseLong(mockMvc.perform(get("/api/v1/countries/getByPopulationDensity")).andReturn().getResponse().getHeader(CountryController.DATA_AGE_HEADER)) >= 7200L);
+    }
+
+
+    @Test
+    void testUnavailableUpstreamAnswersServiceUnavailable() throws Exception {
+        when(countryService.getCountriesByCodesJson(List.of("IN"), null)).thenThrow(new UpstreamUnavailableException("Upstream circuit is open", Duration.ofMillis(12500)));
+
+        mockMvc.perform(get("/api/v1/countries?codes=IN"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "13"));
+    }
+
+
+    @Test
+    void testStreamsNdjsonOrServerSentEvents() throws Exception {
+        CountryRecord singapore = CountryRecord.builder().cca3("SGP").population(5685807L).area(710d).json("{\"cca3\":\"SGP\"}".getBytes(StandardCharsets.UTF_8)).build();
+        CountryRecord india = CountryRecord.builder().cca3("IND").population(1380004385L).area(3287590d).json("{\"cca3\":\"IND\"}".getBytes(StandardCharsets.UTF_8)).build();
+        DataVersion dataVersion = new DataVersion(1792298458000L, Instant.ofEpochMilli(1792298458000L));
+        when(countryService.getSortedCountriesByPopulationDensityStream(null))
+                .thenReturn(new CountryStream(DensityRanking.of(List.of(india, singapore)), null, new JsonFactory(), dataVersion));
+
+        MvcResult ndjson = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(CountryController.TOTAL_COUNT_HEADER, "2"))
+                .andExpect(content().string("{\"cca3\":\"SGP\"}\n{\"cca3\":\"IND\"}\n"));
+
+        MvcResult sse = mockMvc.perform(get("/api/v1/countries/getByPopulationDensity/stream").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(sse))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(content().string(startsWith("id: 1\nevent: country\ndata: {\"cca3\":\"SGP\"}\n\nid: 2\n")));
+
+        // The stream has a validator like the other representations
+        mockMvc.perform(get("/api/v1/countries/getByPopulationDensity/stream").header(HttpHeaders.IF_NONE_MATCH, ndjson.getResponse().getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+        // The 304 is answered without projecting the ranking
+        verify(countryService, times(2)).getSortedCountriesByPopulationDensityStream(null);
+    }
+}
@@ -0,0 +1,45 @@
+package com.acc.countries.projection;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class FieldProjectionTest {
+
+    private static final byte[] INDIA = ("{\"name\":{\"common\":\"India\",\"official\":\"Republic of India\"},\"cca3\":\"IND\","
+            + "\"translations\":{\"fra\":{\"official\":\"République de l'Inde\",\"common\":\"Inde\"},\"deu\":{\"official\":\"Republik Indien\",\"common\":\"Indien\"}},"
+            + "\"capitalInfo\":{\"latlng\":[28.6,77.2]},\"population\":1380004385}").getBytes(StandardCharsets.UTF_8);
+
+    private final JsonFactory jsonFactory = new JsonFactory();
+
+
+    @Test
+    void testProjectNestedPaths() {
+        FieldProjection projection = FieldProjection.compile("name.common,population,translations.fra.common,capitalInfo.latlng");
+
+        assertEquals("{\"name\":{\"common\":\"India\"},\"translations\":{\"fra\":{\"common\":\"Inde\"}},\"capitalInfo\":{\"latlng\":[28.6,77.2]},\"population\":1380004385}",
+                new String(projection.project(jsonFactory, INDIA), StandardCharsets.UTF_8));
+    }
+
+
+    @Test
+    void testEquivalentFieldListsShareTheKey() {
+        assertEquals(FieldProjection.compile("population, name.common").getKey(), FieldProjection.compile("name.common,population,population").getKey());
+
+        // A parent path includes all of its children
+        assertEquals("{\"name\":{\"common\":\"India\",\"official\":\"Republic of India\"}}",
+                new String(FieldProjection.compile("name.common,name").project(jsonFactory, INDIA), StandardCharsets.UTF_8));
+    }
+
+
+    @Test
+    void testCompileRejectsEmptySegments() {
+        assertThrows(IllegalArgumentException.class, () -> FieldProjection.compile("name..common"));
+        assertThrows(IllegalArgumentException.class, () -> FieldProjection.compile("population,"));
+        assertThrows(IllegalArgumentException.class, () -> FieldProjection.compile(".cca3"));
+    }
+}
@@ -1,76 +1,173 @@
 package com.acc.countries.services.impl;
 
 import com.acc.countries.exceptions.CountryNotFoundException;
+import com.acc.countries.exceptions.StaleCursorException;
+import com.acc.countries.exceptions.UpstreamUnavailableException;
+import com.acc.countries.payload.BorderCountResponseDto;
+import com.acc.countries.payload.CountryPage;
 import com.acc.countries.payload.CountryResponseDto;
+import com.acc.countries.payload.CountryStatisticsResponseDto;
+import com.acc.countries.payload.GroupStatisticsDto;
+import com.acc.countries.payload.LandComponentResponseDto;
+import com.acc.countries.payload.LandRouteResponseDto;
+import com.acc.countries.payload.LandlockedDepthResponseDto;
+import com.acc.countries.payload.NearestCountryResponseDto;
+import com.acc.countries.projection.FieldProjectionCache;
+import com.acc.countries.snapshot.CountryRecordParser;
+import com.acc.countries.snapshot.CountrySnapshot;
+import com.acc.countries.snapshot.CountrySnapshotStore;
+import com.acc.countries.streaming.CountryStream;
+import com.acc.countries.streaming.StreamFormat;
 import com.acc.countries.utils.RestApiRequestHelper;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.platform.commons.util.ReflectionUtils;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
 
+import java.io.ByteArrayOutputStream;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
 
 @ExtendWith(MockitoExtension.class)
-@SpringBootTest
+@SpringBootTest(properties = {"country.snapshot.scheduling-enabled=false", "country.snapshot.file="})
 public class CountryServiceImplTest {
 
     @MockBean
     private RestApiRequestHelper restApiRequestHelper;
 
+    @InjectMocks
+    private CountrySnapshotStore countrySnapshotStore;
+
     @InjectMocks
     private CountryServiceImpl countryService;
 
     @Value("${external.api.countriesApiUrl}")
     private String countriesApiUrl;
 
-    @Value("${external.api.countriesByRegionApiUrl}")
-    private String countriesByRegionApiUrl;
-
-    @Value("${external.api.countriesByCodeApiUrl}")
-    private String countriesByCodeApiUrl;
-
     @Value("${country.region.asia}")
     private String countryRegionAsia;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CountryRecordParser countryRecordParser;
+
+    @Autowired
+    private FieldProjectionCache fieldProjectionCache;
+
+    @Value("${country.paging.max-limit}")
+    private int maxPageLimit;
+
+    @Value("${country.stats.parallel-threshold}")
+    private int statsParallelThreshold;
+
+    @Value("${country.nearest.default-k}")
+    private int nearestDefaultK;
+
+    @Value("${country.nearest.max-k}")
+    private int nearestMaxK;
+
+    @Value("${country.batch.max-codes}")
+    private int batchMaxCodes;
+
+    @Value("${external.api.countriesByCodesApiUrl}")
+    private String countriesByCodesApiUrl;
+
+    @Value("${country.snapshot.stale-after}")
+    private Duration staleAfter;
+
 
     @BeforeEach
     public void setUp() throws NoSuchFieldException, IllegalAccessException {
-        Field field = ReflectionUtils.findFields(CountryServiceImpl.class, f -> f.getName().equals("countriesApiUrl"), ReflectionUtils.HierarchyTraversalMode.TOP_DOWN).get(0);
+        Field field = ReflectionUtils.findFields(CountrySnapshotStore.class, f -> f.getName().equals("countriesApiUrl"), ReflectionUtils.HierarchyTraversalMode.TOP_DOWN).get(0);
         field.setAccessible(true);
-        field.set(countryService, countriesApiUrl);
+        field.set(countrySnapshotStore, countriesApiUrl);
+
+        Field staleAfterField = CountrySnapshotStore.class.getDeclaredField("staleAfter");
+        staleAfterField.setAccessible(true);
+        staleAfterField.set(countrySnapshotStore, staleAfter);
+
+        Field parserField = CountrySnapshotStore.class.getDeclaredField("countryRecordParser");
+        parserField.setAccessible(true);
+        parserField.set(countrySnapshotStore, countryRecordParser);
 
-        Field field2 = CountryServiceImpl.class.getDeclaredField("countriesByRegionApiUrl");
+        Field objectMapperField = CountryServiceImpl.class.getDeclaredField("objectMapper");
+        objectMapperField.setAccessible(true);
+        objectMapperField.set(countryService, objectMapper);
+
+        Field projectionField = CountryServiceImpl.class.getDeclaredField("fieldProjectionCache");
+        projectionField.setAccessible(true);
+        projectionField.set(countryService, fieldProjectionCache);
+
+        Field field2 = CountryServiceImpl.class.getDeclaredField("countrySnapshotStore");
         field2.setAccessible(true);
-        field2.set(countryService, countriesByRegionApiUrl);
+        field2.set(countryService, countrySnapshotStore);
 
         Field field3 = CountryServiceImpl.class.getDeclaredField("countryRegionAsia");
         field3.setAccessible(true);
         field3.set(countryService, countryRegionAsia);
 
-        Field field4 = CountryServiceImpl.class.getDeclaredField("countriesByCodeApiUrl");
+        Field field4 = CountryServiceImpl.class.getDeclaredField("maxPageLimit");
         field4.setAccessible(true);
-        field4.set(countryService, countriesByCodeApiUrl);
+        field4.set(countryService, maxPageLimit);
+
+        Field field5 = CountryServiceImpl.class.getDeclaredField("statsParallelThreshold");
+        field5.setAccessible(true);
+        field5.set(countryService, statsParallelThreshold);
+
+        Field field6 = CountryServiceImpl.class.getDeclaredField("nearestDefaultK");
+        field6.setAccessible(true);
+        field6.set(countryService, nearestDefaultK);
+
+        Field field7 = CountryServiceImpl.class.getDeclaredField("nearestMaxK");
+        field7.setAccessible(true);
+        field7.set(countryService, nearestMaxK);
+
+        Field field8 = CountryServiceImpl.class.getDeclaredField("batchMaxCodes");
+        field8.setAccessible(true);
+        field8.set(countryService, batchMaxCodes);
+
+        Field field9 = CountryServiceImpl.class.getDeclaredField("countriesByCodesApiUrl");
+        field9.setAccessible(true);
+        field9.set(countryService, countriesByCodesApiUrl);
+
+        Field field10 = CountryServiceImpl.class.getDeclaredField("countryRecordParser");
+        field10.setAccessible(true);
+        field10.set(countryService, countryRecordParser);
+
+        Field field11 = CountryServiceImpl.class.getDeclaredField("restApiRequestHelper");
+        field11.setAccessible(true);
+        field11.set(countryService, restApiRequestHelper);
     }
 
 
     @Test
-    public void testGetSortedCountriesByPopulationDensityIsNotEmpty() {
+    public void testGetSortedCountriesByPopulationDensityIsNotEmpty() throws Exception {
         CountryResponseDto[] mockResponseArray = new CountryResponseDto[4];
 
         CountryResponseDto countryResponseDto1 = new CountryResponseDto();
@@ -95,10 +192,12 @@ public class CountryServiceImplTest {
         HttpHeaders headers = new HttpHeaders();
         ResponseEntity<CountryResponseDto[]> mockResponseEntity = ResponseEntity.ok(mockResponseArray);
 
-        when(restApiRequestHelper.getCustomResponseEntityArray(anyString(), eq(headers), eq(CountryResponseDto[].class))).thenReturn(mockResponseArray);
+        givenAllCountries(mockResponseArray);
+        assertTrue(countrySnapshotStore.refresh());
 
         // Call the method under test
-        List<CountryResponseDto> sortedCountries = countryService.getSortedCountriesByPopulationDensity();
+        List<CountryResponseDto> sortedCountries = Arrays.asList(objectMapper.readValue(
+                countryService.getSortedCountriesByPopulationDensityPage(null, null, 0, null).getJson(), CountryResponseDto[].class));
 
         // Verify that the method works correctly
         assertFalse(sortedCountries.isEmpty());
@@ -110,7 +209,132 @@ public class CountryServiceImplTest {
         Assertions.assertEquals(sortedCountries.get(0).getPopulation(), 95000);
 
         // Verify that the RestApiRequestHelper was called with the correct parameters
-        verify(restApiRequestHelper, times(1)).getCustomResponseEntityArray(anyString(), eq(headers), eq(CountryResponseDto[].class));
+        verify(restApiRequestHelper, times(1)).fetchRawResponse(anyString(), eq(headers));
+    }
+
+
+    @Test
+    public void testGetSortedCountriesByPopulationDensityUsesArea() throws Exception {
+        CountryResponseDto countryResponseDto1 = new CountryResponseDto();
+        CountryResponseDto countryResponseDto2 = new CountryResponseDto();
+        CountryResponseDto countryResponseDto3 = new CountryResponseDto();
+        CountryResponseDto countryResponseDto4 = new CountryResponseDto();
+        countryResponseDto1.setCca3("IND");
+        countryResponseDto1.setPopulation(1380004385);
+        countryResponseDto1.setArea(3287590);
+        countryResponseDto2.setCca3("SGP");
+        countryResponseDto2.setPopulation(5685807);
+        countryResponseDto2.setArea(710);
+        countryResponseDto3.setCca3("ATA");
+        countryResponseDto3.setPopulation(1000);
+        countryResponseDto4.setCca3("BGD");
+        countryResponseDto4.setPopulation(164689383);
+        countryResponseDto4.setArea(147570);
+
+        givenAllCountries(new CountryResponseDto[]{countryResponseDto1, countryResponseDto2, countryResponseDto3, countryResponseDto4});
+        assertTrue(countrySnapshotStore.refresh());
+
+        // Call the method under test
+        byte[] sortedCountriesJson = countryService.getSortedCountriesByPopulationDensityPage(null, null, 0, null).getJson();
+        List<CountryResponseDto> sortedCountries = Arrays.asList(objectMapper.readValue(sortedCountriesJson, CountryResponseDto[].class));
+
+        // Countries without an area have no density and are ranked last
+        assertEquals(Arrays.asList("SGP", "BGD", "IND", "ATA"), sortedCountries.stream().map(CountryResponseDto::getCca3).toList());
+
+        // The encoded response is precomputed once per snapshot
+        assertSame(sortedCountriesJson, countryService.getSortedCountriesByPopulationDensityPage(null, null, 0, null).getJson());
+
+        // Field projection keeps only the requested paths, in ranking order
+        String projectedJson = new String(countryService.getSortedCountriesByPopulationDensityPage("cca3, population", null, 0, null).getJson(), StandardCharsets.UTF_8);
+        assertEquals("[{\"cca3\":\"SGP\",\"population\":5685807},{\"cca3\":\"BGD\",\"population\":164689383},"
+                + "{\"cca3\":\"IND\",\"population\":1380004385},{\"cca3\":\"ATA\",\"population\":1000}]", projectedJson);
+    }
+
+
+    @Test
+    public void testGetSortedCountriesByPopulationDensityPages() throws Exception {
+        CountryResponseDto[] responseArray = new CountryResponseDto[5];
+        String[] codes = {"IND", "CHN", "TUR", "KGZ", "MNG"};
+        for (int i = 0; i < codes.length; i++) {
+            responseArray[i] = new CountryResponseDto();
+            responseArray[i].setCca3(codes[i]);
+            responseArray[i].setPopulation(50000 - i * 1000);
+        }
+
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+
+        CountryPage firstPage = countryService.getSortedCountriesByPopulationDensityPage("cca3", 2, 0, null);
+        assertEquals("[{\"cca3\":\"IND\"},{\"cca3\":\"CHN\"}]", new String(firstPage.getJson(), StandardCharsets.UTF_8));
+        assertEquals(5, firstPage.getTotal());
+        assertNotNull(firstPage.getNextCursor());
+
+        // A refresh between two pages does not shift the ranking under the cursor
+        responseArray[4].setPopulation(90000);
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+
+        CountryPage secondPage = countryService.getSortedCountriesByPopulationDensityPage("cca3", 2, 0, firstPage.getNextCursor());
+        assertEquals("[{\"cca3\":\"TUR\"},{\"cca3\":\"KGZ\"}]", new String(secondPage.getJson(), StandardCharsets.UTF_8));
+        assertEquals(firstPage.getVersion(), secondPage.getVersion());
+
+        CountryPage lastPage = countryService.getSortedCountriesByPopulationDensityPage(null, 2, 0, secondPage.getNextCursor());
+        assertEquals("MNG", objectMapper.readValue(lastPage.getJson(), CountryResponseDto[].class)[0].getCca3());
+        assertNull(lastPage.getNextCursor());
+
+        // Without a cursor pages are read from the current version
+        CountryPage currentPage = countryService.getSortedCountriesByPopulationDensityPage("cca3", 1, 0, null);
+        assertEquals("[{\"cca3\":\"MNG\"}]", new String(currentPage.getJson(), StandardCharsets.UTF_8));
+        assertEquals("[{\"cca3\":\"TUR\"}]", new String(countryService.getSortedCountriesByPopulationDensityPage("cca3", 1, 3, null).getJson(), StandardCharsets.UTF_8));
+
+        // Identical countries keep the current version
+        assertFalse(countrySnapshotStore.refresh());
+        assertEquals(currentPage.getVersion(), countryService.getDataVersion().getVersion());
+
+        // Only the version replaced by the last refresh is kept
+        responseArray[4].setPopulation(90001);
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+        assertThrows(StaleCursorException.class, () -> countryService.getSortedCountriesByPopulationDensityPage(null, 2, 0, firstPage.getNextCursor()));
+
+        assertThrows(IllegalArgumentException.class, () -> countryService.getSortedCountriesByPopulationDensityPage(null, 0, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getSortedCountriesByPopulationDensityPage(null, 2, -1, null));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getSortedCountriesByPopulationDensityPage(null, 2, 0, "not-a-cursor"));
+    }
+
+
+    @Test
+    public void testStreamSortedCountriesByPopulationDensity() throws Exception {
+        CountryResponseDto[] responseArray = new CountryResponseDto[3];
+        String[] codes = {"IND", "CHN", "TUR"};
+        for (int i = 0; i < codes.length; i++) {
+            responseArray[i] = new CountryResponseDto();
+            responseArray[i].setCca3(codes[i]);
+            responseArray[i].setPopulation(50000 - i * 1000);
+        }
+
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+
+        CountryStream countryStream = countryService.getSortedCountriesByPopulationDensityStream("cca3");
+        ByteArrayOutputStream ndjson = new ByteArrayOutputStream();
+        countryStream.writeTo(ndjson, StreamFormat.NDJSON, 2);
+        assertEquals("{\"cca3\":\"IND\"}\n{\"cca3\":\"CHN\"}\n{\"cca3\":\"TUR\"}\n", ndjson.toString(StandardCharsets.UTF_8));
+
+        // A refresh during the stream does not change it, complete countries are the ranking JSON as is
+        CountryStream completeStream = countryService.getSortedCountriesByPopulationDensityStream(null);
+        responseArray[2].setPopulation(90000);
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+        ByteArrayOutputStream sse = new ByteArrayOutputStream();
+        completeStream.writeTo(sse, StreamFormat.SSE, 16);
+        String[] events = sse.toString(StandardCharsets.UTF_8).split("\n\n");
+        assertEquals(4, events.length);
+        assertTrue(events[0].startsWith("id: 1\nevent: country\ndata: {"));
+        assertEquals("IND", objectMapper.readValue(events[0].substring(events[0].indexOf("data: ") + 6), CountryResponseDto.class).getCca3());
+        assertEquals("event: end\ndata: {\"count\":3,\"version\":" + completeStream.getDataVersion().getVersion() + "}", events[3]);
+
+        assertThrows(IllegalArgumentException.class, () -> countryService.getSortedCountriesByPopulationDensityStream("cca3,"));
     }
 
 
@@ -121,12 +345,13 @@ public class CountryServiceImplTest {
         HttpHeaders headers = new HttpHeaders();
         ResponseEntity<CountryResponseDto[]> mockResponseEntity = ResponseEntity.ok(mockResponseArray);
 
-        when(restApiRequestHelper.getCustomResponseEntityArray(anyString(), eq(headers), eq(CountryResponseDto[].class))).thenReturn(mockResponseArray);
+        givenAllCountries(mockResponseArray);
+        assertFalse(countrySnapshotStore.refresh());
 
-        assertThrows(CountryNotFoundException.class, () -> countryService.getSortedCountriesByPopulationDensity());
+        assertThrows(CountryNotFoundException.class, () -> countryService.getSortedCountriesByPopulationDensityPage(null, null, 0, null));
 
         // Verify that the RestApiRequestHelper was called with the correct parameters
-        verify(restApiRequestHelper, times(1)).getCustomResponseEntityArray(anyString(), eq(headers), eq(CountryResponseDto[].class));
+        verify(restApiRequestHelper, times(1)).fetchRawResponse(anyString(), eq(headers));
 
     }
 
@@ -134,7 +359,7 @@ public class CountryServiceImplTest {
     @Test
     void testGetAllAsianCountriesNotEmpty() {
 
-        CountryResponseDto[] responseArray = new CountryResponseDto[4];
+        CountryResponseDto[] responseArray = new CountryResponseDto[5];
 
         List<String> borders1 = new ArrayList<>();
         List<String> borders2 = new ArrayList<>();
@@ -150,39 +375,53 @@ public class CountryServiceImplTest {
         CountryResponseDto countryResponseDto2 = new CountryResponseDto();
         CountryResponseDto countryResponseDto3 = new CountryResponseDto();
         CountryResponseDto countryResponseDto4 = new CountryResponseDto();
+        CountryResponseDto countryResponseDto5 = new CountryResponseDto();
 
         countryResponseDto1.setCca3("TUR");
+        countryResponseDto1.setRegion(countryRegionAsia);
         countryResponseDto1.setPopulation(15000);
         countryResponseDto1.setBorders(borders1);
 
         countryResponseDto2.setCca3("KAZ");
+        countryResponseDto2.setRegion(countryRegionAsia);
         countryResponseDto2.setPopulation(45000);
         countryResponseDto2.setBorders(borders2);
 
         countryResponseDto3.setCca3("MNG");
+        countryResponseDto3.setRegion(countryRegionAsia);
         countryResponseDto3.setPopulation(19000);
         countryResponseDto3.setBorders(borders3);
 
         countryResponseDto4.setCca3("PRK");
+        countryResponseDto4.setRegion(countryRegionAsia);
         countryResponseDto4.setPopulation(67000);
         countryResponseDto4.setBorders(borders4);
 
+        // Non-Asian countries must not be taken into account even with more borders
+        countryResponseDto5.setCca3("DEU");
+        countryResponseDto5.setRegion("Europe");
+        countryResponseDto5.setPopulation(83000);
+        countryResponseDto5.setBorders(Arrays.asList("AUT", "BEL", "CZE", "DNK", "FRA", "LUX", "NLD", "POL", "CHE"));
+
         responseArray[0] = countryResponseDto1;
         responseArray[1] = countryResponseDto2;
         responseArray[2] = countryResponseDto3;
         responseArray[3] = countryResponseDto4;
+        responseArray[4] = countryResponseDto5;
 
-        CountryResponseDto[] newResponseArray = new CountryResponseDto[1];
-        newResponseArray[0] = countryResponseDto1;
-
-        when(restApiRequestHelper.fetchCountryDetails(anyString(), eq(HttpMethod.GET), anyMap())).thenReturn(responseArray);
-        when(restApiRequestHelper.fetchCountryDetails(eq(countriesByCodeApiUrl), eq(HttpMethod.GET), anyMap())).thenReturn(newResponseArray);
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
 
         // Call the method under test
         CountryResponseDto countryResponseDto = countryService.getAsianCountryWithMostNonAsianBorders();
 
         assertNotNull(countryResponseDto);
         assertEquals("TUR", countryResponseDto.getCca3());
+        assertEquals("{\"cca3\":\"TUR\",\"borders\":[\"ARM\",\"AZE\",\"BGR\",\"GEO\",\"GRC\",\"IRN\",\"IRQ\",\"SYR\"]}",
+                new String(countryService.getAsianCountryWithMostNonAsianBordersJson("borders,cca3"), StandardCharsets.UTF_8));
+
+        // Verify that no upstream call is made per request
+        verify(restApiRequestHelper, times(1)).fetchRawResponse(anyString(), any(HttpHeaders.class));
     }
 
 
@@ -191,7 +430,8 @@ public class CountryServiceImplTest {
 
         CountryResponseDto[] responseArray = null;
 
-        when(restApiRequestHelper.fetchCountryDetails(anyString(), eq(HttpMethod.GET), anyMap())).thenReturn(responseArray);
+        givenAllCountries(responseArray);
+        assertFalse(countrySnapshotStore.refresh());
 
         // Call the method under test
         CountryResponseDto countryResponseDto = countryService.getAsianCountryWithMostNonAsianBorders();
@@ -205,7 +445,8 @@ public class CountryServiceImplTest {
 
         CountryResponseDto[] responseArray = new CountryResponseDto[0];
 
-        when(restApiRequestHelper.fetchCountryDetails(anyString(), eq(HttpMethod.GET), anyMap())).thenReturn(responseArray);
+        givenAllCountries(responseArray);
+        assertFalse(countrySnapshotStore.refresh());
 
         // Call the method under test
         CountryResponseDto countryResponseDto = countryService.getAsianCountryWithMostNonAsianBorders();
@@ -225,15 +466,19 @@ public class CountryServiceImplTest {
         CountryResponseDto countryResponseDto4 = new CountryResponseDto();
 
         countryResponseDto1.setCca3("TUR");
+        countryResponseDto1.setRegion(countryRegionAsia);
         countryResponseDto1.setPopulation(15000);
 
         countryResponseDto2.setCca3("KAZ");
+        countryResponseDto2.setRegion(countryRegionAsia);
         countryResponseDto2.setPopulation(45000);
 
         countryResponseDto3.setCca3("MNG");
+        countryResponseDto3.setRegion(countryRegionAsia);
         countryResponseDto3.setPopulation(19000);
 
         countryResponseDto4.setCca3("PRK");
+        countryResponseDto4.setRegion(countryRegionAsia);
         countryResponseDto4.setPopulation(67000);
 
         responseArray[0] = countryResponseDto1;
@@ -241,7 +486,8 @@ public class CountryServiceImplTest {
         responseArray[2] = countryResponseDto3;
         responseArray[3] = countryResponseDto4;
 
-        when(restApiRequestHelper.fetchCountryDetails(anyString(), eq(HttpMethod.GET), anyMap())).thenReturn(responseArray);
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
 
         // Call the method under test
         CountryResponseDto countryResponseDto = countryService.getAsianCountryWithMostNonAsianBorders();
@@ -254,57 +500,305 @@ public class CountryServiceImplTest {
 
     @Test
     void testGetAsianCountryWithMostNonAsianBordersThrowsException() {
-        CountryResponseDto[] responseArray = new CountryResponseDto[4];
+        CountryResponseDto[] responseArray = new CountryResponseDto[2];
+
+        CountryResponseDto countryResponseDto1 = new CountryResponseDto();
+        CountryResponseDto countryResponseDto2 = new CountryResponseDto();
+
+        // Asian countries bordering only each other have no non-asian borders
+        countryResponseDto1.setCca3("PRK");
+        countryResponseDto1.setRegion(countryRegionAsia);
+        countryResponseDto1.setPopulation(67000);
+        countryResponseDto1.setBorders(Arrays.asList("KOR"));
+
+        countryResponseDto2.setCca3("KOR");
+        countryResponseDto2.setRegion(countryRegionAsia);
+        countryResponseDto2.setPopulation(51000);
+        countryResponseDto2.setBorders(Arrays.asList("PRK"));
+
+        responseArray[0] = countryResponseDto1;
+        responseArray[1] = countryResponseDto2;
+
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+
+        // Call the method under test
+        assertThrows(CountryNotFoundException.class, () -> countryService.getAsianCountryWithMostNonAsianBorders());
+
+    }
+
 
+    @Test
+    void testGetCountriesWithMostForeignBorders() {
         CountryResponseDto countryResponseDto1 = new CountryResponseDto();
         CountryResponseDto countryResponseDto2 = new CountryResponseDto();
         CountryResponseDto countryResponseDto3 = new CountryResponseDto();
         CountryResponseDto countryResponseDto4 = new CountryResponseDto();
 
-        List<String> borders1 = new ArrayList<>();
-        List<String> borders2 = new ArrayList<>();
-        List<String> borders3 = new ArrayList<>();
-        List<String> borders4 = new ArrayList<>();
+        countryResponseDto1.setCca3("FRA");
+        countryResponseDto1.setRegion("Europe");
+        countryResponseDto1.setBorders(Arrays.asList("DEU", "ESP", "BRA", "SUR"));
 
-        borders1 = Arrays.asList("ARM", "AZE", "BGR", "GEO", "GRC", "IRN", "IRQ", "SYR");
-        borders2 = Arrays.asList("CHN", "KGZ", "RUS", "TKM", "UZB");
-        borders3 = Arrays.asList("CHN", "RUS");
-        borders4 = Arrays.asList("CHN", "KOR", "RUS");
+        countryResponseDto2.setCca3("DEU");
+        countryResponseDto2.setRegion("Europe");
+        countryResponseDto2.setBorders(Arrays.asList("FRA"));
 
-        countryResponseDto1.setCca3("TUR");
-        countryResponseDto1.setPopulation(15000);
-        countryResponseDto1.setBorders(borders1);
+        countryResponseDto3.setCca3("ESP");
+        countryResponseDto3.setRegion("Europe");
+        countryResponseDto3.setBorders(Arrays.asList("FRA", "MAR"));
 
-        countryResponseDto2.setCca3("KAZ");
-        countryResponseDto2.setPopulation(45000);
-        countryResponseDto3.setBorders(borders2);
+        countryResponseDto4.setCca3("MAR");
+        countryResponseDto4.setRegion("Africa");
+        countryResponseDto4.setBorders(Arrays.asList("ESP"));
 
-        countryResponseDto3.setCca3("MNG");
-        countryResponseDto3.setPopulation(19000);
-        countryResponseDto3.setBorders(borders3);
+        givenAllCountries(new CountryResponseDto[]{countryResponseDto1, countryResponseDto2, countryResponseDto3, countryResponseDto4});
+        assertTrue(countrySnapshotStore.refresh());
 
-        countryResponseDto4.setCca3("PRK");
-        countryResponseDto4.setPopulation(67000);
-        countryResponseDto4.setBorders(borders4);
+        // Call the method under test
+        List<BorderCountResponseDto> mostForeignBorders = countryService.getCountriesWithMostForeignBorders("europe", 5);
 
-        responseArray[0] = countryResponseDto1;
-        responseArray[1] = countryResponseDto2;
-        responseArray[2] = countryResponseDto3;
-        responseArray[3] = countryResponseDto4;
+        // DEU only borders European countries and is not ranked
+        assertEquals(2, mostForeignBorders.size());
+        assertEquals(new BorderCountResponseDto("ESP", null, "Europe", 1), mostForeignBorders.get(1));
+        assertEquals("FRA", mostForeignBorders.get(0).getCca3());
+        assertEquals(1, countryService.getCountriesWithMostForeignBorders("Europe", 1).size());
+        assertEquals("MAR", countryService.getCountriesWithMostForeignBorders("Africa", 1).get(0).getCca3());
 
-        CountryResponseDto[] newResponseArray = new CountryResponseDto[0];
+        assertThrows(CountryNotFoundException.class, () -> countryService.getCountriesWithMostForeignBorders("Oceania", 1));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getCountriesWithMostForeignBorders("Europe", 0));
+    }
 
-        when(restApiRequestHelper.fetchCountryDetails(anyString(), eq(HttpMethod.GET), anyMap())).thenReturn(responseArray);
-        when(restApiRequestHelper.fetchCountryDetails(eq(countriesByCodeApiUrl), eq(HttpMethod.GET), anyMap())).thenReturn(newResponseArray);
 
-        // Call the method under test
-        assertThrows(CountryNotFoundException.class, () -> countryService.getAsianCountryWithMostNonAsianBorders());
+    @Test
+    void testGetCountryStatistics() throws Exception {
+        CountryResponseDto[] responseArray = new CountryResponseDto[4];
+        String[][] countries = {{"FRA", "Europe", "Western Europe"}, {"CHE", "Europe", "Western Europe"}, {"POL", "Europe", "Central Europe"}, {"MAR", "Africa", "Northern Africa"}};
+        int[] populations = {60, 10, 40, 30};
+        double[] areas = {6, 1, 0, 3};
+        for (int i = 0; i < countries.length; i++) {
+            responseArray[i] = new CountryResponseDto();
+            responseArray[i].setCca3(countries[i][0]);
+            responseArray[i].setRegion(countries[i][1]);
+            responseArray[i].setSubregion(countries[i][2]);
+            responseArray[i].setPopulation(populations[i]);
+            responseArray[i].setArea(areas[i]);
+            responseArray[i].setUnMember(i != 1);
+        }
+        responseArray[1].setLandlocked(true);
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+
+        CountryStatisticsResponseDto byRegion = countryService.getCountryStatistics(null, null, null, "50,90");
+        assertEquals("region", byRegion.getGroupBy());
+        assertEquals(List.of("Africa", "Europe"), byRegion.getGroups().stream().map(GroupStatisticsDto::getGroup).toList());
+
+        GroupStatisticsDto europe = byRegion.getGroups().get(1);
+        assertEquals(3, europe.getCountries());
+        assertEquals(110d, europe.getPopulation().getSum());
+        assertEquals(40d, europe.getPopulation().getMedian());
+        assertEquals(56d, europe.getPopulation().getPercentiles().get("p90"), 1e-9);
+        // POL has no area, it is left out of the area and density statistics
+        assertEquals(2, europe.getArea().getCount());
+        assertEquals(10d, europe.getDensity().getMean());
+
+        CountryStatisticsResponseDto bySubregion = countryService.getCountryStatistics("subregion", false, true, "25");
+        assertEquals(List.of("Central Europe", "Northern Africa", "Western Europe"), bySubregion.getGroups().stream().map(GroupStatisticsDto::getGroup).toList());
+        assertEquals(60d, bySubregion.getGroups().get(2).getPopulation().getMax());
+
+        // Parallel aggregation gives the same result
+        Field threshold = CountryServiceImpl.class.getDeclaredField("statsParallelThreshold");
+        threshold.setAccessible(true);
+        threshold.set(countryService, 1);
+        assertEquals(byRegion, countryService.getCountryStatistics("region", null, null, "50,90"));
+
+        assertThrows(IllegalArgumentException.class, () -> countryService.getCountryStatistics("continent", null, null, "50"));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getCountryStatistics("none", null, null, "101"));
+    }
 
+
+    @Test
+    void testGetNearestCountries() {
+        CountryResponseDto singapore = new CountryResponseDto();
+        singapore.setCca3("SGP");
+        singapore.setLatlng(Arrays.asList(1.37, 103.8));
+        CountryResponseDto malaysia = new CountryResponseDto();
+        malaysia.setCca3("MYS");
+        malaysia.setLatlng(Arrays.asList(2.5, 112.5));
+        CountryResponseDto fiji = new CountryResponseDto();
+        fiji.setCca3("FJI");
+        fiji.setLatlng(Arrays.asList(-18.0, 175.0));
+        CountryResponseDto samoa = new CountryResponseDto();
+        samoa.setCca3("WSM");
+        samoa.setLatlng(Arrays.asList(-13.6, -172.3));
+        CountryResponseDto unknown = new CountryResponseDto();
+        unknown.setCca3("UNK");
+
+        givenAllCountries(new CountryResponseDto[]{singapore, malaysia, fiji, samoa, unknown});
+        assertTrue(countrySnapshotStore.refresh());
+
+        List<NearestCountryResponseDto> nearest = countryService.getNearestCountries(1.3, 103.9, 2, null, null);
+        assertEquals(List.of("SGP", "MYS"), nearest.stream().map(NearestCountryResponseDto::getCca3).toList());
+        assertTrue(nearest.get(0).getDistanceKm() < 20d);
+
+        // Across the antimeridian Samoa is closer to Fiji than Malaysia is
+        List<NearestCountryResponseDto> withinRadius = countryService.getNearestCountries(-18.0, 179.9, null, 2000d, "country");
+        assertEquals(List.of("FJI", "WSM"), withinRadius.stream().map(NearestCountryResponseDto::getCca3).toList());
+
+        // Countries without a position are not indexed, no capital position is known at all
+        assertEquals(4, countryService.getNearestCountries(0d, 0d, 50, null, null).size());
+        assertTrue(countryService.getNearestCountries(0d, 0d, null, null, "capital").isEmpty());
+
+        assertThrows(IllegalArgumentException.class, () -> countryService.getNearestCountries(91d, 0d, null, null, null));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getNearestCountries(0d, 0d, 0, null, null));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getNearestCountries(0d, 0d, null, -1d, null));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getNearestCountries(0d, 0d, null, null, "city"));
     }
 
-}
 
+    @Test
+    void testGetCountriesByCodes() throws Exception {
+        CountryResponseDto india = new CountryResponseDto();
+        india.setCca2("IN");
+        india.setCca3("IND");
+        india.setCcn3("356");
+        india.setCioc("IND");
+        CountryResponseDto germany = new CountryResponseDto();
+        germany.setCca2("DE");
+        germany.setCca3("DEU");
+        germany.setCioc("GER");
+        CountryResponseDto france = new CountryResponseDto();
+        france.setCca2("FR");
+        france.setCca3("FRA");
+
+        givenAllCountries(new CountryResponseDto[]{india, germany});
+        assertTrue(countrySnapshotStore.refresh());
+        when(restApiRequestHelper.fetchRawResponse(contains("codes="), any(HttpHeaders.class))).thenReturn(ResponseEntity.ok(toJson(new CountryResponseDto[]{france})));
+
+        JsonNode batch = objectMapper.readTree(countryService.getCountriesByCodesJson(List.of("in", "GER", "356", "fra", "zzz", "DE"), "cca3"));
+        assertEquals("[{\"cca3\":\"IND\"},{\"cca3\":\"DEU\"},{\"cca3\":\"FRA\"}]", batch.get("countries").toString());
+        assertEquals("[\"ZZZ\"]", batch.get("notFound").toString());
+        assertFalse(batch.get("partial").asBoolean());
+
+        // The local misses only are fetched, in a single upstream call
+        verify(restApiRequestHelper, times(1)).fetchRawResponse(contains("codes="), any(HttpHeaders.class));
+        verify(restApiRequestHelper).fetchRawResponse(endsWith("codes=FRA,ZZZ"), any(HttpHeaders.class));
+
+        // No upstream call when every code is known locally
+        countryService.getCountriesByCodesJson(List.of("IND", "de"), null);
+        verify(restApiRequestHelper, times(1)).fetchRawResponse(contains("codes="), any(HttpHeaders.class));
+
+        when(restApiRequestHelper.fetchRawResponse(contains("codes="), any(HttpHeaders.class))).thenThrow(new RestClientException("upstream unavailable"));
+        JsonNode partial = objectMapper.readTree(countryService.getCountriesByCodesJson(List.of("IND", "FRA"), null));
+        assertEquals(1, partial.get("countries").size());
+        assertTrue(partial.get("partial").asBoolean());
+
+        assertThrows(IllegalArgumentException.class, () -> countryService.getCountriesByCodesJson(List.of("IND", "I N D"), null));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getCountriesByCodesJson(List.of(), null));
+    }
+
+
+    @Test
+    void testGetLandRoutes() {
+        String[][] countries = {{"PRT", "PT", "ESP"}, {"ESP", "ES", "PRT,FRA,AND"}, {"AND", "AD", "ESP,FRA"}, {"FRA", "FR", "ESP,AND,CHE"},
+                {"CHE", "CH", "FRA,LIE"}, {"LIE", "LI", "CHE"}, {"ISL", "IS", ""}};
+        CountryResponseDto[] responseArray = new CountryResponseDto[countries.length];
+        for (int i = 0; i < countries.length; i++) {
+            responseArray[i] = new CountryResponseDto();
+            responseArray[i].setCca3(countries[i][0]);
+            responseArray[i].setCca2(countries[i][1]);
+            responseArray[i].setBorders(countries[i][2].isEmpty() ? List.of() : Arrays.asList(countries[i][2].split(",")));
+            responseArray[i].setLandlocked(Set.of("AND", "CHE", "LIE").contains(countries[i][0]));
+        }
+        givenAllCountries(responseArray);
+        assertTrue(countrySnapshotStore.refresh());
+
+        LandRouteResponseDto route = countryService.getLandRoute("pt", "LIE");
+        assertTrue(route.isReachable());
+        assertEquals(4, route.getBorderCrossings());
+        assertEquals(List.of("PRT", "ESP", "FRA", "CHE", "LIE"), route.getPath());
+
+        LandRouteResponseDto noRoute = countryService.getLandRoute("PRT", "ISL");
+        assertFalse(noRoute.isReachable());
+        assertNull(noRoute.getBorderCrossings());
+        assertTrue(noRoute.getPath().isEmpty());
+
+        assertEquals(List.of(new LandComponentResponseDto(6, List.of("AND", "CHE", "ESP", "FRA", "LIE", "PRT"))), countryService.getLandComponents(2));
+        assertEquals(2, countryService.getLandComponents(1).size());
+
+        List<LandlockedDepthResponseDto> depths = countryService.getLandlockedDepths(10);
+        assertEquals(List.of("LIE", "AND", "CHE"), depths.stream().map(LandlockedDepthResponseDto::getCca3).toList());
+        assertEquals(2, depths.get(0).getDepth());
+
+        assertThrows(CountryNotFoundException.class, () -> countryService.getLandRoute("PRT", "ZZZ"));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getLandRoute("PRT", "P R T"));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getLandComponents(0));
+        assertThrows(IllegalArgumentException.class, () -> countryService.getLandlockedDepths(0));
+    }
 
 
+    @Test
+    void testRefreshFailureKeepsPreviousSnapshot() {
+        CountryResponseDto countryResponseDto1 = new CountryResponseDto();
+        countryResponseDto1.setCca3("IND");
+        countryResponseDto1.setPopulation(95000);
+
+        when(restApiRequestHelper.fetchRawResponse(anyString(), any(HttpHeaders.class)))
+                .thenReturn(ResponseEntity.ok(toJson(new CountryResponseDto[]{countryResponseDto1})))
+                .thenThrow(new RestClientException("upstream unavailable"));
+
+        assertTrue(countrySnapshotStore.refresh());
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+
+        assertFalse(countrySnapshotStore.refresh());
+        assertSame(snapshot, countrySnapshotStore.getSnapshot());
+        assertEquals("[{\"cca3\":\"IND\"}]", new String(countryService.getSortedCountriesByPopulationDensityPage("cca3", 1, 0, null).getJson(), StandardCharsets.UTF_8));
+        assertFalse(countryService.getDataVersion().isStale());
+
+        // While the upstream circuit is open the last good data is still served, flagged stale
+        when(restApiRequestHelper.isCircuitOpen()).thenReturn(true);
+        when(restApiRequestHelper.fetchRawResponse(anyString(), any(HttpHeaders.class))).thenThrow(new UpstreamUnavailableException("Upstream circuit is open", Duration.ofSeconds(30)));
+        assertFalse(countrySnapshotStore.refresh());
+        assertSame(snapshot, countrySnapshotStore.getSnapshot());
+        assertTrue(countryService.getDataVersion().isStale());
+        assertEquals(snapshot.getFetchedAt(), countryService.getDataVersion().getVerifiedAt());
+    }
 
 
+    @Test
+    void testRefreshSendsConditionalRequests() {
+        CountryResponseDto countryResponseDto1 = new CountryResponseDto();
+        countryResponseDto1.setCca3("IND");
+        countryResponseDto1.setPopulation(95000);
+
+        when(restApiRequestHelper.fetchRawResponse(anyString(), any(HttpHeaders.class)))
+                .thenReturn(ResponseEntity.ok().eTag("\"v1\"").body(toJson(new CountryResponseDto[]{countryResponseDto1})))
+                .thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"v1\"").build());
+
+        assertTrue(countrySnapshotStore.refresh());
+        CountrySnapshot snapshot = countrySnapshotStore.getSnapshot();
+
+        // Unchanged upstream data is neither parsed nor installed as a new version
+        assertFalse(countrySnapshotStore.refresh());
+        assertSame(snapshot, countrySnapshotStore.getSnapshot());
+
+        ArgumentCaptor<HttpHeaders> headers = ArgumentCaptor.forClass(HttpHeaders.class);
+        verify(restApiRequestHelper, times(2)).fetchRawResponse(anyString(), headers.capture());
+        assertTrue(headers.getAllValues().get(0).getIfNoneMatch().isEmpty());
+        assertEquals(List.of("\"v1\""), headers.getAllValues().get(1).getIfNoneMatch());
+    }
+
+
+    private void givenAllCountries(CountryResponseDto[] countries) {
+        when(restApiRequestHelper.fetchRawResponse(anyString(), any(HttpHeaders.class))).thenReturn(ResponseEntity.ok(toJson(countries)));
+    }
+
+
+    private byte[] toJson(CountryResponseDto[] countries) {
+        try {
+            return countries == null ? null : objectMapper.writeValueAsBytes(countries);
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+}
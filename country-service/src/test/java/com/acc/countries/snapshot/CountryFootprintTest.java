@@ -0,0 +1,81 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.payload.CountryResponseDto;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jol.info.GraphLayout;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+@Slf4j
+public class CountryFootprintTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final CountryRecordParser countryRecordParser = new CountryRecordParser();
+
+    private byte[] payload;
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException, IOException {
+        Field field = CountryRecordParser.class.getDeclaredField("objectMapper");
+        field.setAccessible(true);
+        field.set(countryRecordParser, objectMapper);
+
+        try (InputStream fixture = getClass().getResourceAsStream("/fixtures/v3.1-all.json")) {
+            payload = fixture.readAllBytes();
+        }
+    }
+
+
+    @Test
+    void testSnapshotIsMuchSmallerThanTheDtoTree() throws IOException {
+        CountryResponseDto[] countryResponseDtos = objectMapper.readValue(payload, CountryResponseDto[].class);
+        List<CountryRecord> countryRecords = countryRecordParser.parse(payload);
+        assertEquals(countryResponseDtos.length, countryRecords.size());
+
+
+        CountrySnapshot snapshot = new CountrySnapshot(1L, Instant.EPOCH, countryRecords);
+        long dtoBytes = GraphLayout.parseInstance((Object) countryResponseDtos).totalSize();
+        long recordBytes = GraphLayout.parseInstance(countryRecords).totalSize();
+        long countryBytes = GraphLayout.parseInstance(snapshot.getCountries()).totalSize();
+        long rankedCountryBytes = GraphLayout.parseInstance(snapshot.getCountries(), snapshot.getDensityRanking()).totalSize();
+        long snapshotBytes = GraphLayout.parseInstance(snapshot).totalSize();
+        log.info("Retained heap for {} countries: CountryResponseDto[] {} bytes, parsed CountryRecord list {} bytes, "
+                        + "snapshot countries {} bytes, with the density ranking {} bytes, complete snapshot with all indexes {} bytes",
+                countryRecords.size(), dtoBytes, recordBytes, countryBytes, rankedCountryBytes, snapshotBytes);
+
+        assertTrue(dtoBytes > 2.5 * countryBytes,
+                () -> "the countries (" + countryBytes + " bytes) should be at least 2.5 times smaller than the DTO tree (" + dtoBytes + " bytes)");
+        // The ranking JSON is the only copy of the country bytes, the ranking barely adds to the countries
+        assertTrue(rankedCountryBytes - countryBytes < payload.length / 10,
+                () -> "the country JSON should be held once, the ranking adds " + (rankedCountryBytes - countryBytes) + " bytes");
+        assertTrue(dtoBytes > 2 * snapshotBytes,
+                () -> "the snapshot with all its indexes (" + snapshotBytes + " bytes) should stay below half the DTO tree (" + dtoBytes + " bytes)");
+    }
+
+
+    @Test
+    void testRepeatedStringsAreShared() throws IOException {
+        List<CountryRecord> countryRecords = countryRecordParser.parse(payload);
+        CountrySnapshot snapshot = new CountrySnapshot(1L, Instant.EPOCH, countryRecords);
+
+        CountryRecord india = snapshot.findByCca3("IND");
+        CountryRecord china = snapshot.findByCca3("CHN");
+        assertSame(india.getRegion(), china.getRegion());
+        for (String border : india.getBorders()) {
+            assertSame(snapshot.findByCca3(border).getCca3(), border);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.payload.CountryResponseDto;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CountryRecordParserTest {
+
+    private static final String ALL_COUNTRIES = """
+            [
+              {
+                "name": {"common": "India", "official": "Republic of India", "nativeName": {"hin": {"official": "भारत गणराज्य", "common": "भारत"}}},
+                "cca2": "IN", "ccn3": "356", "cca3": "IND", "cioc": "IND",
+                "independent": true, "unMember": true,
+                "region": "Asia", "subregion": "Southern Asia",
+                "translations": {"fra": {"official": "République de l'Inde", "common": "Inde"}},
+                "latlng": [20.0, 77.0], "landlocked": false,
+                "borders": ["BGD", "BTN", "MMR", "CHN", "NPL", "PAK"],
+                "area": 3287590.0, "population": 1380004385,
+                "gini": {"2011": 35.7},
+                "flags": {"png": "https://flagcdn.com/w320/in.png", "svg": "https://flagcdn.com/in.svg"},
+                "capitalInfo": {"latlng": [28.6, 77.2]}
+              },
+              {
+                "name": {"common": "Antarctica", "official": "Antarctica"},
+                "cca2": "AQ", "ccn3": "010", "cca3": "ATA", "cioc": null,
+                "region": "Antarctic", "latlng": [-90, 0], "landlocked": false,
+                "area": 14000000, "population": 1000,
+                "capitalInfo": {}
+              }
+            ]
+            """;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final CountryRecordParser countryRecordParser = new CountryRecordParser();
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException {
+        Field field = CountryRecordParser.class.getDeclaredField("objectMapper");
+        field.setAccessible(true);
+        field.set(countryRecordParser, objectMapper);
+    }
+
+
+    @Test
+    void testParseIndexedFields() throws IOException {
+        List<CountryRecord> countries = countryRecordParser.parse(ALL_COUNTRIES.getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(2, countries.size());
+
+        CountryRecord india = countries.get(0);
+        assertEquals("India", india.getNameCommon());
+        assertEquals("Republic of India", india.getNameOfficial());
+        assertEquals("IN", india.getCca2());
+        assertEquals("356", india.getCcn3());
+        assertEquals("IND", india.getCca3());
+        assertEquals("Southern Asia", india.getSubregion());
+        assertEquals(1380004385L, india.getPopulation());
+        assertEquals(3287590.0, india.getArea());
+        assertTrue(india.isUnMember());
+        assertFalse(india.isLandlocked());
+        assertArrayEquals(new String[]{"BGD", "BTN", "MMR", "CHN", "NPL", "PAK"}, india.getBorders());
+        assertArrayEquals(new double[]{20.0, 77.0}, india.getLatlng());
+        assertArrayEquals(new double[]{28.6, 77.2}, india.getCapitalLatlng());
+
+        CountryRecord antarctica = countries.get(1);
+        assertNull(antarctica.getCioc());
+        assertNull(antarctica.getSubregion());
+        assertEquals(0, antarctica.getBorders().length);
+        assertEquals(0, antarctica.getCapitalLatlng().length);
+    }
+
+
+    @Test
+    void testParseKeepsTheCompleteCountry() throws IOException {
+        CountryRecord india = countryRecordParser.parse(ALL_COUNTRIES.getBytes(StandardCharsets.UTF_8)).get(0);
+
+        // Heavy sub-objects are only decoded on demand, from the compact upstream JSON
+        CountryResponseDto countryResponseDto = india.toDto(objectMapper);
+        assertEquals("Inde", countryResponseDto.getTranslations().get("fra").getCommon());
+        assertEquals("भारत", countryResponseDto.getName().getNativeName().get("hin").getCommon());
+        assertEquals("https://flagcdn.com/in.svg", countryResponseDto.getFlags().getSvg());
+        assertEquals(objectMapper.readTree(ALL_COUNTRIES).get(0), objectMapper.readTree(india.getJson()));
+    }
+
+
+    @Test
+    void testParseRejectsNonArrayPayload() {
+        assertThrows(IOException.class, () -> countryRecordParser.parse("{\"status\":404}".getBytes(StandardCharsets.UTF_8)));
+    }
+}
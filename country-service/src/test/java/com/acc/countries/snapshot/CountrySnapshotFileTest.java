@@ -0,0 +1,121 @@
+package com.acc.countries.snapshot;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.zip.CRC32;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CountrySnapshotFileTest {
+
+    private static final String ALL_COUNTRIES = """
+            [
+              {"name": {"common": "India"}, "cca3": "IND", "region": "Asia", "borders": ["CHN", "PAK"], "area": 3287590.0, "population": 1380004385},
+              {"name": {"common": "Singapore"}, "cca3": "SGP", "region": "Asia", "area": 710, "population": 5685807}
+            ]
+            """;
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private final CountryRecordParser countryRecordParser = new CountryRecordParser();
+
+    private final CountrySnapshotFile countrySnapshotFile = new CountrySnapshotFile();
+
+    private Path snapshotPath;
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException {
+        Field objectMapperField = CountryRecordParser.class.getDeclaredField("objectMapper");
+        objectMapperField.setAccessible(true);
+        objectMapperField.set(countryRecordParser, objectMapper);
+
+        Field parserField = CountrySnapshotFile.class.getDeclaredField("countryRecordParser");
+        parserField.setAccessible(true);
+        parserField.set(countrySnapshotFile, countryRecordParser);
+
+        snapshotPath = tempDir.resolve("data").resolve("countries.snapshot");
+        Field fileField = CountrySnapshotFile.class.getDeclaredField("snapshotFile");
+        fileField.setAccessible(true);
+        fileField.set(countrySnapshotFile, snapshotPath.toString());
+    }
+
+
+    @Test
+    void testSaveAndLoadRestoresTheSnapshot() throws IOException {
+        CountrySnapshot snapshot = new CountrySnapshot(1792298458547L, Instant.ofEpochMilli(1792298458547L),
+                countryRecordParser.parse(ALL_COUNTRIES.getBytes(StandardCharsets.UTF_8)));
+
+        assertNull(countrySnapshotFile.load());
+        countrySnapshotFile.save(snapshot);
+        CountrySnapshot loaded = countrySnapshotFile.load();
+
+        assertEquals(snapshot.getVersion(), loaded.getVersion());
+        assertEquals(snapshot.getFetchedAt(), loaded.getFetchedAt());
+        assertEquals(2, loaded.getCountries().size());
+        assertArrayEquals(snapshot.getDensityRanking().getJson(), loaded.getDensityRanking().getJson());
+        assertArrayEquals(new String[]{"CHN", "PAK"}, loaded.findByCca3("IND").getBorders());
+        assertEquals(5685807L, loaded.findByCca3("SGP").getPopulation());
+    }
+
+
+    @Test
+    void testLoadRejectsCorruptedFiles() throws IOException {
+        CountrySnapshot snapshot = new CountrySnapshot(1L, Instant.EPOCH, countryRecordParser.parse(ALL_COUNTRIES.getBytes(StandardCharsets.UTF_8)));
+        byte[] content = CountrySnapshotFile.encode(snapshot);
+
+        // A flipped body byte fails the checksum
+        byte[] corrupted = content.clone();
+        corrupted[corrupted.length - 2] ^= 0x20;
+        Files.createDirectories(snapshotPath.getParent());
+        Files.write(snapshotPath, corrupted);
+        assertThrows(IOException.class, countrySnapshotFile::load);
+
+        // Files written by a newer format version are not read
+        byte[] newerFormat = content.clone();
+        ByteBuffer.wrap(newerFormat).putShort(4, (short) (CountrySnapshotFile.FORMAT_VERSION + 1));
+        Files.write(snapshotPath, newerFormat);
+        assertThrows(IOException.class, countrySnapshotFile::load);
+
+        Files.write(snapshotPath, "[]".getBytes(StandardCharsets.UTF_8));
+        assertThrows(IOException.class, countrySnapshotFile::load);
+    }
+
+
+    @Test
+    void testDecodeRejectsTamperedHeaders() throws IOException {
+        CountrySnapshot snapshot = new CountrySnapshot(1L, Instant.EPOCH, countryRecordParser.parse(ALL_COUNTRIES.getBytes(StandardCharsets.UTF_8)));
+        byte[] content = CountrySnapshotFile.encode(snapshot);
+        assertEquals(2, countrySnapshotFile.decodeContents(ByteBuffer.wrap(content)).countries().size());
+
+        // The header fields are covered by the checksum
+        byte[] newerVersion = content.clone();
+        ByteBuffer.wrap(newerVersion).putLong(6, Long.MAX_VALUE);
+        assertThrows(IOException.class, () -> countrySnapshotFile.decodeContents(ByteBuffer.wrap(newerVersion)));
+
+        // A count the content cannot hold is rejected before anything is allocated, even with a matching checksum
+        byte[] hostileCount = content.clone();
+        ByteBuffer header = ByteBuffer.wrap(hostileCount).putInt(22, Integer.MAX_VALUE);
+        CRC32 crc = new CRC32();
+        crc.update(hostileCount, 0, CountrySnapshotFile.CHECKSUM_OFFSET);
+        crc.update(hostileCount, CountrySnapshotFile.HEADER_SIZE, hostileCount.length - CountrySnapshotFile.HEADER_SIZE);
+        header.putInt(CountrySnapshotFile.CHECKSUM_OFFSET, (int) crc.getValue());
+        IOException ex = assertThrows(IOException.class, () -> countrySnapshotFile.decodeContents(ByteBuffer.wrap(hostileCount)));
+        assertEquals("Invalid country count " + Integer.MAX_VALUE, ex.getMessage());
+    }
+}
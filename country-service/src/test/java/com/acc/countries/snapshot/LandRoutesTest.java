@@ -0,0 +1,133 @@
+package com.acc.countries.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class LandRoutesTest {
+
+    private BorderGraph borderGraph;
+
+    private LandRoutes landRoutes;
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException, IOException {
+        CountryRecordParser countryRecordParser = new CountryRecordParser();
+        Field field = CountryRecordParser.class.getDeclaredField("objectMapper");
+        field.setAccessible(true);
+        field.set(countryRecordParser, new ObjectMapper());
+
+        List<CountryRecord> countries;
+        try (InputStream fixture = getClass().getResourceAsStream("/fixtures/v3.1-all.json")) {
+            countries = countryRecordParser.parse(fixture.readAllBytes());
+        }
+        borderGraph = new BorderGraph(countries);
+        landRoutes = new LandRoutes(borderGraph);
+    }
+
+
+    @Test
+    void testRegionLookupIgnoresCaseUnderATurkishLocale() {
+        Locale defaultLocale = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            int asia = borderGraph.regionIdOf("Asia");
+            assertTrue(asia >= 0);
+            assertEquals(asia, borderGraph.regionIdOf("ASIA"));
+            assertEquals(asia, borderGraph.regionIdOf("asia"));
+            assertEquals(-1, borderGraph.regionIdOf("Asian"));
+        } finally {
+            Locale.setDefault(defaultLocale);
+        }
+    }
+
+
+    @Test
+    void testHopsMatchFloydWarshall() {
+        int size = borderGraph.size();
+        int[][] expected = new int[size][size];
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                expected[from][to] = from == to ? 0 : Integer.MAX_VALUE / 2;
+            }
+            for (int position = borderGraph.neighboursStart(from); position < borderGraph.neighboursEnd(from); position++) {
+                expected[from][borderGraph.neighbourAt(position)] = 1;
+            }
+        }
+        for (int via = 0; via < size; via++) {
+            for (int from = 0; from < size; from++) {
+                for (int to = 0; to < size; to++) {
+                    expected[from][to] = Math.min(expected[from][to], expected[from][via] + expected[via][to]);
+                }
+            }
+        }
+
+        for (int from = 0; from < size; from++) {
+            for (int to = 0; to < size; to++) {
+                int hops = expected[from][to] >= Integer.MAX_VALUE / 2 ? LandRoutes.UNREACHABLE : expected[from][to];
+                assertEquals(hops, landRoutes.hopsBetween(from, to));
+                assertEquals(hops != LandRoutes.UNREACHABLE, landRoutes.componentOf(from) == landRoutes.componentOf(to));
+            }
+        }
+    }
+
+
+    @Test
+    void testRoutesFollowBorders() {
+        int from = borderGraph.idOf("PRT");
+        int to = borderGraph.idOf("CHN");
+        int[] route = landRoutes.route(from, to);
+
+        assertEquals(landRoutes.hopsBetween(from, to) + 1, route.length);
+        assertEquals(from, route[0]);
+        assertEquals(to, route[route.length - 1]);
+        for (int step = 1; step < route.length; step++) {
+            assertTrue(isNeighbour(route[step - 1], route[step]));
+        }
+
+        assertArrayEquals(new int[]{from}, landRoutes.route(from, from));
+        assertEquals(0, landRoutes.route(from, borderGraph.idOf("AUS")).length);
+    }
+
+
+    @Test
+    void testComponentsAndLandlockedDepths() {
+        int[] largest = landRoutes.components().stream().max((left, right) -> Integer.compare(left.length, right.length)).orElseThrow();
+        assertEquals(landRoutes.componentOf(borderGraph.idOf("FRA")), landRoutes.componentOf(largest[0]));
+        assertEquals(borderGraph.size(), landRoutes.components().stream().mapToInt(component -> component.length).sum());
+
+        // The depth is the distance to the closest coastal country, coastal countries have none
+        for (int id = 0; id < borderGraph.size(); id++) {
+            int expected = borderGraph.countryOf(id).isLandlocked() ? LandRoutes.UNREACHABLE : 0;
+            for (int other = 0; expected != 0 && other < borderGraph.size(); other++) {
+                int hops = landRoutes.hopsBetween(id, other);
+                if (hops > 0 && !borderGraph.countryOf(other).isLandlocked() && (expected == LandRoutes.UNREACHABLE || hops < expected)) {
+                    expected = hops;
+                }
+            }
+            assertEquals(expected, landRoutes.landlockedDepthOf(id));
+        }
+        assertEquals(1, landRoutes.landlockedDepthOf(borderGraph.idOf("CHE")));
+        assertEquals(0, landRoutes.landlockedDepthOf(borderGraph.idOf("AUT")));
+    }
+
+
+    private boolean isNeighbour(int from, int to) {
+        for (int position = borderGraph.neighboursStart(from); position < borderGraph.neighboursEnd(from); position++) {
+            if (borderGraph.neighbourAt(position) == to) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
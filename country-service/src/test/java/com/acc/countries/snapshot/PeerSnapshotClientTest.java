@@ -0,0 +1,267 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.config.InternalPortConfig;
+import com.acc.countries.controllers.SnapshotController;
+import com.acc.countries.utils.RestApiRequestHelper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.web.client.ResponseErrorHandler;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+
+/**
+ * Two replicas in one JVM: the Spring Boot application serves its snapshot on a random internal port, a second store
+ * built by hand pulls it over HTTP. Neither talks to the upstream API, both upstream clients are mocks.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"country.snapshot.scheduling-enabled=false", "country.snapshot.file=", "country.peers.port=0"})
+public class PeerSnapshotClientTest {
+
+    @LocalServerPort
+    private int port;
+
+    @MockBean
+    private RestApiRequestHelper restApiRequestHelper;
+
+    @Autowired
+    private CountrySnapshotStore countrySnapshotStore;
+
+    @Autowired
+    private CountryRecordParser countryRecordParser;
+
+    @Autowired
+    private CountrySnapshotFile countrySnapshotFile;
+
+    @Autowired
+    private InternalPortConfig internalPortConfig;
+
+    @Autowired
+    private SnapshotController snapshotController;
+
+    @Autowired
+    private ExecutorService upstreamExecutor;
+
+    private RestApiRequestHelper replicaUpstream;
+
+    private PeerSnapshotClient peerSnapshotClient;
+
+    private CountrySnapshotStore replica;
+
+
+    @BeforeEach
+    public void setUp() throws IOException, NoSuchFieldException, IllegalAccessException {
+        try (InputStream fixture = getClass().getResourceAsStream("/fixtures/v3.1-all.json")) {
+            when(restApiRequestHelper.fetchRawResponse(anyString(), any(HttpHeaders.class))).thenReturn(ResponseEntity.ok(fixture.readAllBytes()));
+        }
+        countrySnapshotStore.refresh();
+
+        peerSnapshotClient = new PeerSnapshotClient();
+        setField(peerSnapshotClient, "restTemplateBuilder", new RestTemplateBuilder());
+        setField(peerSnapshotClient, "countrySnapshotFile", countrySnapshotFile);
+        setField(peerSnapshotClient, "upstreamExecutor", upstreamExecutor);
+        setField(peerSnapshotClient, "timeout", Duration.ofSeconds(2));
+        setField(peerSnapshotClient, "peerUrls", "http://127.0.0.1:" + internalPortConfig.getInternalPort());
+        peerSnapshotClient.init();
+
+        replicaUpstream = mock(RestApiRequestHelper.class);
+        replica = new CountrySnapshotStore();
+        setField(replica, "countriesApiUrl", "http://upstream.invalid/v3.1/all");
+        setField(replica, "staleAfter", Duration.ofHours(2));
+        setField(replica, "refreshInterval", Duration.ofHours(1));
+        setField(replica, "restApiRequestHelper", replicaUpstream);
+        setField(replica, "countryRecordParser", countryRecordParser);
+        setField(replica, "peerSnapshotClient", peerSnapshotClient);
+    }
+
+
+    @Test
+    void testReplicaInstallsThePeerSnapshotWithoutCallingUpstream() {
+        CountrySnapshot peer = countrySnapshotStore.getSnapshot();
+
+        assertTrue(replica.refresh());
+
+        CountrySnapshot snapshot = replica.getSnapshot();
+        assertEquals(peer.getVersion(), snapshot.getVersion());
+        assertEquals(peer.getFetchedAt(), snapshot.getFetchedAt());
+        assertEquals(countrySnapshotStore.getLastVerifiedAt(), replica.getLastVerifiedAt());
+        assertArrayEquals(peer.getDensityRanking().getJson(), snapshot.getDensityRanking().getJson());
+        assertEquals(1, peerSnapshotClient.getReceivedCount());
+        verifyNoInteractions(replicaUpstream);
+    }
+
+
+    @Test
+    void testReplicaAdoptsThePeerVersionOfUnchangedData() throws NoSuchFieldException, IllegalAccessException {
+        CountrySnapshot peer = countrySnapshotStore.getSnapshot();
+        CountrySnapshot local = new CountrySnapshot(peer.getVersion() - 1, peer.getFetchedAt().minusMillis(1), peer.getCountries());
+        currentSnapshotOf(replica).set(local);
+        ApplicationEventPublisher applicationEventPublisher = mock(ApplicationEventPublisher.class);
+        setField(replica, "applicationEventPublisher", applicationEventPublisher);
+
+        // Same data under a newer version: the version is adopted, nothing is rebuilt or announced
+        assertFalse(replica.refresh());
+
+        CountrySnapshot snapshot = replica.getSnapshot();
+        assertEquals(peer.getVersion(), snapshot.getVersion());
+        assertEquals(peer.getFetchedAt(), snapshot.getFetchedAt());
+        assertSame(local.getDensityRanking(), snapshot.getDensityRanking());
+        assertTrue(snapshot.getRebuiltStructures().isEmpty());
+        assertSame(local, replica.getSnapshot(local.getVersion()));
+        assertEquals(countrySnapshotStore.getLastVerifiedAt(), replica.getLastVerifiedAt());
+        verifyNoInteractions(applicationEventPublisher);
+        verifyNoInteractions(replicaUpstream);
+    }
+
+
+    @Test
+    void testReplicasAtTheSameVersionShareOneUpstreamCall() {
+        assertTrue(replica.refresh());
+        Instant verifiedAt = countrySnapshotStore.getLastVerifiedAt();
+
+        // The peer answers 304 to its own version with the upstream confirmation it just received, the replica takes it over
+        assertFalse(replica.refresh());
+
+        assertEquals(countrySnapshotStore.getSnapshot().getVersion(), replica.getSnapshot().getVersion());
+        assertEquals(verifiedAt, replica.getLastVerifiedAt());
+        assertEquals(0, peerSnapshotClient.getFailedCount());
+        verify(restApiRequestHelper, times(1)).fetchRawResponse(anyString(), any(HttpHeaders.class));
+        verifyNoInteractions(replicaUpstream);
+    }
+
+
+    @Test
+    void testReplicaGoesUpstreamOnceThePeerConfirmationIsOlderThanTheRefreshInterval() throws NoSuchFieldException, IllegalAccessException {
+        assertTrue(replica.refresh());
+        setField(countrySnapshotStore, "lastVerifiedAt", Instant.now().minus(Duration.ofHours(1)));
+        when(replicaUpstream.fetchRawResponse(anyString(), any(HttpHeaders.class))).thenReturn(ResponseEntity.status(HttpStatus.NOT_MODIFIED).build());
+
+        // The peer answers 304 to its own version, last confirmed an interval ago, the replica then revalidates upstream
+        assertFalse(replica.refresh());
+
+        assertEquals(countrySnapshotStore.getSnapshot().getVersion(), replica.getSnapshot().getVersion());
+        assertEquals(1, peerSnapshotClient.getReceivedCount());
+        assertEquals(0, peerSnapshotClient.getFailedCount());
+        verify(replicaUpstream, times(1)).fetchRawResponse(anyString(), any(HttpHeaders.class));
+    }
+
+
+    @Test
+    void testSnapshotIsOnlyServedOnTheInternalPort() {
+        RestTemplate restTemplate = new RestTemplateBuilder().errorHandler(new NoOpResponseErrorHandler()).build();
+        String internalUrl = "http://127.0.0.1:" + internalPortConfig.getInternalPort();
+        String publicUrl = "http://127.0.0.1:" + port;
+        assertNotEquals(port, internalPortConfig.getInternalPort());
+
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity(internalUrl + PeerSnapshotClient.SNAPSHOT_PATH, byte[].class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(publicUrl + PeerSnapshotClient.SNAPSHOT_PATH, byte[].class).getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, restTemplate.getForEntity(internalUrl + "/actuator/health", String.class).getStatusCode());
+        assertEquals(HttpStatus.OK, restTemplate.getForEntity(publicUrl + "/actuator/health", String.class).getStatusCode());
+
+        // The snapshot is encoded once per version
+        assertSame(snapshotController.getSnapshot(0).getBody(), snapshotController.getSnapshot(0).getBody());
+    }
+
+
+    @Test
+    void testUnreachablePeerFallsBackToUpstream() throws IOException, NoSuchFieldException, IllegalAccessException {
+        int closedPort;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            closedPort = socket.getLocalPort();
+        }
+        setField(peerSnapshotClient, "peerUrls", "http://127.0.0.1:" + closedPort);
+        when(replicaUpstream.fetchRawResponse(anyString(), any(HttpHeaders.class))).thenReturn(ResponseEntity.ok(new byte[0]));
+
+        assertFalse(replica.refresh());
+
+        assertTrue(replica.getSnapshot().isEmpty());
+        assertEquals(1, peerSnapshotClient.getFailedCount());
+        verify(replicaUpstream, times(1)).fetchRawResponse(anyString(), any(HttpHeaders.class));
+    }
+
+
+    @Test
+    void testSilentPeersDoNotDelayTheRefreshPastTheTimeout() throws IOException, NoSuchFieldException, IllegalAccessException {
+        List<ServerSocket> silentPeers = new ArrayList<>();
+        try {
+            StringBuilder peerUrls = new StringBuilder();
+            for (int i = 0; i < 4; i++) {
+                // The connections are accepted by the backlog but never answered
+                ServerSocket silentPeer = new ServerSocket(0);
+                silentPeers.add(silentPeer);
+                peerUrls.append("http://127.0.0.1:").append(silentPeer.getLocalPort()).append(',');
+            }
+            peerUrls.append("http://127.0.0.1:").append(internalPortConfig.getInternalPort());
+            setField(peerSnapshotClient, "peerUrls", peerUrls.toString());
+            setField(peerSnapshotClient, "timeout", Duration.ofSeconds(1));
+            peerSnapshotClient.init();
+
+            // Asked one after the other the silent peers would hold the refresh for 4 timeouts
+            long startedAt = System.nanoTime();
+            assertTrue(replica.refresh());
+            Duration elapsed = Duration.ofNanos(System.nanoTime() - startedAt);
+
+            assertTrue(elapsed.compareTo(Duration.ofSeconds(3)) < 0, () -> "the peer poll took " + elapsed);
+            assertEquals(countrySnapshotStore.getSnapshot().getVersion(), replica.getSnapshot().getVersion());
+            assertEquals(1, peerSnapshotClient.getReceivedCount());
+            verifyNoInteractions(replicaUpstream);
+        } finally {
+            for (ServerSocket silentPeer : silentPeers) {
+                silentPeer.close();
+            }
+        }
+    }
+
+
+    /**
+     * Lets the statuses through to the assertions
+     */
+    private static class NoOpResponseErrorHandler implements ResponseErrorHandler {
+        @Override
+        public boolean hasError(ClientHttpResponse response) {
+            return false;
+        }
+
+        @Override
+        public void handleError(ClientHttpResponse response) {
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static AtomicReference<CountrySnapshot> currentSnapshotOf(CountrySnapshotStore store) throws NoSuchFieldException, IllegalAccessException {
+        Field field = CountrySnapshotStore.class.getDeclaredField("currentSnapshot");
+        field.setAccessible(true);
+        return (AtomicReference<CountrySnapshot>) field.get(store);
+    }
+
+    private static void setField(Object target, String name, Object value) throws NoSuchFieldException, IllegalAccessException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
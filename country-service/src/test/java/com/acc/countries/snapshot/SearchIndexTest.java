@@ -0,0 +1,79 @@
+package com.acc.countries.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class SearchIndexTest {
+
+    private static final byte[] COUNTRIES = ("["
+            + "{\"name\":{\"common\":\"Ivory Coast\",\"official\":\"Republic of Côte d'Ivoire\",\"nativeName\":{\"fra\":{\"official\":\"République de Côte d'Ivoire\",\"common\":\"Côte d'Ivoire\"}}},"
+            + "\"cca3\":\"CIV\",\"altSpellings\":[\"CI\"],\"translations\":{\"deu\":{\"official\":\"Republik Côte d'Ivoire\",\"common\":\"Elfenbeinküste\"}},\"population\":26378275},"
+            + "{\"name\":{\"common\":\"Czechia\",\"official\":\"Czech Republic\"},\"cca3\":\"CZE\",\"altSpellings\":[\"CZ\",\"Česká republika\"],\"population\":10698896},"
+            + "{\"name\":{\"common\":\"Germany\",\"official\":\"Federal Republic of Germany\"},\"cca3\":\"DEU\","
+            + "\"translations\":{\"fra\":{\"official\":\"République fédérale d'Allemagne\",\"common\":\"Allemagne\"},\"deu\":{\"official\":\"Bundesrepublik Deutschland\",\"common\":\"Deutschland\"}},\"population\":83240525},"
+            + "{\"name\":{\"common\":\"Guinea\",\"official\":\"Republic of Guinea\"},\"cca3\":\"GIN\",\"population\":13132795},"
+            + "{\"name\":{\"common\":\"Equatorial Guinea\",\"official\":\"Republic of Equatorial Guinea\"},\"cca3\":\"GNQ\",\"population\":1402985},"
+            + "{\"name\":{\"common\":\"Papua New Guinea\",\"official\":\"Independent State of Papua New Guinea\"},\"cca3\":\"PNG\",\"population\":8947027}"
+            + "]").getBytes(StandardCharsets.UTF_8);
+
+    private SearchIndex searchIndex;
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException, IOException {
+        CountryRecordParser countryRecordParser = new CountryRecordParser();
+        Field field = CountryRecordParser.class.getDeclaredField("objectMapper");
+        field.setAccessible(true);
+        field.set(countryRecordParser, new ObjectMapper());
+
+        // Built by the snapshot, over the countries re-homed into the ranking JSON
+        searchIndex = new CountrySnapshot(1L, Instant.EPOCH, countryRecordParser.parse(COUNTRIES)).getSearchIndex();
+    }
+
+
+    @Test
+    void testAccentsAndCaseAreIgnored() {
+        assertEquals(List.of("CIV"), codes(searchIndex.search("COTE d ivoire", 10)));
+        assertEquals(List.of("CIV"), codes(searchIndex.search("elfenbeinkuste", 10)));
+        assertEquals(SearchIndex.Field.TRANSLATION, searchIndex.search("elfen", 10).get(0).field());
+        assertEquals(List.of("CZE"), codes(searchIndex.search("ceska", 10)));
+        assertEquals(List.of("DEU"), codes(searchIndex.search("allem", 10)));
+    }
+
+
+    @Test
+    void testResultsAreRanked() {
+        // The exact common name first, then the names starting with the word, then the names containing it
+        assertEquals(List.of("GIN", "PNG", "GNQ"), codes(searchIndex.search("guinea", 10)));
+        assertEquals(List.of("GIN", "PNG"), codes(searchIndex.search("guinea", 2)));
+        assertEquals(List.of("PNG"), codes(searchIndex.search("new gui", 10)));
+        assertEquals(List.of("PNG"), codes(searchIndex.search("guinea papua", 10)));
+        // Names starting with the word before names containing it, then the most populated first
+        assertEquals(List.of("CIV", "GIN", "GNQ", "DEU", "CZE"), codes(searchIndex.search("rep", 10)));
+        assertTrue(searchIndex.search("atlantis", 10).isEmpty());
+        assertTrue(searchIndex.search(" - ", 10).isEmpty());
+    }
+
+
+    @Test
+    void testFold() {
+        assertEquals("sao tome and principe", SearchIndex.fold("São Tomé and Príncipe"));
+        assertEquals("aland islands", SearchIndex.fold("  Åland-Islands! "));
+        assertEquals("grossbritannien", SearchIndex.fold("Großbritannien"));
+    }
+
+
+    private static List<String> codes(List<SearchIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.country().getCca3()).toList();
+    }
+}
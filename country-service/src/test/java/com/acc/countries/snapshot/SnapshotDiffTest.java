@@ -0,0 +1,142 @@
+package com.acc.countries.snapshot;
+
+import com.acc.countries.events.CountryChange;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class SnapshotDiffTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private CountryRecordParser countryRecordParser;
+
+    private ArrayNode fixture;
+
+    private CountrySnapshot previous;
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException, IOException {
+        countryRecordParser = new CountryRecordParser();
+        Field field = CountryRecordParser.class.getDeclaredField("objectMapper");
+        field.setAccessible(true);
+        field.set(countryRecordParser, objectMapper);
+
+        try (InputStream payload = getClass().getResourceAsStream("/fixtures/v3.1-all.json")) {
+            fixture = (ArrayNode) objectMapper.readTree(payload);
+        }
+        previous = new CountrySnapshot(1L, Instant.EPOCH, parse(fixture));
+    }
+
+
+    @Test
+    void testIdenticalCountriesHaveNoChanges() throws IOException {
+        SnapshotDiff diff = SnapshotDiff.between(previous, parse(fixture));
+
+        assertTrue(diff.isEmpty());
+        assertTrue(diff.isAligned());
+    }
+
+
+    @Test
+    void testPopulationChangeOnlyRebuildsTheRankingAndColumns() throws IOException {
+        ArrayNode updated = fixture.deepCopy();
+        ObjectNode germany = find(updated, "DEU");
+        germany.put("population", 900_000_000L);
+        List<CountryRecord> countries = parse(updated);
+
+        SnapshotDiff diff = SnapshotDiff.between(previous, countries);
+        assertEquals(List.of(new CountryChange(CountryChange.Type.CHANGED, "DEU", Set.of("population"))), diff.getChanges());
+        assertTrue(diff.isAligned());
+
+        CountrySnapshot snapshot = CountrySnapshot.update(previous, 2L, Instant.EPOCH, countries, diff);
+        assertEquals(EnumSet.of(CountrySnapshot.Structure.DENSITY_ORDER, CountrySnapshot.Structure.COLUMNS), snapshot.getRebuiltStructures());
+
+        // Every structure answers like a snapshot built from scratch, carried over ones with the new records
+        CountrySnapshot rebuilt = new CountrySnapshot(2L, Instant.EPOCH, parse(updated));
+        assertArrayEquals(rebuilt.getDensityRanking().getJson(), snapshot.getDensityRanking().getJson());
+        assertEquals(900_000_000L, snapshot.getSearchIndex().search("germany", 1).get(0).country().getPopulation());
+        double[] latlng = snapshot.findByCca3("DEU").getLatlng();
+        assertEquals(900_000_000L, snapshot.getCountryLocations().nearest(latlng[0], latlng[1], 1).get(0).country().getPopulation());
+        assertEquals(900_000_000L, snapshot.getBorderGraph().countryOf(snapshot.getBorderGraph().idOf("DEU")).getPopulation());
+        assertEquals(rebuilt.getBorderGraph().mostForeignBorders(0, 5), snapshot.getBorderGraph().mostForeignBorders(0, 5));
+        assertEquals(rebuilt.getLandRoutes().componentCount(), snapshot.getLandRoutes().componentCount());
+        for (int row = 0; row < countries.size(); row++) {
+            assertSame(snapshot.getCountries().get(row), snapshot.getBorderGraph().countryOf(row));
+            assertEquals(rebuilt.contentHashOf(row), snapshot.contentHashOf(row));
+        }
+    }
+
+
+    @Test
+    void testBorderChangeRebuildsTheGraphAndRoutes() throws IOException {
+        ArrayNode updated = fixture.deepCopy();
+        find(updated, "FRA").putArray("borders");
+        List<CountryRecord> countries = parse(updated);
+
+        SnapshotDiff diff = SnapshotDiff.between(previous, countries);
+        CountrySnapshot snapshot = CountrySnapshot.update(previous, 2L, Instant.EPOCH, countries, diff);
+
+        assertEquals(EnumSet.of(CountrySnapshot.Structure.BORDER_GRAPH, CountrySnapshot.Structure.LAND_ROUTES), snapshot.getRebuiltStructures());
+        BorderGraph borderGraph = snapshot.getBorderGraph();
+        int france = borderGraph.idOf("FRA");
+        assertEquals(borderGraph.neighboursStart(france), borderGraph.neighboursEnd(france));
+        assertEquals(LandRoutes.UNREACHABLE, snapshot.getLandRoutes().hopsBetween(france, borderGraph.idOf("DEU")));
+    }
+
+
+    @Test
+    void testAddedAndRemovedCountriesRebuildEverything() throws IOException {
+        ArrayNode updated = fixture.deepCopy();
+        for (int i = 0; i < updated.size(); i++) {
+            if ("MCO".equals(updated.get(i).path("cca3").asText())) {
+                updated.remove(i);
+            }
+        }
+        ObjectNode atlantis = updated.addObject();
+        atlantis.putObject("name").put("common", "Atlantis");
+        atlantis.put("cca3", "ATL");
+        List<CountryRecord> countries = parse(updated);
+
+        SnapshotDiff diff = SnapshotDiff.between(previous, countries);
+        assertFalse(diff.isAligned());
+        assertEquals(2, diff.getChanges().size());
+        assertEquals(new CountryChange(CountryChange.Type.ADDED, "ATL", Set.of("name", "cca3")), diff.getChanges().get(0));
+        assertEquals(CountryChange.Type.REMOVED, diff.getChanges().get(1).getType());
+        assertEquals("MCO", diff.getChanges().get(1).getCca3());
+
+        CountrySnapshot snapshot = CountrySnapshot.update(previous, 2L, Instant.EPOCH, countries, diff);
+        assertEquals(EnumSet.allOf(CountrySnapshot.Structure.class), snapshot.getRebuiltStructures());
+        assertNotNull(snapshot.findByCca3("ATL"));
+        assertNull(snapshot.findByCca3("MCO"));
+    }
+
+
+    private List<CountryRecord> parse(ArrayNode countries) throws IOException {
+        return countryRecordParser.parse(objectMapper.writeValueAsBytes(countries));
+    }
+
+    private static ObjectNode find(ArrayNode countries, String cca3) {
+        for (JsonNode country : countries) {
+            if (cca3.equals(country.path("cca3").asText())) {
+                return (ObjectNode) country;
+            }
+        }
+        throw new IllegalArgumentException(cca3);
+    }
+}
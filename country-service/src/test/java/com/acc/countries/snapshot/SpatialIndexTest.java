@@ -0,0 +1,81 @@
+package com.acc.countries.snapshot;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class SpatialIndexTest {
+
+    private List<CountryRecord> countries;
+
+    private SpatialIndex spatialIndex;
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException, IOException {
+        CountryRecordParser countryRecordParser = new CountryRecordParser();
+        Field field = CountryRecordParser.class.getDeclaredField("objectMapper");
+        field.setAccessible(true);
+        field.set(countryRecordParser, new ObjectMapper());
+
+        try (InputStream fixture = getClass().getResourceAsStream("/fixtures/v3.1-all.json")) {
+            countries = countryRecordParser.parse(fixture.readAllBytes());
+        }
+        spatialIndex = new SpatialIndex(countries, CountryRecord::getLatlng);
+    }
+
+
+    @Test
+    void testQueriesMatchAFullScan() {
+        Random random = new Random(42);
+        for (int query = 0; query < 500; query++) {
+            double lat = random.nextDouble() * 180d - 90d;
+            double lng = random.nextDouble() * 360d - 180d;
+            // Compared by distance, a few fixture countries share their coordinates
+            List<Double> expected = fullScan(lat, lng);
+
+            int k = 1 + random.nextInt(10);
+            assertDistances(expected.subList(0, k), spatialIndex.nearest(lat, lng, k));
+
+            double radiusKm = random.nextDouble() * 3000d;
+            long withinRadius = expected.stream().filter(distance -> distance <= radiusKm).count();
+            List<SpatialIndex.Neighbour> neighbours = spatialIndex.withinRadius(lat, lng, radiusKm);
+            assertEquals(withinRadius, neighbours.size());
+            assertDistances(expected.subList(0, neighbours.size()), neighbours);
+        }
+    }
+
+
+    @Test
+    void testDistanceIsGreatCircle() {
+        // Paris to New York
+        assertEquals(5837d, SpatialIndex.distanceKm(48.8566, 2.3522, 40.7128, -74.006), 5d);
+        assertEquals(0d, spatialIndex.nearest(1.36666666, 103.8, 1).get(0).distanceKm(), 50d);
+    }
+
+
+    private List<Double> fullScan(double lat, double lng) {
+        return countries.stream().filter(country -> country.getLatlng().length == 2)
+                .map(country -> SpatialIndex.distanceKm(lat, lng, country.getLatlng()[0], country.getLatlng()[1]))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+
+    private static void assertDistances(List<Double> expected, List<SpatialIndex.Neighbour> neighbours) {
+        assertEquals(expected.size(), neighbours.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), neighbours.get(i).distanceKm(), 1e-6);
+        }
+    }
+}
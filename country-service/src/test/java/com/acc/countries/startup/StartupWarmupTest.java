@@ -0,0 +1,52 @@
+package com.acc.countries.startup;
+
+import com.acc.countries.snapshot.CountrySnapshotStore;
+import com.acc.countries.utils.RestApiRequestHelper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.DefaultApplicationArguments;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"country.snapshot.scheduling-enabled=false", "country.snapshot.file=", "country.peers.port=0",
+                "country.warmup.enabled=true", "country.warmup.iterations=2"})
+public class StartupWarmupTest {
+
+    @MockBean
+    private RestApiRequestHelper restApiRequestHelper;
+
+    @Autowired
+    private CountrySnapshotStore countrySnapshotStore;
+
+    @Autowired
+    private StartupWarmup startupWarmup;
+
+
+    @Test
+    void testWarmupPreloadsTheDataAndExercisesTheEndpoints() throws IOException {
+        // The warm-up at context start found no data, the mock was not stubbed yet
+        assertEquals(0, startupWarmup.getRequestCount());
+
+        try (InputStream fixture = getClass().getResourceAsStream("/fixtures/v3.1-all.json")) {
+            when(restApiRequestHelper.fetchRawResponse(anyString(), any(HttpHeaders.class))).thenReturn(ResponseEntity.ok(fixture.readAllBytes()));
+        }
+        startupWarmup.run(new DefaultApplicationArguments());
+
+        assertFalse(countrySnapshotStore.getSnapshot().isEmpty());
+        assertEquals(6, startupWarmup.getRequestCount());
+        // Only the preload reached upstream, the endpoints answered from the snapshot
+        verify(restApiRequestHelper, times(2)).fetchRawResponse(anyString(), any(HttpHeaders.class));
+    }
+}
@@ -0,0 +1,50 @@
+package com.acc.countries.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class BulkheadTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+
+    @Test
+    void testRejectsBeyondCapacity() {
+        Bulkhead bulkhead = new Bulkhead(2, Duration.ZERO);
+        assertTrue(bulkhead.tryAcquire());
+        assertTrue(bulkhead.tryAcquire());
+        assertFalse(bulkhead.tryAcquire());
+        assertEquals(2, bulkhead.activeCount());
+        assertEquals(1, bulkhead.rejectedCount());
+
+        bulkhead.release();
+        assertTrue(bulkhead.tryAcquire());
+    }
+
+
+    @Test
+    void testWaitsForAFreeSlot() throws Exception {
+        Bulkhead bulkhead = new Bulkhead(1, Duration.ofSeconds(5));
+        assertTrue(bulkhead.tryAcquire());
+
+        CompletableFuture<Boolean> waiting = CompletableFuture.supplyAsync(bulkhead::tryAcquire, executor);
+        bulkhead.release();
+        assertTrue(waiting.get(5, TimeUnit.SECONDS));
+        assertEquals(0, bulkhead.rejectedCount());
+    }
+}
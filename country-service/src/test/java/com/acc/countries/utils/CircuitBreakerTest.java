@@ -0,0 +1,65 @@
+package com.acc.countries.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class CircuitBreakerTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(3, Duration.ofSeconds(30), nanos::get);
+
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        fail(2);
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+
+        // A success resets the count, three failures in a row are needed
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+        assertEquals(1, circuitBreaker.rejectedCount());
+        assertEquals(Duration.ofSeconds(30), circuitBreaker.getRemainingOpenDuration());
+    }
+
+
+    @Test
+    void testHalfOpenLetsOneTrialThrough() {
+        fail(3);
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertEquals(CircuitBreaker.State.HALF_OPEN, circuitBreaker.getState());
+
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        // A failed trial opens the circuit again for the whole open duration
+        circuitBreaker.onFailure();
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        nanos.addAndGet(Duration.ofSeconds(29).toNanos());
+        assertFalse(circuitBreaker.tryAcquirePermission());
+
+        nanos.addAndGet(Duration.ofSeconds(1).toNanos());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        circuitBreaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+        assertTrue(circuitBreaker.tryAcquirePermission());
+    }
+
+
+    private void fail(int failures) {
+        for (int i = 0; i < failures; i++) {
+            assertTrue(circuitBreaker.tryAcquirePermission());
+            circuitBreaker.onFailure();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.acc.countries.utils;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+
+public class RestApiRequestHelperTest {
+    private static final byte[] PAYLOAD = "[{\"cca3\":\"SGP\"}]".getBytes(StandardCharsets.UTF_8);
+
+    private final RestTemplate restTemplate = mock(RestTemplate.class);
+
+    private final ExecutorService upstreamExecutor = Executors.newCachedThreadPool();
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(2);
+
+    private RestApiRequestHelper restApiRequestHelper;
+
+
+    @BeforeEach
+    public void setUp() throws NoSuchFieldException, IllegalAccessException {
+        restApiRequestHelper = new RestApiRequestHelper();
+        setField(restApiRequestHelper, "restTemplate", restTemplate);
+        setField(restApiRequestHelper, "upstreamExecutor", upstreamExecutor);
+        setField(restApiRequestHelper, "meterRegistry", new SimpleMeterRegistry());
+        setField(restApiRequestHelper, "upstreamCircuitBreaker", new CircuitBreaker(5, Duration.ofSeconds(30)));
+        setField(restApiRequestHelper, "upstreamBulkhead", new Bulkhead(10, Duration.ofMillis(100)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        upstreamExecutor.shutdownNow();
+        callers.shutdownNow();
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testCoalescedCallersGetTheirOwnBody() throws Exception {
+        CountDownLatch joined = new CountDownLatch(1);
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class))).thenAnswer(invocation -> {
+            assertTrue(joined.await(5, TimeUnit.SECONDS));
+            return ResponseEntity.ok().header(HttpHeaders.ETAG, "\"v1\"").body(PAYLOAD.clone());
+        });
+
+        Future<ResponseEntity<byte[]>> first = callers.submit(() -> restApiRequestHelper.fetchRawResponse("http://upstream/all", new HttpHeaders()));
+        Future<ResponseEntity<byte[]>> second = callers.submit(() -> restApiRequestHelper.fetchRawResponse("http://upstream/all", new HttpHeaders()));
+        while (restApiRequestHelper.getCoalescedCallCount() == 0) {
+            Thread.sleep(1);
+        }
+        joined.countDown();
+
+        ResponseEntity<byte[]> firstResponse = first.get(5, TimeUnit.SECONDS);
+        ResponseEntity<byte[]> secondResponse = second.get(5, TimeUnit.SECONDS);
+        assertEquals(1, restApiRequestHelper.getExecutedCallCount());
+        assertEquals("\"v1\"", secondResponse.getHeaders().getETag());
+        assertNotSame(firstResponse.getBody(), secondResponse.getBody());
+
+        // A caller writing to its body does not change the other one
+        firstResponse.getBody()[0] = 'x';
+        assertArrayEquals(PAYLOAD, secondResponse.getBody());
+        verify(restTemplate, times(1)).exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class));
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void testHalfOpenTrialFailingWithAnErrorReopensTheCircuit() throws Exception {
+        AtomicLong nanos = new AtomicLong();
+        CircuitBreaker circuitBreaker = new CircuitBreaker(1, Duration.ofSeconds(30), nanos::get);
+        setField(restApiRequestHelper, "upstreamCircuitBreaker", circuitBreaker);
+        when(restTemplate.exchange(anyString(), eq(HttpMethod.GET), any(HttpEntity.class), eq(byte[].class)))
+                .thenThrow(new RestClientException("upstream unavailable"))
+                .thenThrow(new OutOfMemoryError("trial"))
+                .thenReturn(ResponseEntity.ok(PAYLOAD.clone()));
+
+        assertThrows(RestClientException.class, () -> restApiRequestHelper.fetchRawResponse("http://upstream/all", new HttpHeaders()));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // The trial call fails with an Error, the circuit opens again instead of waiting for a trial that never ends
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertThrows(OutOfMemoryError.class, () -> restApiRequestHelper.fetchRawResponse("http://upstream/all", new HttpHeaders()));
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+
+        // The next trial is let through and closes the circuit
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        assertArrayEquals(PAYLOAD, restApiRequestHelper.fetchRawResponse("http://upstream/all", new HttpHeaders()).getBody());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+    }
+
+
+    private static void setField(Object target, String name, Object value) throws NoSuchFieldException, IllegalAccessException {
+        Field field = target.getClass().getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(target, value);
+    }
+}
@@ -0,0 +1,93 @@
+package com.acc.countries.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class SingleFlightTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    private final SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+
+    @AfterEach
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+
+    @Test
+    void testConcurrentCallersShareOneCall() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<CompletableFuture<String>> callers = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            callers.add(singleFlight.execute("https://restcountries.com/v3.1/all", () -> {
+                upstreamCalls.incrementAndGet();
+                awaitQuietly(release);
+                return "countries";
+            }, executor));
+        }
+        assertEquals(1, singleFlight.inFlightCount());
+
+        release.countDown();
+        for (CompletableFuture<String> caller : callers) {
+            assertEquals("countries", caller.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, upstreamCalls.get());
+        assertEquals(0, singleFlight.inFlightCount());
+        assertEquals(1, singleFlight.executedCount());
+        assertEquals(19, singleFlight.coalescedCount());
+    }
+
+
+    @Test
+    void testDifferentKeysAreNotCoalesced() throws Exception {
+        AtomicInteger upstreamCalls = new AtomicInteger();
+
+        CompletableFuture<String> asia = singleFlight.execute("region/Asia", () -> "Asia-" + upstreamCalls.incrementAndGet(), executor);
+        CompletableFuture<String> europe = singleFlight.execute("region/Europe", () -> "Europe-" + upstreamCalls.incrementAndGet(), executor);
+
+        assertTrue(asia.get(5, TimeUnit.SECONDS).startsWith("Asia"));
+        assertTrue(europe.get(5, TimeUnit.SECONDS).startsWith("Europe"));
+        assertEquals(2, upstreamCalls.get());
+    }
+
+
+    @Test
+    void testFailureIsSharedAndKeyIsReleased() throws Exception {
+        CompletableFuture<String> failed = singleFlight.execute("alpha/XXX", () -> {
+            throw new IllegalStateException("upstream unavailable");
+        }, executor);
+
+        CompletionException ex = assertThrows(CompletionException.class, failed::join);
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+
+        // A later call for the same key goes upstream again
+        assertEquals("recovered", singleFlight.execute("alpha/XXX", () -> "recovered", executor).get(5, TimeUnit.SECONDS));
+    }
+
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}